@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.asm;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fastquery.core.RepositoryException;
+import org.fastquery.util.TypeUtil;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+
+/**
+ * 生成 ResultSet 到实体的映射器. 映射器按列的索引用类型化的getter(getLong,getString,getTimestamp等)读取,再直接调用setter(或public字段)赋值,
+ * 省去了 Map -&gt; JSONObject -&gt; fastjson 这一转换过程. 映射器按(实体class,列布局)缓存. <br>
+ * 列名与属性的匹配规则跟fastjson一致: 先精确匹配, 再忽略大小写及"_","-"匹配. 实体不是public,setter被重载或者使用了@JSONField时, 退回到fastjson转换.
+ * 
+ * @author xixifeng (fastquery@126.com)
+ */
+public class AsmBeanMapper implements Opcodes {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AsmBeanMapper.class);
+
+	private static final String MAPPER_NAME = Type.getInternalName(BeanMapper.class);
+	private static final String RESULT_SET = Type.getInternalName(ResultSet.class);
+	private static final AtomicInteger SEQ = new AtomicInteger();
+
+	// 实体class -> (列布局 -> 映射器)
+	private static final Map<Class<?>, Map<String, BeanMapper>> MAPPERS = new ConcurrentHashMap<>();
+
+	// 属性类型 -> 读取它的ResultSet getter, 包装类型用对应基本类型的getter再配合wasNull
+	private static final Map<Class<?>, Method> GETTERS = new HashMap<>();
+
+	static {
+		getter("getInt", int.class, Integer.class);
+		getter("getLong", long.class, Long.class);
+		getter("getShort", short.class, Short.class);
+		getter("getByte", byte.class, Byte.class);
+		getter("getFloat", float.class, Float.class);
+		getter("getDouble", double.class, Double.class);
+		getter("getBoolean", boolean.class, Boolean.class);
+		getter("getString", String.class);
+		getter("getBigDecimal", BigDecimal.class);
+		getter("getTimestamp", Timestamp.class, java.util.Date.class);
+		getter("getDate", java.sql.Date.class);
+		getter("getTime", Time.class);
+		getter("getBytes", byte[].class);
+	}
+
+	private AsmBeanMapper() {
+	}
+
+	private static void getter(String name, Class<?>... types) {
+		try {
+			Method method = ResultSet.class.getMethod(name, int.class);
+			for (Class<?> type : types) {
+				GETTERS.put(type, method);
+			}
+		} catch (NoSuchMethodException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * 获取映射器, 没有就立即生成一个并缓存起来. 该方法是线程安全的.
+	 * 
+	 * @param bean 实体class
+	 * @param labels 结果集的列别名(按列的顺序)
+	 * @return 映射器
+	 */
+	public static BeanMapper getMapper(Class<?> bean, String[] labels) {
+		Map<String, BeanMapper> mappers = MAPPERS.computeIfAbsent(bean, k -> new ConcurrentHashMap<>());
+		return mappers.computeIfAbsent(String.join("\u0001", labels), k -> create(bean, labels));
+	}
+
+	/**
+	 * 供生成的映射器调用, 把没有类型化getter的值交给fastjson转换
+	 * 
+	 * @param value 列值
+	 * @param clazz 属性类型
+	 * @return 转换后的值
+	 */
+	public static Object cast(Object value, Class<?> clazz) { // NO_UCD (generated code)
+		return TypeUtils.cast(value, clazz, ParserConfig.getGlobalInstance());
+	}
+
+	private static BeanMapper create(Class<?> bean, String[] labels) {
+		List<Prop> props = match(bean, labels);
+		if (props == null) {
+			LOG.debug("{} 不适合生成映射器,采用fastjson转换", bean);
+			return rs -> {
+				JSONObject json = new JSONObject(labels.length);
+				for (int i = 0; i < labels.length; i++) {
+					json.put(labels[i], rs.getObject(i + 1));
+				}
+				return JSON.toJavaObject(json, bean);
+			};
+		}
+
+		String name = "org/fastquery/asm/BeanMapper$" + bean.getSimpleName() + "$" + SEQ.incrementAndGet();
+		byte[] bytes = generateBytes(name, bean, props);
+		try {
+			Class<?> clazz = new MapperLoader(bean.getClassLoader()).define(name.replace('/', '.'), bytes);
+			LOG.debug("为{}生成了映射器{}", bean, clazz.getName());
+			return (BeanMapper) clazz.getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			throw new RepositoryException("为" + bean + "生成映射器失败", e);
+		}
+	}
+
+	// 按列的顺序找出每一列对应的属性, 返回null表示该实体不适合生成映射器
+	private static List<Prop> match(Class<?> bean, String[] labels) {
+		Map<String, Prop> props = properties(bean);
+		if (props == null) {
+			return null;
+		}
+		Map<String, Prop> loose = new HashMap<>();
+		props.forEach((k, v) -> loose.putIfAbsent(normalize(k), v));
+
+		List<Prop> matched = new ArrayList<>(labels.length);
+		for (int i = 0; i < labels.length; i++) {
+			Prop prop = props.get(labels[i]);
+			if (prop == null) {
+				prop = loose.get(normalize(labels[i]));
+			}
+			if (prop != null) {
+				matched.add(new Prop(prop, i + 1));
+			}
+		}
+		return matched;
+	}
+
+	// 属性名称 -> 属性
+	private static Map<String, Prop> properties(Class<?> bean) {
+		if (!Modifier.isPublic(bean.getModifiers()) || Modifier.isAbstract(bean.getModifiers()) || !TypeUtil.hasDefaultConstructor(bean)) {
+			return null;
+		}
+		for (Class<?> c = bean; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (field.getAnnotation(JSONField.class) != null) {
+					return null;
+				}
+			}
+		}
+
+		Map<String, Prop> props = new LinkedHashMap<>();
+		for (Method method : bean.getMethods()) {
+			String name = method.getName();
+			if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getParameterCount() != 1 || name.length() < 4
+					|| !name.startsWith("set")) {
+				continue;
+			}
+			Class<?> type = method.getParameterTypes()[0];
+			String prop = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+			if (method.getAnnotation(JSONField.class) != null || props.containsKey(prop) || (type.isPrimitive() && !GETTERS.containsKey(type))) {
+				return null; // 重载的setter,char等情况,交给fastjson
+			}
+			props.put(prop, new Prop(method, null, type));
+		}
+		for (Field field : bean.getFields()) { // 没有setter的public字段
+			int mod = field.getModifiers();
+			Class<?> type = field.getType();
+			if (Modifier.isStatic(mod) || Modifier.isFinal(mod) || props.containsKey(field.getName())) {
+				continue;
+			}
+			if (type.isPrimitive() && !GETTERS.containsKey(type)) {
+				return null;
+			}
+			props.put(field.getName(), new Prop(null, field, type));
+		}
+		return props;
+	}
+
+	private static String normalize(String name) {
+		return name.replace("_", "").replace("-", "").toLowerCase(Locale.ENGLISH);
+	}
+
+	private static byte[] generateBytes(String name, Class<?> bean, List<Prop> props) {
+		String beanName = Type.getInternalName(bean);
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		cw.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, name, null, "java/lang/Object", new String[] { MAPPER_NAME });
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		// 局部变量: 0 this, 1 rs, 2 bean, 3 包装类型的临时值
+		mv = cw.visitMethod(ACC_PUBLIC, "map", "(Ljava/sql/ResultSet;)Ljava/lang/Object;", null, new String[] { "java/sql/SQLException" });
+		mv.visitCode();
+		mv.visitTypeInsn(NEW, beanName);
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKESPECIAL, beanName, "<init>", "()V", false);
+		mv.visitVarInsn(ASTORE, 2);
+
+		for (Prop prop : props) {
+			Method getter = GETTERS.get(prop.type);
+			if (getter == null) { // 其它类型交给fastjson转换
+				mv.visitVarInsn(ALOAD, 2);
+				getObject(mv, prop.column);
+				mv.visitLdcInsn(Type.getType(prop.type));
+				mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(AsmBeanMapper.class), "cast", "(Ljava/lang/Object;Ljava/lang/Class;)Ljava/lang/Object;",
+						false);
+				mv.visitTypeInsn(CHECKCAST, Type.getInternalName(prop.type));
+				set(mv, beanName, prop);
+			} else if (getter.getReturnType().isPrimitive() && !prop.type.isPrimitive()) { // 包装类型, 为null时不赋值
+				Type primitive = Type.getType(getter.getReturnType());
+				get(mv, getter, prop.column);
+				mv.visitVarInsn(primitive.getOpcode(ISTORE), 3);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, "wasNull", "()Z", true);
+				Label skip = new Label();
+				mv.visitJumpInsn(IFNE, skip);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(primitive.getOpcode(ILOAD), 3);
+				String wrapper = Type.getInternalName(prop.type);
+				mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + primitive.getDescriptor() + ")L" + wrapper + ";", false);
+				set(mv, beanName, prop);
+				mv.visitLabel(skip);
+			} else { // 基本类型, String, BigDecimal, 时间, byte[]
+				mv.visitVarInsn(ALOAD, 2);
+				get(mv, getter, prop.column);
+				set(mv, beanName, prop);
+			}
+		}
+
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	// rs.getXxx(column)
+	private static void get(MethodVisitor mv, Method getter, int column) {
+		mv.visitVarInsn(ALOAD, 1);
+		pushInt(mv, column);
+		mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, getter.getName(), Type.getMethodDescriptor(getter), true);
+	}
+
+	// rs.getObject(column)
+	private static void getObject(MethodVisitor mv, int column) {
+		mv.visitVarInsn(ALOAD, 1);
+		pushInt(mv, column);
+		mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, "getObject", "(I)Ljava/lang/Object;", true);
+	}
+
+	// 栈顶: bean, value
+	private static void set(MethodVisitor mv, String beanName, Prop prop) {
+		if (prop.setter != null) {
+			Method setter = prop.setter;
+			mv.visitMethodInsn(INVOKEVIRTUAL, beanName, setter.getName(), Type.getMethodDescriptor(setter), false);
+			Class<?> r = setter.getReturnType();
+			if (r == long.class || r == double.class) {
+				mv.visitInsn(POP2);
+			} else if (r != void.class) { // 链式setter
+				mv.visitInsn(POP);
+			}
+		} else {
+			mv.visitFieldInsn(PUTFIELD, beanName, prop.field.getName(), Type.getDescriptor(prop.type));
+		}
+	}
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	// 属性: 通过setter或public字段赋值
+	private static final class Prop {
+		private final Method setter;
+		private final Field field;
+		private final Class<?> type;
+		private final int column; // 对应的列,从1开始
+
+		private Prop(Method setter, Field field, Class<?> type) {
+			this.setter = setter;
+			this.field = field;
+			this.type = type;
+			this.column = 0;
+		}
+
+		private Prop(Prop prop, int column) {
+			this.setter = prop.setter;
+			this.field = prop.field;
+			this.type = prop.type;
+			this.column = column;
+		}
+	}
+
+	// 先从FastQuery所在的ClassLoader里找, 再从实体所在的ClassLoader里找
+	private static final class MapperLoader extends ClassLoader {
+		private final ClassLoader beanLoader;
+
+		private MapperLoader(ClassLoader beanLoader) {
+			super(AsmBeanMapper.class.getClassLoader());
+			this.beanLoader = beanLoader;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			if (beanLoader == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return beanLoader.loadClass(name);
+		}
+
+		private Class<?> define(String name, byte[] b) {
+			return defineClass(name, b, 0, b.length);
+		}
+	}
+}
@@ -25,10 +25,12 @@ package org.fastquery.asm;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.fastquery.core.MethodPlan;
 import org.fastquery.core.Placeholder;
 import org.fastquery.core.Prepared;
 import org.fastquery.core.Repository;
@@ -49,6 +51,10 @@ public class AsmRepository implements Opcodes {
 
 	private static final Logger LOG = LoggerFactory.getLogger(AsmRepository.class);
 
+	// 持有执行计划的静态常量的名称前缀
+	private static final String PLAN_FIELD = "plan";
+	private static final String PLAN_DESCRIPTOR = Type.getDescriptor(MethodPlan.class);
+
 	private AsmRepository() {
 	}
 
@@ -71,9 +77,9 @@ public class AsmRepository implements Opcodes {
 		// 给待生成的实现类取个名字
 		String proxyName = internalName + Placeholder.DB_SUF;
 
-		// 生成类
-		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-		cw.visit(V1_1, ACC_PUBLIC, proxyName, null, "java/lang/Object", interfaces);
+		// 生成类(COMPUTE_FRAMES: 由asm计算出栈图帧)
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, proxyName, null, "java/lang/Object", interfaces);
 
 		// 单例
 		String repositoryDescriptor = Type.getDescriptor(repositoryClazz);
@@ -102,7 +108,6 @@ public class AsmRepository implements Opcodes {
 		mv.visitMethodInsn(INVOKESPECIAL, proxyName, "<init>", "()V", false);
 		mv.visitFieldInsn(PUTSTATIC, proxyName, "instance", repositoryDescriptor);
 		mv.visitLabel(l0);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
 		mv.visitFieldInsn(GETSTATIC, proxyName, "instance", repositoryDescriptor);
 		mv.visitInsn(ARETURN);
 		mv.visitMaxs(2, 0);
@@ -110,12 +115,39 @@ public class AsmRepository implements Opcodes {
 		// 单例 End
 
 		// 根据接口clazz 生成实现的方法
-		Method[] methods = repositoryClazz.getMethods();
-		for (Method method : methods) {
+		List<Method> abstractMethods = new ArrayList<>();
+		for (Method method : repositoryClazz.getMethods()) {
 			if (Modifier.isAbstract(method.getModifiers())) { // 只针对 abstract 方法
-				cw = generateMethod(cw, method, Prepared.class);
+				abstractMethods.add(method);
 			}
 		}
+		int size = abstractMethods.size();
+		for (int i = 0; i < size; i++) {
+			Method method = abstractMethods.get(i);
+			// 构建方法的执行计划
+			MethodPlan.register(repositoryClazz, method);
+			// 每个方法对应一个静态常量,用于持有它的执行计划
+			fv = cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, PLAN_FIELD + i, PLAN_DESCRIPTOR, null, null);
+			fv.visitEnd();
+			cw = generateMethod(cw, method, proxyName, PLAN_FIELD + i);
+		}
+
+		// 生成静态初始化块, 在类初始化时取出每个方法的执行计划
+		mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+		mv.visitCode();
+		for (int i = 0; i < size; i++) {
+			Method method = abstractMethods.get(i);
+			mv.visitLdcInsn(Type.getType(repositoryClazz));
+			mv.visitLdcInsn(method.getName());
+			mv.visitLdcInsn(Type.getMethodDescriptor(method));
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodPlan.class), "get",
+					"(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/String;)" + PLAN_DESCRIPTOR, false);
+			mv.visitFieldInsn(PUTSTATIC, proxyName, PLAN_FIELD + i, PLAN_DESCRIPTOR);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(3, 0);
+		mv.visitEnd();
+
 		cw.visitEnd();
 
 		return cw.toByteArray();
@@ -126,28 +158,27 @@ public class AsmRepository implements Opcodes {
 	 * 
 	 * @param cw
 	 * @param method
-	 * @param exceptions
-	 * @param interfaceClazz
+	 * @param proxyName 待生成类的名称
+	 * @param planField 持有该方法执行计划的静态常量
 	 */
-	private static ClassWriter generateMethod(ClassWriter cw, java.lang.reflect.Method method, Class<Prepared> prepared) {
+	private static ClassWriter generateMethod(ClassWriter cw, java.lang.reflect.Method method, String proxyName, String planField) {
 
 		org.objectweb.asm.commons.Method m = new org.objectweb.asm.commons.Method(method.getName(), Type.getMethodDescriptor(method));
 		GeneratorAdapter mv = new GeneratorAdapter(ACC_PUBLIC, m, null, null, cw);
 
-		mv.visitLdcInsn(method.getName()); // excute的第1参数
-		mv.visitLdcInsn(Type.getType(method).getDescriptor()); // excute的第2参数
+		mv.visitFieldInsn(GETSTATIC, proxyName, planField, PLAN_DESCRIPTOR); // excute的第1参数
 
-		// excute的第3参数(是可变参数)
+		// excute的第2参数(是可变参数)
 		Parameter[] parameters = method.getParameters();
 		setIn(mv, parameters);
 
-		// excute的第4个参数
+		// excute的第3个参数
 		mv.visitVarInsn(ALOAD, 0);
 
 		// 调用Prepared中的excute方法
 		// INVOKESTATIC
-		mv.visitMethodInsn(INVOKESTATIC, Type.getType(prepared).getInternalName(), "excute",
-				"(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;Lorg/fastquery/core/Repository;)Ljava/lang/Object;", false);
+		mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(Prepared.class), "excute",
+				"(" + PLAN_DESCRIPTOR + "[Ljava/lang/Object;Lorg/fastquery/core/Repository;)Ljava/lang/Object;", false);
 
 		// 返回值处理
 		String internalName = Type.getInternalName(method.getReturnType());
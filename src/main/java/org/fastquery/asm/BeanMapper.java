@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.asm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 把 ResultSet 的当前行转换成实体. 实现类由 AsmBeanMapper 针对(实体,列布局)生成.
+ * 
+ * @author xixifeng (fastquery@126.com)
+ */
+@FunctionalInterface
+public interface BeanMapper {
+
+	/**
+	 * 转换当前行, 不移动游标
+	 * 
+	 * @param rs 结果集
+	 * @return 实体
+	 * @throws SQLException SQL异常
+	 */
+	Object map(ResultSet rs) throws SQLException;
+}
@@ -42,6 +42,7 @@ import org.fastquery.filter.generate.query.NotAllowedRepeat;
 import org.fastquery.filter.generate.query.PageFilter;
 import org.fastquery.filter.generate.query.ParameterFilter;
 import org.fastquery.filter.generate.query.QueryReturnTypeFilter;
+import org.fastquery.filter.generate.query.RowHandlerFilter;
 import org.fastquery.filter.generate.query.SQLFilter;
 import org.fastquery.filter.generate.querya.ConditionParameterFilter;
 import org.fastquery.filter.generate.querya.MarkFilter;
@@ -132,6 +133,7 @@ class GenerateExtends {
 
 				// filter/modifying
 				if (modifying != null && querys.length > 0) {
+					queryFilterChain.addFilter(new RowHandlerFilter());
 					queryFilterChain.addFilter(new AnnotationSynxFilter());
 					queryFilterChain.addFilter(new ArgsFilter());
 					queryFilterChain.addFilter(new ModifyingReturnTypeFilter());
@@ -140,6 +142,7 @@ class GenerateExtends {
 				// filter/query
 				if (querys.length > 0 && modifying == null) {
 					queryFilterChain.addFilter(new QueryReturnTypeFilter());
+					queryFilterChain.addFilter(new RowHandlerFilter());
 					queryFilterChain.addFilter(new ParameterFilter());
 					queryFilterChain.addFilter(new NotAllowedRepeat());
 					queryFilterChain.addFilter(new PageFilter());
@@ -147,10 +150,11 @@ class GenerateExtends {
 
 				// filter/mqueryn
 				if (modifying != null && queryByNamed != null) {
-
+					queryFilterChain.addFilter(new RowHandlerFilter());
 				}
 				// filter/queryn
 				if (queryByNamed != null && modifying == null) {
+					queryFilterChain.addFilter(new RowHandlerFilter());
 					queryFilterChain.addFilter(new TplPageFilter());
 					queryFilterChain.addFilter(new QueriesFileFilter());
 				}
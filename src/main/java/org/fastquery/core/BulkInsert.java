@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+/**
+ * 分块批量插入的选项. 实体集被流式地切分成若干块, 每块用一条多行insert语句执行, 行数相同的块复用同一个预编译语句. <br>
+ * 每块的行数和估算字节数达到任意一个上限就结束这一块; 上限不设置(即为0)时, 取 fastquery.json 中的 insertChunkRows, insertChunkBytes. <br>
+ * 选项在执行时只读, 可以在多个线程之间共享; 自增主键由每次调用自己传入的集合收集, 见 {@link QueryRepository#save(BulkInsert, java.util.Iterator, java.util.List)}.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class BulkInsert {
+
+	private boolean ignoreRepeat;
+	private int chunkRows;
+	private int chunkBytes;
+	private boolean commitPerChunk;
+
+	public BulkInsert() {
+	}
+
+	/**
+	 * 构造批量插入的选项
+	 * 
+	 * @param chunkRows 每块最多多少行,0表示取全局配置
+	 * @param commitPerChunk true:每块提交一次; false:全部插入之后提交一次
+	 */
+	public BulkInsert(int chunkRows, boolean commitPerChunk) {
+		this.chunkRows = chunkRows;
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	public boolean isIgnoreRepeat() {
+		return ignoreRepeat;
+	}
+
+	/**
+	 * 
+	 * @param ignoreRepeat 是否忽略已经存在的唯一key(有可能是多个字段构成的唯一key)记录
+	 */
+	public void setIgnoreRepeat(boolean ignoreRepeat) {
+		this.ignoreRepeat = ignoreRepeat;
+	}
+
+	public int getChunkRows() {
+		return chunkRows;
+	}
+
+	public void setChunkRows(int chunkRows) {
+		this.chunkRows = chunkRows;
+	}
+
+	public int getChunkBytes() {
+		return chunkBytes;
+	}
+
+	/**
+	 * 
+	 * @param chunkBytes 每块(SQL文本+参数值)的估算字节数上限, 应小于数据库的 max_allowed_packet
+	 */
+	public void setChunkBytes(int chunkBytes) {
+		this.chunkBytes = chunkBytes;
+	}
+
+	public boolean isCommitPerChunk() {
+		return commitPerChunk;
+	}
+
+	/**
+	 * 
+	 * @param commitPerChunk true:每块提交一次,出错时只回滚当前块; false:全部插入之后提交一次
+	 */
+	public void setCommitPerChunk(boolean commitPerChunk) {
+		this.commitPerChunk = commitPerChunk;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 流式查询的游标, 对应一个打开着的ResultSet, 每次只从数据库读取一行并转换成元素. <br>
+ * 游标独占一个连接, 当数据读取完毕或调用close()时, 才释放ResultSet,Statement以及连接. 没有读完就不再使用时,务必调用close(),建议用try-with-resources. <br>
+ * 可能提前结束遍历时, 方法的返回值宜声明为 Cursor&lt;T&gt; 或 Stream&lt;T&gt;; 声明为 Iterator&lt;T&gt;,Iterable&lt;T&gt; 时, 需强转为 AutoCloseable 再关闭. <br>
+ * 注意: 游标不是线程安全的.
+ * 
+ * @param <T> 元素类型
+ * @author xixifeng (fastquery@126.com)
+ */
+public final class Cursor<T> implements Iterator<T>, Iterable<T>, AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Cursor.class);
+
+	private final Connection conn; // 游标独占的连接,为null表示连接仍由QueryContext管理(调试模式)
+	private final Statement stat;
+	private final ResultSet rs;
+	private final RowReader rowReader;
+
+	private boolean fetched; // 是否已经预读了下一行
+	private boolean hasRow; // 预读的结果
+	private boolean closed;
+
+	/**
+	 * 把 ResultSet 的当前行读成元素
+	 */
+	@FunctionalInterface
+	interface RowReader {
+		Object read(ResultSet rs) throws SQLException;
+	}
+
+	Cursor(Connection conn, Statement stat, ResultSet rs, RowReader rowReader) {
+		this.conn = conn;
+		this.stat = stat;
+		this.rs = rs;
+		this.rowReader = rowReader;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			return false;
+		}
+		if (!fetched) {
+			try {
+				hasRow = rs.next();
+			} catch (SQLException e) {
+				close();
+				throw new RepositoryException(e.getMessage(), e);
+			}
+			fetched = true;
+			if (!hasRow) { // 读完了,立即释放
+				close();
+			}
+		}
+		return hasRow;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		try {
+			return (T) rowReader.read(rs);
+		} catch (SQLException e) {
+			close();
+			throw new RepositoryException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 游标只能遍历一次, 因此返回的是它自身
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * 将游标包装成Stream, 关闭Stream即关闭游标
+	 * 
+	 * @return 顺序流
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+				.onClose(this::close);
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			rs.close();
+		} catch (SQLException e) {
+			LOG.error(e.getMessage(), e);
+		}
+		try {
+			stat.close();
+		} catch (SQLException e) {
+			LOG.error(e.getMessage(), e);
+		}
+		if (conn != null) {
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				LOG.error("数据库连接无法释放", e);
+			}
+		}
+		LOG.info("游标已关闭");
+	}
+}
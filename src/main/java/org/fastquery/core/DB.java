@@ -22,9 +22,8 @@
 
 package org.fastquery.core;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -32,20 +31,22 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
-import java.util.stream.Stream;
-import java.util.stream.Stream.Builder;
+import java.util.stream.IntStream;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
+import org.fastquery.asm.AsmBeanMapper;
+import org.fastquery.asm.BeanMapper;
 import org.fastquery.struct.RespUpdate;
+import org.fastquery.struct.RowMap;
 import org.fastquery.struct.SQLValue;
 import org.fastquery.util.BeanUtil;
-import org.fastquery.where.I18n;
+import org.fastquery.util.FastQueryJSONObject;
+import org.fastquery.util.SQLScriptReader;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
@@ -59,6 +60,9 @@ public class DB {
 
 	private static final Logger LOG = LoggerFactory.getLogger(DB.class);
 
+	// MySQL 一条预编译语句最多的参数个数
+	private static final int MAX_PARAMETERS = 65535;
+
 	private DB() {
 	}
 
@@ -73,7 +77,7 @@ public class DB {
 		try {
 			QueryContext.addSqls(sql);
 			info(sql, objs);
-			stat = conn.prepareStatement(sql);
+			stat = prepare(conn, sql, false);
 			// 设置sql参数值
 			int lenTmp = objs.size(); // objs 源头上已经控制禁止为null
 			for (int i = 0; i < lenTmp; i++) {
@@ -81,8 +85,7 @@ public class DB {
 			}
 			// 设置sql参数值 End
 			rs = stat.executeQuery();
-			keyvals = rs2Map(rs, QueryContext.getMethod());
-			stat.close();
+			keyvals = rs2Map(rs, QueryContext.getPlan());
 		} catch (Exception e) {
 			throw new RepositoryException(e.getMessage(), e);
 		} finally {
@@ -92,6 +95,109 @@ public class DB {
 		return keyvals;
 	}
 
+	/**
+	 * 查询并把每一行直接映射成实体, 不经过中间的Map
+	 * 
+	 * @param sqlValue 待执行的SQL
+	 * @param bean 实体class
+	 * @param <B> 实体类型
+	 * @return 实体集,rs没有结果则返回空对象(该方法永不返回null)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <B> List<B> find(SQLValue sqlValue, Class<B> bean) {
+		String sql = sqlValue.getSql();
+		List<Object> objs = sqlValue.getValues();
+		Connection conn = QueryContext.getConnection();
+		PreparedStatement stat = null;
+		ResultSet rs = null;
+		try {
+			QueryContext.addSqls(sql);
+			info(sql, objs);
+			stat = prepare(conn, sql, false);
+			int lenTmp = objs.size();
+			for (int i = 0; i < lenTmp; i++) {
+				stat.setObject(i + 1, objs.get(i));
+			}
+			rs = stat.executeQuery();
+			BeanMapper mapper = AsmBeanMapper.getMapper(bean, labels(rs.getMetaData()));
+			List<B> beans = new ArrayList<>();
+			while (rs.next()) {
+				beans.add((B) mapper.map(rs));
+			}
+			return beans;
+		} catch (Exception e) {
+			throw new RepositoryException(e.getMessage(), e);
+		} finally {
+			close(rs, stat);
+		}
+	}
+
+	/**
+	 * 打开一个流式查询游标. 游标成功打开之后,当前连接便从 QueryContext 中分离出来,交由游标负责释放.
+	 * 
+	 * @param sqlValue 待执行的SQL
+	 * @param plan 当前方法的执行计划
+	 * @param <T> 元素类型
+	 * @return 游标
+	 */
+	static <T> Cursor<T> cursor(SQLValue sqlValue, MethodPlan plan) {
+		return open(sqlValue, plan, true);
+	}
+
+	/**
+	 * 逐行读取查询结果, 每读取一行就转换成元素交给行回调处理, 处理完即丢弃, 不收集结果集.
+	 * 
+	 * @param sqlValue 待执行的SQL
+	 * @param plan 当前方法的执行计划
+	 * @param rowHandler 行回调
+	 */
+	static void each(SQLValue sqlValue, MethodPlan plan, RowHandler<Object> rowHandler) {
+		try (Cursor<Object> cursor = open(sqlValue, plan, false)) { // 连接仍由QueryContext管理
+			QueryContext.setRowHandling(true);
+			while (cursor.hasNext()) {
+				rowHandler.handle(cursor.next());
+			}
+		} finally {
+			QueryContext.setRowHandling(false);
+		}
+	}
+
+	private static <T> Cursor<T> open(SQLValue sqlValue, MethodPlan plan, boolean detach) {
+		String sql = sqlValue.getSql();
+		List<Object> objs = sqlValue.getValues();
+		Connection conn = QueryContext.getConnection();
+		PreparedStatement stat = null;
+		ResultSet rs = null;
+		try {
+			QueryContext.addSqls(sql);
+			info(sql, objs);
+			stat = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			stat.setFetchSize(FastQueryJSONObject.getFetchSize());
+			int lenTmp = objs.size();
+			for (int i = 0; i < lenTmp; i++) {
+				stat.setObject(i + 1, objs.get(i));
+			}
+			rs = stat.executeQuery();
+			Cursor.RowReader rowReader = rowReader(plan, labels(rs.getMetaData()));
+			return new Cursor<>(detach ? QueryContext.detachConnection() : null, stat, rs, rowReader);
+		} catch (Exception e) {
+			close(rs, stat);
+			throw new RepositoryException(e.getMessage(), e);
+		}
+	}
+
+	// 实体直接由映射器转换, 其它类型先读成Map再交给行转换策略
+	private static Cursor.RowReader rowReader(MethodPlan plan, String[] labels) {
+		Class<?> bean = plan.getBeanType();
+		if (bean != null) {
+			return AsmBeanMapper.getMapper(bean, labels)::map;
+		}
+		RowMap.Schema schema = new RowMap.Schema(labels);
+		boolean[] i18ns = i18ns(schema, plan.getI18nFields());
+		MethodPlan.RowMapper rowMapper = plan.getRowMapper();
+		return rs -> rowMapper.map(row(rs, schema, i18ns));
+	}
+
 	/**
 	 * 
 	 * @param sqlValues 待执行的SQL集
@@ -117,57 +223,118 @@ public class DB {
 		return rus;
 	}
 
+	// 相邻且SQL文本相同的SQLValue合并成一个批次执行, 只需一次网络往返
 	private static List<RespUpdate> modify(List<SQLValue> sqlValues, boolean hasPK, Connection conn) throws SQLException {
-		List<RespUpdate> rus = new ArrayList<>();
-		for (SQLValue sqlValue : sqlValues) {
-			ResultSet rs = null;
-			PreparedStatement stat = null;
-			RespUpdate ru = new RespUpdate();
-			try {
-				String sql = sqlValue.getSql();
+		List<RespUpdate> rus = new ArrayList<>(sqlValues.size());
+		int size = sqlValues.size();
+		int from = 0;
+		while (from < size) {
+			String sql = sqlValues.get(from).getSql();
+			int to = from + 1;
+			while (to < size && sql.equals(sqlValues.get(to).getSql())) {
+				to++;
+			}
+			if (to - from == 1) {
+				rus.add(modify(sqlValues.get(from), hasPK, conn));
+			} else {
+				rus.addAll(batch(sqlValues.subList(from, to), hasPK, conn));
+			}
+			from = to;
+		}
+		return rus;
+	}
+
+	private static RespUpdate modify(SQLValue sqlValue, boolean hasPK, Connection conn) throws SQLException {
+		ResultSet rs = null;
+		PreparedStatement stat = null;
+		RespUpdate ru = new RespUpdate();
+		try {
+			String sql = sqlValue.getSql();
+			QueryContext.addSqls(sql);
+			info(sql, sqlValue.getValues());
+			stat = prepare(conn, sql, hasPK);
+			setValues(stat, sqlValue.getValues());
+
+			ru.setEffect(stat.executeUpdate());
+
+			if (hasPK) {
+				rs = stat.getGeneratedKeys();
+				if (rs.next()) {
+					ru.setPk(rs.getLong(1));
+				}
+			}
+		} catch (SQLException e) {
+			throw new SQLException(e);
+		} finally {
+			close(rs, stat);
+		}
+		return ru;
+	}
+
+	/**
+	 * 批量执行SQL文本相同的多个SQLValue, 每个SQLValue依然对应一个RespUpdate
+	 * 
+	 * @param sqlValues SQL文本相同的SQLValue集
+	 * @param hasPK 是否需要返回主健
+	 * @param conn 连接
+	 * @return 改操作响应数据,与sqlValues一一对应
+	 * @throws SQLException SQL异常
+	 */
+	private static List<RespUpdate> batch(List<SQLValue> sqlValues, boolean hasPK, Connection conn) throws SQLException {
+		ResultSet rs = null;
+		PreparedStatement stat = null;
+		List<RespUpdate> rus = new ArrayList<>(sqlValues.size());
+		try {
+			String sql = sqlValues.get(0).getSql();
+			stat = prepare(conn, sql, hasPK);
+			for (SQLValue sqlValue : sqlValues) {
 				QueryContext.addSqls(sql);
 				info(sql, sqlValue.getValues());
-				if (hasPK) {
-					stat = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-				} else {
-					stat = conn.prepareStatement(sql);
-				}
-				List<Object> values = sqlValue.getValues();
-				int len = values.size();
-				for (int i = 0; i < len; i++) {
-					// 设置sql参数值
-					stat.setObject(i + 1, values.get(i));
-				}
+				setValues(stat, sqlValue.getValues());
+				stat.addBatch();
+			}
 
-				ru.setEffect(stat.executeUpdate());
+			int[] effects = stat.executeBatch();
+			stat.clearBatch();
+			for (int effect : effects) {
+				RespUpdate ru = new RespUpdate();
+				// 驱动改写了批次(如:url中开启了rewriteBatchedStatements)时,可能无法给出每条语句的影响行数, 语句执行成功了, 记为1
+				ru.setEffect(effect == Statement.SUCCESS_NO_INFO ? 1 : effect);
+				rus.add(ru);
+			}
 
-				if (hasPK) {
-					rs = stat.getGeneratedKeys();
-					if (rs.next()) {
-						ru.setPk(rs.getLong(1));
-					}
+			if (hasPK) {
+				// 主键按执行顺序返回
+				rs = stat.getGeneratedKeys();
+				for (int i = 0; i < rus.size() && rs.next(); i++) {
+					rus.get(i).setPk(rs.getLong(1));
 				}
-				stat.close();
-			} catch (SQLException e) {
-				throw new SQLException(e);
-			} finally {
-				close(rs, stat);
 			}
-
-			rus.add(ru);
+		} catch (SQLException e) {
+			throw new SQLException(e);
+		} finally {
+			close(rs, stat);
 		}
-
 		return rus;
 	}
 
+	// 设置sql参数值
+	private static void setValues(PreparedStatement stat, List<Object> values) throws SQLException {
+		int len = values.size();
+		for (int i = 0; i < len; i++) {
+			stat.setObject(i + 1, values.get(i));
+		}
+	}
+
 	/**
 	 * 改操作,若:isEffect=true,返回影响行数;若:isEffect=false,返回主键值.
 	 * 
-	 * @param sql 语句
+	 * @param sqlValue 语句及其参数值
 	 * @param isEffect 是否返回影响行数
 	 * @return 影响行数 或 主键值
 	 */
-	static Object update(String sql, boolean isEffect) {
+	static Object update(SQLValue sqlValue, boolean isEffect) {
+		String sql = sqlValue.getSql();
 		Connection conn = null;
 		PreparedStatement stat = null;
 		ResultSet rs = null;
@@ -175,12 +342,10 @@ public class DB {
 		try {
 			conn = QueryContext.getConnection();
 			QueryContext.addSqls(sql);
+			info(sql, sqlValue.getValues());
 			QueryContext.setAutoCommit(false);
-			if (isEffect) {
-				stat = conn.prepareStatement(sql); // 不需要返回主键
-			} else {
-				stat = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			}
+			stat = prepare(conn, sql, !isEffect); // isEffect为true时不需要返回主键
+			setValues(stat, sqlValue.getValues());
 			int e = stat.executeUpdate();
 			if (isEffect) {
 				QueryContext.commit();
@@ -208,6 +373,115 @@ public class DB {
 		}
 	}
 
+	/**
+	 * 分块批量插入. 流式地读取实体, 行数或估算字节数达到上限就执行一块, 行数相同的块复用同一个预编译语句.
+	 * 
+	 * @param entities 实体集(流式读取),插入哪些字段以第一个实体为准
+	 * @param dbName 数据库名称,可以为null
+	 * @param option 分块选项
+	 * @param generatedKeys 收集自增主键的集合, 为null表示不收集
+	 * @return 影响行数总和
+	 */
+	static int bulkInsert(Iterator<?> entities, String dbName, BulkInsert option, List<Long> generatedKeys) {
+		if (entities == null || !entities.hasNext()) {
+			return 0;
+		}
+		int chunkRows = option.getChunkRows() > 0 ? option.getChunkRows() : FastQueryJSONObject.getInsertChunkRows();
+		int chunkBytes = option.getChunkBytes() > 0 ? option.getChunkBytes() : FastQueryJSONObject.getInsertChunkBytes();
+
+		Connection conn = QueryContext.getConnection();
+		Map<Integer, PreparedStatement> stats = new HashMap<>(); // 行数 -> 预编译语句
+		int effect = 0;
+		try {
+			QueryContext.setAutoCommit(false);
+			Object first = requireEntity(entities.next());
+			BeanUtil.InsertTemplate template = BeanUtil.toInsertTemplate(first, dbName, option.isIgnoreRepeat());
+			// 一条预编译语句最多 MAX_PARAMETERS 个参数, 字段多的实体每块的行数要相应减少
+			chunkRows = Math.min(chunkRows, Math.max(1, MAX_PARAMETERS / Math.max(1, template.rowParameters())));
+			List<Object> values = new ArrayList<>();
+			template.addValues(first, values);
+			int rows = 1;
+			int bytes = template.rowLength() + bytes(values, 0);
+			while (entities.hasNext()) {
+				int from = values.size();
+				template.addValues(requireEntity(entities.next()), values);
+				int rowBytes = template.rowLength() + bytes(values, from);
+				if (rows == chunkRows || bytes + rowBytes > chunkBytes) { // 再加上这一行就超出上限了,先执行之前的行
+					List<Object> chunk = new ArrayList<>(values.subList(0, from));
+					effect += insertChunk(conn, stats, template, rows, chunk, option, generatedKeys);
+					values.subList(0, from).clear();
+					rows = 0;
+					bytes = 0;
+				}
+				rows++;
+				bytes += rowBytes;
+			}
+			effect += insertChunk(conn, stats, template, rows, values, option, generatedKeys);
+			if (!option.isCommitPerChunk()) {
+				QueryContext.commit();
+			}
+			return effect;
+		} catch (Exception e) {
+			try {
+				QueryContext.rollback();
+			} catch (SQLException e1) {
+				throw new RepositoryException(e1.getMessage(), e1);
+			}
+			throw e instanceof RepositoryException ? (RepositoryException) e : new RepositoryException(e.getMessage(), e);
+		} finally {
+			stats.values().forEach(stat -> close(null, stat));
+		}
+	}
+
+	private static int insertChunk(Connection conn, Map<Integer, PreparedStatement> stats, BeanUtil.InsertTemplate template, int rows,
+			List<Object> values, BulkInsert option, List<Long> generatedKeys) throws SQLException {
+		PreparedStatement stat = stats.get(rows);
+		String sql = template.toSQL(rows);
+		if (stat == null) {
+			stat = generatedKeys != null ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+			stats.put(rows, stat);
+		}
+		QueryContext.addSqls(sql);
+		info(sql, values);
+		setValues(stat, values);
+		int effect = stat.executeUpdate();
+		if (generatedKeys != null) {
+			try (ResultSet rs = stat.getGeneratedKeys()) {
+				while (rs.next()) {
+					generatedKeys.add(rs.getLong(1));
+				}
+			}
+		}
+		if (option.isCommitPerChunk()) {
+			QueryContext.commit();
+		}
+		return effect;
+	}
+
+	private static Object requireEntity(Object entity) {
+		if (entity == null) {
+			throw new RepositoryException("批量插入的实体集中不能包含null");
+		}
+		return entity;
+	}
+
+	// 估算values中从第from个开始的参数值的字节数
+	private static int bytes(List<Object> values, int from) {
+		int bytes = 0;
+		int len = values.size();
+		for (int i = from; i < len; i++) {
+			Object val = values.get(i);
+			if (val instanceof CharSequence) {
+				bytes += ((CharSequence) val).length() * 3; // 按utf8最坏的情况算
+			} else if (val instanceof byte[]) {
+				bytes += ((byte[]) val).length;
+			} else {
+				bytes += 8;
+			}
+		}
+		return bytes;
+	}
+
 	static int update(Object bean, String dbName, String where) {
 		int effect = 0;
 		Connection conn = null;
@@ -227,7 +501,7 @@ public class DB {
 			QueryContext.setAutoCommit(false);
 			QueryContext.addSqls(sql);
 			info(sql, args);
-			stat = conn.prepareStatement(sql);
+			stat = prepare(conn, sql, false);
 			for (int i = 1; i <= count; i++) {
 				stat.setObject(i, args.get(i - 1));
 			}
@@ -249,22 +523,22 @@ public class DB {
 	}
 
 	// 查询一条数据然后转换成一个实体
-	static Object select(String sql, Object bean) {
+	static Object select(SQLValue sqlValue, Object bean) {
 		Class<?> cls = (bean instanceof Class) ? (Class<?>) bean : bean.getClass();
-		Connection conn = null;
-		Statement stat = null;
+		String sql = sqlValue.getSql();
+		PreparedStatement stat = null;
 		ResultSet rs = null;
 		try {
-			conn = QueryContext.getConnection();
-			stat = conn.createStatement();
-			LOG.info(sql);
+			Connection conn = QueryContext.getConnection();
 			QueryContext.addSqls(sql);
-			rs = stat.executeQuery(sql);
-			List<Map<String, Object>> maps = rs2Map(rs, null);
-			if (maps.isEmpty()) {
+			info(sql, sqlValue.getValues());
+			stat = prepare(conn, sql, false);
+			setValues(stat, sqlValue.getValues());
+			rs = stat.executeQuery();
+			if (!rs.next()) {
 				return null;
 			}
-			return JSON.toJavaObject(new JSONObject(maps.get(0)), cls);
+			return AsmBeanMapper.getMapper(cls, labels(rs.getMetaData())).map(rs);
 		} catch (Exception e) {
 			throw new RepositoryException(e);
 		} finally {
@@ -272,15 +546,17 @@ public class DB {
 		}
 	}
 
-	static boolean exists(String sql) {
-		Connection conn = null;
-		Statement stat = null;
+	static boolean exists(SQLValue sqlValue) {
+		String sql = sqlValue.getSql();
+		PreparedStatement stat = null;
 		ResultSet rs = null;
 		try {
-			conn = QueryContext.getConnection();
-			stat = conn.createStatement();
+			Connection conn = QueryContext.getConnection();
 			QueryContext.addSqls(sql);
-			rs = stat.executeQuery(sql);
+			info(sql, sqlValue.getValues());
+			stat = prepare(conn, sql, false);
+			setValues(stat, sqlValue.getValues());
+			rs = stat.executeQuery();
 			return rs.next();
 		} catch (SQLException e) {
 			throw new RepositoryException(e);
@@ -289,57 +565,107 @@ public class DB {
 		}
 	}
 
-	private static Stream<String> parserSQLFile(String name) {
-		Builder<String> builder = Stream.builder();
-
-		try (FileReader reader = new FileReader(name); BufferedReader br = new BufferedReader(reader)) {
-			StringBuilder buff = new StringBuilder();
-			String str;
-			while ((str = br.readLine()) != null) {
-				str = str.trim();
-				if (!"".equals(str)) {
-					buff.append(str);
-					buff.append(' '); // 有可能一行语句分了多行书写,拼接时行与行要用空格隔开
-					if (buff.charAt(buff.length() - 2) == ';') {
-						builder.add(buff.toString());
-						buff = new StringBuilder();
-					}
-				}
-			}
-		} catch (Exception e) {
-			throw new RepositoryException(e);
-		}
-
-		return builder.build().filter(s -> !s.startsWith("#") && !s.startsWith("-- "));
-	}
-
-	static int[] executeBatch(String sqlFile, BiConsumer<Statement, String> consumer) {
+	/**
+	 * 流式地执行SQL文件, 语句逐条读出, 攒够一块就执行一次, 内存占用只与块的大小有关
+	 * 
+	 * @param sqlFile SQL文件
+	 * @param script 执行选项, 执行之后记录了进度
+	 * @return 每条语句所影响的行数(被跳过的语句不包含在内)
+	 */
+	static int[] executeBatch(String sqlFile, SQLScript script) {
+		int chunkStatements = Math.max(1, script.getChunkStatements());
+		int chunkBytes = Math.max(1, script.getChunkBytes());
 		Connection conn = QueryContext.getConnection();
 		Statement stat = null;
-		Stream<String> stream = parserSQLFile(sqlFile);
+		SQLScriptReader reader = null;
+		IntStream.Builder effects = IntStream.builder();
+		long index = 0; // 已读出的语句条数
+		long executed = script.getSkip(); // 已执行的语句条数
+		int line = 0;
+		script.setCommitted(executed);
+		script.setLine(0);
 		try {
 			QueryContext.setAutoCommit(false);
-			final Statement st = conn.createStatement();
-			stat = st;
-			stream.forEach(s -> consumer.accept(st, s));
-			int[] ints = stat.executeBatch();
-			stat.clearBatch();
-			QueryContext.commit();
-			return ints;
+			reader = new SQLScriptReader(Paths.get(sqlFile));
+			stat = conn.createStatement();
+			int count = 0;
+			int bytes = 0;
+			String statement;
+			while ((statement = reader.next()) != null) {
+				if (++index <= script.getSkip()) {
+					continue;
+				}
+				stat.addBatch(statement);
+				count++;
+				bytes += statement.length();
+				line = reader.getLine();
+				if (count == chunkStatements || bytes >= chunkBytes) {
+					executeChunk(stat, effects, script, executed += count, line);
+					count = 0;
+					bytes = 0;
+				}
+			}
+			if (count != 0) {
+				executeChunk(stat, effects, script, executed += count, line);
+			}
+			if (!script.isCommitPerChunk()) {
+				QueryContext.commit();
+				script.setCommitted(executed);
+				script.setLine(line);
+			}
+			return effects.build().toArray();
 		} catch (Exception e) {
 			try {
 				QueryContext.rollback();
 			} catch (SQLException e1) {
 				throw new RepositoryException(e1.getMessage(), e1);
 			}
-			throw new RepositoryException(e);
+			throw new RepositoryException(String.format("执行SQL文件\"%s\"出错,已提交了前%d条语句(至第%d行),出错的语句在第%d行至第%d行之间", sqlFile,
+					script.getCommitted(), script.getLine(), script.getLine() + 1, reader != null ? reader.getLine() : 0), e);
 		} finally {
 			close(null, stat);
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					LOG.error(e.getMessage(), e);
+				}
+			}
 		}
 	}
 
+	private static void executeChunk(Statement stat, IntStream.Builder effects, SQLScript script, long executed, int line) throws SQLException {
+		for (int effect : stat.executeBatch()) {
+			effects.add(effect);
+		}
+		stat.clearBatch();
+		if (script.isCommitPerChunk()) {
+			QueryContext.commit();
+			script.setCommitted(executed);
+			script.setLine(line);
+		}
+		LOG.info("SQL文件已执行{}条语句,至第{}行", executed, line);
+	}
+
 	/**
-	 * 释放资源
+	 * 获取预编译语句, 当前数据源开启了语句缓存时从缓存中取, 用完之后统一交给 {@link #close(ResultSet, Statement)} 释放
+	 * 
+	 * @param conn 连接
+	 * @param sql SQL语句
+	 * @param generatedKeys 是否需要返回主键
+	 * @return 预编译语句
+	 * @throws SQLException SQL异常
+	 */
+	private static PreparedStatement prepare(Connection conn, String sql, boolean generatedKeys) throws SQLException {
+		StatementCache cache = QueryContext.getStatementCache();
+		if (cache != null) {
+			return cache.prepare(sql, generatedKeys);
+		}
+		return generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+	}
+
+	/**
+	 * 释放资源, 来自语句缓存的Statement归还给缓存, 不关闭
 	 * 
 	 * @param rs ResultSet实例
 	 * @param stat Statement实例
@@ -353,7 +679,8 @@ public class DB {
 			throw new RepositoryException(e);
 		} finally {
 			try {
-				if (stat != null) {
+				StatementCache cache = QueryContext.getStatementCache();
+				if (stat != null && (cache == null || !cache.release(stat))) {
 					stat.close();
 				}
 			} catch (SQLException e) {
@@ -366,47 +693,67 @@ public class DB {
 	 * 将 rs 的结果集 转换成 List&lt;Map&gt;,rs没有结果则返回空对象(该方法永不返回null).
 	 * 
 	 * @param rs 结果集
-	 * @param method 当前方法
+	 * @param plan 当前方法的执行计划
 	 * @return List map结果集
 	 * @throws SQLException SQL异常
 	 */
-	private static List<Map<String, Object>> rs2Map(ResultSet rs, Method method) throws SQLException {
-
-		List<String> feildNames = null;
-		if (method != null) {
-			I18n i18n = method.getAnnotation(I18n.class);
-			if (i18n != null) {
-				feildNames = Arrays.asList(i18n.value());
-			}
-		}
+	private static List<Map<String, Object>> rs2Map(ResultSet rs, MethodPlan plan) throws SQLException {
+		// 列信息只获取一次,被所有行共享
+		RowMap.Schema schema = new RowMap.Schema(labels(rs.getMetaData()));
+		boolean[] i18ns = i18ns(schema, plan != null ? plan.getI18nFields() : null);
 
 		List<Map<String, Object>> keyvals = new ArrayList<>();
-		Map<String, Object> keyval;
-		// 获取列信息
-		ResultSetMetaData resultSetMetaData;
-		// 总列数
-		int columnCount;
-
-		String key;
-		Object obj;
 		while (rs.next()) {
-			resultSetMetaData = rs.getMetaData();
-			columnCount = resultSetMetaData.getColumnCount();
-			keyval = new HashMap<>();
-			for (int i = 1; i <= columnCount; i++) {
-				// key = resultSetMetaData.getColumnName(i); // 获取列名称
-				key = resultSetMetaData.getColumnLabel(i); // 获取列别名,若没有别名那么就获取本身名称(getColumnName)
-				obj = rs.getObject(i);
-				if (feildNames != null && feildNames.contains(key)) {
-					obj = i18n(obj);
-				}
-				keyval.put(key, obj);
-			}
-			keyvals.add(keyval);
+			keyvals.add(row(rs, schema, i18ns));
 		}
 		return keyvals;
 	}
 
+	// 获取每列的别名,若没有别名那么就获取本身名称
+	private static String[] labels(ResultSetMetaData resultSetMetaData) throws SQLException {
+		int columnCount = resultSetMetaData.getColumnCount();
+		String[] labels = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			labels[i] = resultSetMetaData.getColumnLabel(i + 1);
+		}
+		return labels;
+	}
+
+	// 标记出需要国际化的键, 没有需要国际化的字段返回null
+	private static boolean[] i18ns(RowMap.Schema schema, List<String> feildNames) {
+		if (feildNames == null) {
+			return null;
+		}
+		int len = schema.size();
+		boolean[] i18ns = new boolean[len];
+		for (int i = 0; i < len; i++) {
+			i18ns[i] = feildNames.contains(schema.key(i));
+		}
+		return i18ns;
+	}
+
+	/**
+	 * 读取 rs 当前所指向的那一行
+	 * 
+	 * @param rs 结果集
+	 * @param schema 列信息
+	 * @param i18ns 第i个键是否需要国际化,没有需要国际化的字段则为null
+	 * @return 一行记录
+	 * @throws SQLException SQL异常
+	 */
+	private static Map<String, Object> row(ResultSet rs, RowMap.Schema schema, boolean[] i18ns) throws SQLException {
+		int len = schema.size();
+		Object[] values = new Object[len];
+		for (int i = 0; i < len; i++) {
+			Object obj = rs.getObject(schema.column(i));
+			if (i18ns != null && i18ns[i]) {
+				obj = i18n(obj);
+			}
+			values[i] = obj;
+		}
+		return new RowMap(schema, values);
+	}
+
 	private static Object i18n(Object obj) {
 		try {
 			JSONObject json = (JSONObject) JSON.parse(obj.toString());
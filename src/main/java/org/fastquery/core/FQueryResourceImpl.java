@@ -26,6 +26,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
 
 /**
  * 
@@ -80,4 +82,25 @@ public class FQueryResourceImpl implements Resource {
 		
 		return classLoader.getResource(name) != null;
 	}
+
+	@Override
+	public URL getResource(String name) {
+		if (!exist(name)) {
+			return null;
+		}
+
+		String fcd = System.getProperty("fastquery.config.dir");
+		if (fcd != null) {
+			File file = new File(fcd, name);
+			if (file.exists()) {
+				try {
+					return file.toURI().toURL();
+				} catch (MalformedURLException e) {
+					throw new RepositoryException(e);
+				}
+			}
+		}
+
+		return classLoader.getResource(name);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * 标识在in(...)所引用的集合(或数组)参数上. 集合的元素个数超过 size 时, 把集合切分成若干块, 每块单独执行一次查询, 再把结果按块的顺序拼接起来;
+ * 集合为空时, 不访问数据库, 直接返回空结果(只针对标识了本注解的参数, 因为 not in 或 or 连接的条件遇到空集合时仍可能有结果). <br>
+ * 注意: 只适用于返回 List, 数组, JSONArray 的@Query查询, 且查询结果必须是可以按行拼接的(order by, limit, distinct, 聚合函数 只在块内生效);
+ * 参数必须以 in(?N) 的形式引用, 不能是 not in, 所在的条件也不能用 or 连接.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.PARAMETER })
+public @interface InListChunk {
+
+	/**
+	 * 
+	 * @return 每块最多多少个元素
+	 */
+	int size() default 1000;
+
+	/**
+	 * 
+	 * @return 最多同时执行几块, 每块各自从连接池获取连接. 默认为1, 表示依次执行
+	 */
+	int parallelism() default 1;
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.alibaba.fastjson.JSONArray;
+
+/**
+ * 处理标识了 {@link InListChunk} 的查询: 空集合直接返回空结果, 大集合切分成块分别查询再拼接结果. <br>
+ * 在 {@link Prepared} 的生命周期内执行(BeforeFilter之后, AfterFilter之前), 过滤器和慢查询日志对整个方法只执行一次. <br>
+ * 当前线程在自己的连接上依次领取尚未执行的块; 并行时, {@link QueryContext} 共享的工作线程拿到另一个连接之后也来领取. 当前线程不等待还没拿到连接的工作线程, 因此连接池不够用时不会死锁.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class InListChunker {
+
+	private InListChunker() {
+	}
+
+	/**
+	 * 
+	 * @param plan 方法的执行计划
+	 * @param args 方法参数
+	 * @param process 执行一块(以当前 QueryContext 中的实参)
+	 * @return 查询结果, 不需要切分时返回null(由调用者按正常流程执行)
+	 */
+	static Object excute(MethodPlan plan, Object[] args, Supplier<Object> process) {
+		int index = plan.getInListIndex();
+		List<Object> values = toList(args[index]);
+		if (values == null) {
+			return null;
+		}
+		if (values.isEmpty()) {
+			return empty(plan.getReturnType());
+		}
+		InListChunk chunk = plan.getInListChunk();
+		int size = Math.max(1, chunk.size());
+		if (values.size() <= size) {
+			return null;
+		}
+
+		Class<?> type = plan.getMethod().getParameterTypes()[index];
+		List<Object[]> chunks = new ArrayList<>();
+		for (int from = 0; from < values.size(); from += size) {
+			Object[] chunkArgs = args.clone();
+			chunkArgs[index] = toArg(type, values.subList(from, Math.min(from + size, values.size())));
+			chunks.add(chunkArgs);
+		}
+
+		Object[] results = new Object[chunks.size()];
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(results.length); // 每块结束(成功或放弃)减1
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Runnable worker = () -> {
+			for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+				try {
+					QueryContext.setArgs(chunks.get(i));
+					results[i] = process.get();
+				} catch (RuntimeException | Error e) {
+					error.compareAndSet(null, e);
+					// 不再领取剩余的块, 它们直接算作结束
+					for (int k = next.getAndSet(results.length); k < results.length; k++) {
+						done.countDown();
+					}
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		int parallelism = Math.min(chunk.parallelism(), chunks.size());
+		for (int p = 1; p < parallelism; p++) { // 当前线程算一个
+			QueryContext.runWithConnection(worker);
+		}
+		try {
+			worker.run();
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositoryException(e);
+		} finally {
+			QueryContext.setArgs(args);
+		}
+		Throwable e = error.get();
+		if (e != null) {
+			throw e instanceof RepositoryException ? (RepositoryException) e : new RepositoryException(e);
+		}
+		return merge(plan.getReturnType(), results);
+	}
+
+	private static List<Object> toList(Object arg) {
+		if (arg == null) {
+			return null;
+		}
+		List<Object> list = new ArrayList<>();
+		if (arg.getClass().isArray()) {
+			int len = Array.getLength(arg);
+			for (int i = 0; i < len; i++) {
+				list.add(Array.get(arg, i));
+			}
+		} else {
+			((Iterable<?>) arg).forEach(list::add);
+		}
+		return list;
+	}
+
+	// 构建一块的参数值, 类型与方法参数的类型一致
+	private static Object toArg(Class<?> type, List<Object> values) {
+		if (type.isArray()) {
+			Object array = Array.newInstance(type.getComponentType(), values.size());
+			for (int i = 0; i < values.size(); i++) {
+				Array.set(array, i, values.get(i));
+			}
+			return array;
+		} else if (type.isAssignableFrom(ArrayList.class)) {
+			return new ArrayList<>(values);
+		} else {
+			return new LinkedHashSet<>(values);
+		}
+	}
+
+	private static Object empty(Class<?> returnType) {
+		if (returnType == JSONArray.class) {
+			return new JSONArray();
+		} else if (returnType.isArray()) {
+			return Array.newInstance(returnType.getComponentType(), 0);
+		} else {
+			return new ArrayList<>();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object merge(Class<?> returnType, Object[] results) {
+		if (returnType.isArray()) {
+			int len = 0;
+			for (Object result : results) {
+				len += Array.getLength(result);
+			}
+			Object array = Array.newInstance(returnType.getComponentType(), len);
+			int pos = 0;
+			for (Object result : results) {
+				int l = Array.getLength(result);
+				System.arraycopy(result, 0, array, pos, l);
+				pos += l;
+			}
+			return array;
+		}
+		Collection<Object> merged = returnType == JSONArray.class ? new JSONArray() : new ArrayList<>();
+		for (Object result : results) {
+			merged.addAll((Collection<Object>) result);
+		}
+		return merged;
+	}
+}
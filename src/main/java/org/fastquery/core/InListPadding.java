@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * 标识集合参数展开成"?,?,..."时, 是否把"?"的个数补齐到桶的大小(重复最后一个值), 使 in(...) 语句的形状只有少数几种, 便于数据库和语句缓存复用. <br>
+ * 只有独自构成 IN 列表的参数(如: "id in (?1)")才会补齐, values(?1) 等其他位置的集合参数不受影响. <br>
+ * 桶的大小默认是2的幂, 可在 fastquery.json 中通过 inListBuckets 配置. 方法上没有标识时, 取 fastquery.json 中的 inListPadding.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD })
+public @interface InListPadding {
+
+	/**
+	 * 
+	 * @return true:补齐; false:不补齐,即使全局开启了
+	 */
+	boolean value() default true;
+}
@@ -78,6 +78,16 @@ class MethodId {
 	 */
 	static final byte QUERY8 = 0X08;
 
+	/**
+	 * 0X09
+	 */
+	static final byte QUERY9 = 0X09;
+
+	/**
+	 * 0X0A
+	 */
+	static final byte QUERY10 = 0X0A;
+
 	/**
 	 * 默认私有构造方法
 	 */
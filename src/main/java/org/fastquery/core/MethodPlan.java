@@ -0,0 +1,862 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For more information, please see http://www.fastquery.org/.
+ *
+ */
+
+package org.fastquery.core;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.fastquery.dsm.FQueryProperties;
+import org.fastquery.filter.After;
+import org.fastquery.filter.Before;
+import org.fastquery.filter.SkipFilter;
+import org.fastquery.handler.ModifyingHandler;
+import org.fastquery.handler.QueryHandler;
+import org.fastquery.page.ConcurrentCount;
+import org.fastquery.page.CountCache;
+import org.fastquery.page.DeferredJoin;
+import org.fastquery.page.NotCount;
+import org.fastquery.page.Page;
+import org.fastquery.page.PageIndex;
+import org.fastquery.page.PageSize;
+import org.fastquery.page.Pageable;
+import org.fastquery.page.PageableImpl;
+import org.fastquery.struct.RespUpdate;
+import org.fastquery.util.Clause;
+import org.fastquery.util.CountStatement;
+import org.fastquery.util.DeferredJoinStatement;
+import org.fastquery.util.FastQueryJSONObject;
+import org.fastquery.util.SQLTemplate;
+import org.fastquery.util.TypeUtil;
+import org.fastquery.where.Condition;
+import org.fastquery.where.I18n;
+import org.fastquery.where.Set;
+import org.objectweb.asm.Type;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 方法执行计划. 在生成 Repository 实现类时,为每个抽象方法构建一次, 之后每次调用只做跟实参相关的工作. <br>
+ * 执行计划一旦构建便不可变, 可被多个线程共享.
+ *
+ * @author xixifeng (fastquery@126.com)
+ */
+public final class MethodPlan {
+
+	// 执行计划注册表: Repository class -> (方法名称+asm方法描述 -> 执行计划)
+	private static final Map<Class<?>, Map<String, MethodPlan>> PLANS = new ConcurrentHashMap<>();
+	private static final int MAX_STATEMENTS = 256; // 每个方法最多缓存多少种形状的求和语句(延迟关联语句), 超出时淘汰最久未用的
+
+	/**
+	 * 方法分类, 决定 businessProcess 的走向
+	 */
+	enum Kind {
+		MODIFYING, // 同时包含有@Query(或@QueryByNamed)和@Modifying
+		QUERY_BY_NAMED_PAGE, // @QueryByNamed 分页
+		QUERY_PAGE, // @Query 分页
+		QUERY, // 查询
+		QUERY_STREAM, // 流式查询(返回Stream,Iterator,Iterable)
+		QUERY_EACH, // 行回调查询(参数中有RowHandler或Consumer)
+		METHOD_ID, // 内置方法(标识有@Id)
+		METHOD // 没有Query,也没有@Modifying
+	}
+
+	/**
+	 * 查操作的返回值处理策略
+	 */
+	@FunctionalInterface
+	interface QueryStrategy {
+		Object handle(List<Map<String, Object>> keyvals);
+	}
+
+	/**
+	 * 查询结果已由映射器直接转换成实体时,返回值的处理策略
+	 */
+	@FunctionalInterface
+	interface BeanStrategy {
+		Object handle(List<?> beans);
+	}
+
+	/**
+	 * 流式查询或行回调查询时,把一行记录转换成元素的策略
+	 */
+	@FunctionalInterface
+	interface RowMapper {
+		Object map(Map<String, Object> row);
+	}
+
+	/**
+	 * 改操作的返回值处理策略
+	 */
+	@FunctionalInterface
+	interface ModifyStrategy {
+		Object handle(List<RespUpdate> respUpdates, Long autoIncKey);
+	}
+
+	private final Class<? extends Repository> iclass;
+	private final Method method;
+	private final Parameter[] parameters;
+	private final Param[] params; // 第i个参数上的@Param,没有标识则为null
+	private final boolean[] typeVariables; // 第i个参数的类型是否是变量类型
+	private final Class<?> returnType;
+	private final java.lang.reflect.Type genericReturnType;
+	private final java.lang.reflect.Type rowType; // 行回调参数的类型,没有行回调就是返回值的类型
+	private final Class<?> elementType; // List<T>,Page<T>,Stream<T>,RowHandler<T> 中的T是一个具体的class时,就是T;否则为null
+
+	private final Query[] queries;
+	private final QueryByNamed queryByNamed;
+	private final Modifying modifying;
+	private final Condition[] conditions;
+	private final Set[] sets;
+	private final SQLTemplate[] queryTemplates; // 与queries一一对应
+	private final Clause whereClause;
+	private final Clause setClause;
+	private final Id id;
+	private final boolean notCount;
+	private final Boolean inListPadding; // 方法上没有标识@InListPadding则为null,取全局配置
+	private final ConcurrentCount concurrentCount; // 方法上没有标识则为null,取全局配置
+	private final TotalCache totalCache; // 没有标识@CountCache或不求和则为null
+	private final DeferredJoin deferredJoin;
+	private final Map<String, String> deferredStatements = statements(); // 主体查询语句 -> 延迟关联的语句
+	private final boolean supporTx;
+	private final boolean requirePk;
+	private final List<String> i18nFields; // 需要国际化的字段,没有则为null
+
+	private final int sourceIndex;
+	private final int pageIndexIndex;
+	private final int pageSizeIndex;
+	private final int pageableIndex;
+	private final int idIndex;
+	private final int builderQueryIndex;
+	private final int rowHandlerIndex;
+	private final int inListIndex; // 标识了@InListChunk的参数索引,没有则为-1
+	private final InListChunk inListChunk;
+	private final Map<String, String> countStatements = statements(); // 主体查询语句 -> 推算出的求和语句
+
+	private final Class<?>[] befores;
+	private final Class<?>[] afters;
+
+	private final Kind kind;
+	private final Class<?> beanType; // 结果集可以由映射器直接转换成的实体,否则为null
+	private final QueryStrategy queryStrategy;
+	private final BeanStrategy beanStrategy;
+	private final RowMapper rowMapper;
+	private final ModifyStrategy modifyStrategy;
+
+	private volatile String dataSourceName; // 根据basePackage绑定的数据源名称,首次使用时解析
+
+	private MethodPlan(Class<? extends Repository> iclass, Method method) {
+		this.iclass = iclass;
+		this.method = method;
+		this.parameters = method.getParameters();
+		this.returnType = method.getReturnType();
+		this.genericReturnType = method.getGenericReturnType();
+
+		int len = parameters.length;
+		this.params = new Param[len];
+		this.typeVariables = new boolean[len];
+		for (int i = 0; i < len; i++) {
+			params[i] = parameters[i].getAnnotation(Param.class);
+			typeVariables[i] = parameters[i].getParameterizedType() instanceof TypeVariable;
+		}
+
+		this.queries = method.getAnnotationsByType(Query.class);
+		this.queryByNamed = method.getAnnotation(QueryByNamed.class);
+		this.modifying = method.getAnnotation(Modifying.class);
+		this.conditions = method.getAnnotationsByType(Condition.class);
+		this.sets = method.getAnnotationsByType(Set.class);
+		boolean dollar = queryByNamed == null;
+		this.queryTemplates = Arrays.stream(queries).map(q -> SQLTemplate.compile(q.value(), params, dollar)).toArray(SQLTemplate[]::new);
+		this.whereClause = Clause.where(conditions, params, dollar);
+		this.setClause = Clause.sets(sets, params, dollar);
+		this.id = method.getAnnotation(Id.class);
+		this.notCount = method.getAnnotation(NotCount.class) != null;
+		InListPadding padding = method.getAnnotation(InListPadding.class);
+		this.inListPadding = padding != null ? padding.value() : null;
+		this.concurrentCount = method.getAnnotation(ConcurrentCount.class);
+		CountCache countCache = method.getAnnotation(CountCache.class);
+		if (countCache != null && (countCache.ttl() <= 0 || countCache.maxEntries() <= 0)) {
+			throw new RepositoryException(String.format("%s 中的@CountCache的ttl和maxEntries必须大于0", method));
+		}
+		this.totalCache = countCache != null && !notCount ? new TotalCache(countCache) : null;
+		this.deferredJoin = method.getAnnotation(DeferredJoin.class);
+
+		Transactional t = method.getAnnotation(Transactional.class);
+		this.supporTx = t == null || !t.propagation().equals(Propagation.NOT_SUPPORTED);
+
+		this.requirePk = returnType == Map.class || returnType == JSONObject.class || returnType == Primarykey.class
+				|| TypeUtil.hasDefaultConstructor(returnType);
+
+		I18n i18n = method.getAnnotation(I18n.class);
+		this.i18nFields = i18n != null ? Collections.unmodifiableList(Arrays.asList(i18n.value())) : null;
+
+		this.sourceIndex = TypeUtil.findAnnotationIndex(Source.class, parameters);
+		this.pageIndexIndex = TypeUtil.findAnnotationIndex(PageIndex.class, parameters);
+		this.pageSizeIndex = TypeUtil.findAnnotationIndex(PageSize.class, parameters);
+		this.idIndex = TypeUtil.findId(parameters);
+		this.pageableIndex = findTypeIndex(Pageable.class, parameters);
+		this.builderQueryIndex = findTypeIndex(BuilderQuery.class, parameters);
+		this.rowHandlerIndex = findRowHandlerIndex(parameters);
+		this.inListIndex = TypeUtil.findAnnotationIndex(InListChunk.class, parameters);
+		this.inListChunk = inListIndex != -1 ? parameters[inListIndex].getAnnotation(InListChunk.class) : null;
+
+		this.rowType = rowHandlerIndex != -1 ? parameters[rowHandlerIndex].getParameterizedType() : genericReturnType;
+		this.elementType = findElementType(rowType);
+
+		boolean skipFilter = method.getAnnotation(SkipFilter.class) != null;
+		List<Class<?>> list = new ArrayList<>();
+		if (!skipFilter) {
+			for (Before before : iclass.getAnnotationsByType(Before.class)) { // 当前类级别的before's
+				list.addAll(Arrays.asList(before.value()));
+			}
+		}
+		for (Before before : method.getAnnotationsByType(Before.class)) { // 当前方法上的before's
+			list.addAll(Arrays.asList(before.value()));
+		}
+		this.befores = list.toArray(new Class<?>[list.size()]);
+
+		list.clear();
+		if (!skipFilter) {
+			for (After after : iclass.getAnnotationsByType(After.class)) { // 当前类级别的after's
+				list.addAll(Arrays.asList(after.value()));
+			}
+		}
+		for (After after : method.getAnnotationsByType(After.class)) { // 当前方法上的after's
+			list.addAll(Arrays.asList(after.value()));
+		}
+		this.afters = list.toArray(new Class<?>[list.size()]);
+
+		this.kind = findKind();
+		this.beanType = findBeanType();
+		this.queryStrategy = kind == Kind.QUERY ? queryStrategy() : null;
+		this.beanStrategy = kind == Kind.QUERY && beanType != null ? beanStrategy() : null;
+		this.rowMapper = kind == Kind.QUERY_STREAM || kind == Kind.QUERY_EACH ? rowMapper() : null;
+		this.modifyStrategy = kind == Kind.MODIFYING ? modifyStrategy() : null;
+		checkInListChunk();
+		checkDeferredJoin();
+	}
+
+	// @DeferredJoin 只能用于@Query分页, 语句的结构要能改写
+	private void checkDeferredJoin() {
+		if (deferredJoin == null) {
+			return;
+		}
+		if (kind != Kind.QUERY_PAGE) {
+			throw new RepositoryException(String.format("%s 中的@DeferredJoin使用错误,它只能标识在@Query分页方法上", method));
+		}
+		String sql = queries[0].value();
+		DeferredJoinStatement.rewrite(sql.indexOf(Placeholder.LIMIT) == -1 ? sql + Placeholder.LIMIT : sql, deferredJoin.value());
+	}
+
+	// @InListChunk 只能用于返回List,数组,JSONArray的查询, 所标识的参数必须是数组或者List,Set,Collection,Iterable
+	private void checkInListChunk() {
+		if (inListIndex == -1) {
+			return;
+		}
+		Class<?> type = parameters[inListIndex].getType();
+		boolean returnable = returnType == List.class || returnType == JSONArray.class || returnType.isArray();
+		boolean splittable = type.isArray() || type.isAssignableFrom(ArrayList.class) || type.isAssignableFrom(LinkedHashSet.class);
+		if (kind != Kind.QUERY || !returnable || !splittable) {
+			throw new RepositoryException(String.format("%s 中的@InListChunk使用错误,它只能标识在数组或List,Set,Collection类型的参数上,且方法必须是返回List,数组或JSONArray的查询", method));
+		}
+		// 切分之后各块的结果不能重叠: 参数只能出现在肯定的 in(?N) 中, 所在的条件不能用 or 连接
+		if (queries.length == 0 || !TypeUtil.isChunkableInList(whereText(), inListIndex + 1)) {
+			throw new RepositoryException(String.format("%s 中的@InListChunk使用错误,它只能用于@Query,所标识的参数必须以 in(?%d) 的形式引用,不能是 not in,且所在的条件不能用 or 连接", method,
+					inListIndex + 1));
+		}
+	}
+
+	// 把@Condition拼接到#{#where}处, 仅用于检查语句的结构
+	private String whereText() {
+		String sql = queries[0].value();
+		if (conditions.length == 0 || !sql.contains(Placeholder.WHERE)) {
+			return sql;
+		}
+		StringBuilder where = new StringBuilder("where");
+		for (Condition condition : conditions) {
+			where.append(' ').append(condition.value());
+		}
+		return sql.replace(Placeholder.WHERE, where);
+	}
+
+	/**
+	 * 构建并登记执行计划. 在生成实现类时调用.
+	 *
+	 * @param iclass Repository class
+	 * @param method 抽象方法
+	 * @return 执行计划
+	 */
+	public static MethodPlan register(Class<? extends Repository> iclass, Method method) {
+		MethodPlan plan = new MethodPlan(iclass, method);
+		PLANS.computeIfAbsent(iclass, k -> new ConcurrentHashMap<>()).put(key(method.getName(), Type.getMethodDescriptor(method)), plan);
+		return plan;
+	}
+
+	/**
+	 * 获取执行计划, 若还没有登记,就立即构建一个. 生成的实现类在静态初始化时通过它取出每个方法的执行计划.
+	 *
+	 * @param iclass Repository class
+	 * @param methodName 方法名称
+	 * @param methodDescriptor asm方法描述
+	 * @return 执行计划
+	 */
+	public static MethodPlan get(Class<? extends Repository> iclass, String methodName, String methodDescriptor) {
+		Map<String, MethodPlan> plans = PLANS.computeIfAbsent(iclass, k -> new ConcurrentHashMap<>());
+		return plans.computeIfAbsent(key(methodName, methodDescriptor),
+				k -> new MethodPlan(iclass, TypeUtil.getMethod(iclass, methodName, methodDescriptor)));
+	}
+
+	private static String key(String methodName, String methodDescriptor) {
+		return methodName + methodDescriptor;
+	}
+
+	private static int findTypeIndex(Class<?> clazz, Parameter[] parameters) {
+		for (int i = 0; i < parameters.length; i++) {
+			if (clazz.isAssignableFrom(parameters[i].getType())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int findRowHandlerIndex(Parameter[] parameters) {
+		for (int i = 0; i < parameters.length; i++) {
+			if (TypeUtil.isRowHandler(parameters[i].getType())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// List<T>,Page<T>,Stream<T>,RowHandler<T> 中的T,如果是一个具体的class就返回它
+	private static Class<?> findElementType(java.lang.reflect.Type type) {
+		if (type instanceof ParameterizedType) {
+			java.lang.reflect.Type[] types = ((ParameterizedType) type).getActualTypeArguments();
+			if (types.length == 1 && types[0] instanceof Class) {
+				return (Class<?>) types[0];
+			}
+		}
+		return null;
+	}
+
+	// 获取map泛型value的类型, 没有指定泛型就当作Object
+	private static Class<?> mapValueType(java.lang.reflect.Type type) {
+		if (type instanceof ParameterizedType) {
+			java.lang.reflect.Type[] types = ((ParameterizedType) type).getActualTypeArguments();
+			if (types.length == 2 && types[1] instanceof Class) {
+				return (Class<?>) types[1];
+			}
+		}
+		return Object.class;
+	}
+
+	private Kind findKind() {
+		boolean hasQuery = queries.length > 0 || queryByNamed != null;
+		if (hasQuery && modifying != null) {
+			return Kind.MODIFYING;
+		} else if (hasQuery) {
+			if (rowHandlerIndex != -1) {
+				return Kind.QUERY_EACH;
+			} else if (returnType == Page.class) {
+				return queryByNamed != null ? Kind.QUERY_BY_NAMED_PAGE : Kind.QUERY_PAGE;
+			} else if (TypeUtil.isStreamType(returnType)) {
+				return Kind.QUERY_STREAM;
+			}
+			return Kind.QUERY;
+		} else if (id != null) {
+			return Kind.METHOD_ID;
+		} else {
+			return Kind.METHOD;
+		}
+	}
+
+	// 查询结果能否由映射器直接转换成实体
+	private Class<?> findBeanType() {
+		if (i18nFields != null) { // 国际化字段需要先读成Map,经过i18n处理之后再转换
+			return null;
+		}
+		Class<?> clazz;
+		switch (kind) {
+		case QUERY:
+			if (returnType == List.class) {
+				clazz = elementType;
+			} else if (returnType.isArray()) {
+				clazz = returnType.getComponentType();
+			} else {
+				clazz = returnType;
+			}
+			break;
+		case QUERY_PAGE:
+		case QUERY_BY_NAMED_PAGE:
+		case QUERY_STREAM:
+		case QUERY_EACH:
+			clazz = elementType;
+			break;
+		default:
+			return null;
+		}
+		return TypeUtil.isBean(clazz) ? clazz : null;
+	}
+
+	// 实体返回值分析
+	private BeanStrategy beanStrategy() {
+		QueryHandler qh = QueryHandler.getInstance();
+		if (returnType == List.class) {
+			return beans -> beans;
+		} else if (returnType.isArray()) {
+			return beans -> qh.beanArrayType(returnType, beans);
+		} else {
+			return beans -> qh.beanType(returnType, beans);
+		}
+	}
+
+	// 查操作返回值分析
+	private QueryStrategy queryStrategy() {
+		QueryHandler qh = QueryHandler.getInstance();
+		if (returnType == long.class) {
+			return qh::longType;
+		} else if (returnType == int.class) {
+			return qh::intType;
+		} else if (returnType == boolean.class) {
+			return qh::booleanType;
+		} else if (returnType == Map.class) {
+			Class<?> convertType = mapValueType(genericReturnType);
+			return keyvals -> qh.mapType(keyvals, convertType);
+		} else if (TypeUtil.isListMapSO(genericReturnType)) {
+			Class<?> convertType = mapValueType(((ParameterizedType) genericReturnType).getActualTypeArguments()[0]);
+			return keyvals -> qh.listType(keyvals, convertType);
+		} else if (returnType == List.class) {
+			return keyvals -> qh.list(keyvals, elementType);
+		} else if (returnType == JSONObject.class) {
+			return qh::jsonObjeType;
+		} else if (returnType == JSONArray.class) {
+			return qh::jsonArrayType;
+		} else if (TypeUtil.isWarrp(returnType)) {
+			return keyvals -> qh.wrapperType(method, returnType, keyvals);
+		} else if (TypeUtil.isWarrp(returnType.getComponentType()) || TypeUtil.hasDefaultConstructor(returnType.getComponentType())) {
+			// 基本类型数组, bean数组
+			return keyvals -> qh.wrapperAarryType(returnType, keyvals);
+		} else {
+			return qh::beanType;
+		}
+	}
+
+	// 逐行读取时的元素分析, Stream<T>,Iterator<T>,Iterable<T>,RowHandler<T>,Consumer<T> 中的T若不是一个具体的class,就当作Map
+	private RowMapper rowMapper() {
+		QueryHandler qh = QueryHandler.getInstance();
+		if (elementType == null) {
+			java.lang.reflect.Type type = rowType instanceof ParameterizedType ? ((ParameterizedType) rowType).getActualTypeArguments()[0] : null;
+			Class<?> convertType = mapValueType(type);
+			return row -> qh.rowMap(row, convertType);
+		}
+		return row -> qh.element(row, elementType);
+	}
+
+	// 改操作返回值分析
+	private ModifyStrategy modifyStrategy() {
+		ModifyingHandler mh = ModifyingHandler.getInstance();
+		if (returnType == void.class) {
+			return (respUpdates, autoIncKey) -> mh.voidType();
+		} else if (returnType == int.class) {
+			return (respUpdates, autoIncKey) -> mh.intType(respUpdates);
+		} else if (returnType == int[].class) {
+			return (respUpdates, autoIncKey) -> {
+				int len = respUpdates.size();
+				int[] effects = new int[len];
+				for (int i = 0; i < len; i++) {
+					effects[i] = respUpdates.get(i).getEffect();
+				}
+				return effects;
+			};
+		} else if (returnType == Map.class) { // 如果然会值是Map,那么一定是insert或update,在生成实现的时候已经做安全检测
+			Class<?> convertType = mapValueType(genericReturnType);
+			return (respUpdates, autoIncKey) -> mh.mapType(autoIncKey, convertType);
+		} else if (returnType == JSONObject.class) {
+			return (respUpdates, autoIncKey) -> mh.jsonObjectType(autoIncKey);
+		} else if (returnType == Primarykey.class) {
+			return (respUpdates, autoIncKey) -> mh.primarykeyType(autoIncKey);
+		} else if (returnType == boolean.class) {
+			return (respUpdates, autoIncKey) -> mh.booleanType(respUpdates);
+		} else { // 把值强制转换成 returnType
+			return (respUpdates, autoIncKey) -> mh.beanType(autoIncKey);
+		}
+	}
+
+	/**
+	 * 从实参中获取分页信息, 没有传递Pageable,那么必然有 pageIndex, pageSize 不然,不能通过初始化
+	 *
+	 * @param args 实参
+	 * @return 分页
+	 */
+	public Pageable getPageable(Object[] args) {
+		if (pageableIndex != -1 && args[pageableIndex] != null) {
+			return (Pageable) args[pageableIndex];
+		}
+		int page = pageIndexIndex != -1 && args[pageIndexIndex] != null ? (int) args[pageIndexIndex] : -1;
+		int size = pageSizeIndex != -1 && args[pageSizeIndex] != null ? (int) args[pageSizeIndex] : -1;
+		return new PageableImpl(page, size);
+	}
+
+	/**
+	 * 获取@Source 标识的实参, 没有标识返回null
+	 *
+	 * @param args 实参
+	 * @return 数据源名称
+	 */
+	String getSourceName(Object[] args) {
+		if (sourceIndex == -1 || args[sourceIndex] == null) {
+			return null;
+		}
+		return args[sourceIndex].toString();
+	}
+
+	/**
+	 * 获取根据basePackage绑定的数据源名称
+	 *
+	 * @return 数据源名称,没有找到返回null
+	 */
+	String getDataSourceName() {
+		String name = dataSourceName;
+		if (name == null) {
+			name = FQueryProperties.findDataSourceName(iclass.getName());
+			dataSourceName = name;
+		}
+		return name;
+	}
+
+	public Class<? extends Repository> getIclass() {
+		return iclass;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public Parameter[] getParameters() {
+		return parameters.clone();
+	}
+
+	/**
+	 * 获取第index个参数上的@Param
+	 *
+	 * @param index 参数索引,从0开始计数
+	 * @return 没有标识返回null
+	 */
+	public Param getParam(int index) {
+		return params[index];
+	}
+
+	/**
+	 * 第index个参数的类型是否是变量类型(如: 实体 B)
+	 *
+	 * @param index 参数索引,从0开始计数
+	 * @return y:true/n:false
+	 */
+	boolean isTypeVariable(int index) {
+		return typeVariables[index];
+	}
+
+	/**
+	 * 获取每个参数上的@Param
+	 *
+	 * @return 第i个参数上的@Param,没有标识则为null
+	 */
+	public Param[] getParams() {
+		return params.clone();
+	}
+
+	public int getParameterCount() {
+		return params.length;
+	}
+
+	public Class<?> getReturnType() {
+		return returnType;
+	}
+
+	public java.lang.reflect.Type getGenericReturnType() {
+		return genericReturnType;
+	}
+
+	/**
+	 * List&lt;T&gt;,Page&lt;T&gt;,Stream&lt;T&gt;,RowHandler&lt;T&gt; 中的T
+	 *
+	 * @return 若T不是一个具体的class,返回null
+	 */
+	public Class<?> getElementType() {
+		return elementType;
+	}
+
+	public Query[] getQueries() {
+		return queries.clone();
+	}
+
+	Query getQuery() {
+		return queries.length > 0 ? queries[0] : null;
+	}
+
+	public QueryByNamed getQueryByNamed() {
+		return queryByNamed;
+	}
+
+	public Modifying getModifying() {
+		return modifying;
+	}
+
+	public Condition[] getConditions() {
+		return conditions.clone();
+	}
+
+	public Set[] getSets() {
+		return sets.clone();
+	}
+
+	/**
+	 * 
+	 * @param i 第i个@Query(从0开始)
+	 * @return 预编译的SQL模板
+	 */
+	public SQLTemplate getQueryTemplate(int i) {
+		return queryTemplates[i];
+	}
+
+	/**
+	 * 
+	 * @return 预编译的@Condition集合
+	 */
+	public Clause getWhereClause() {
+		return whereClause;
+	}
+
+	/**
+	 * 
+	 * @return 预编译的@Set集合
+	 */
+	public Clause getSetClause() {
+		return setClause;
+	}
+
+	public Id getId() {
+		return id;
+	}
+
+	public boolean isNotCount() {
+		return notCount;
+	}
+
+	/**
+	 * 
+	 * @return 集合参数展开时是否补齐到桶的大小
+	 */
+	public boolean isInListPadding() {
+		return inListPadding != null ? inListPadding : FastQueryJSONObject.getInListPadding();
+	}
+
+	/**
+	 * 
+	 * @return 分页时求和语句是否在另一个连接上与当前页的查询同时执行
+	 */
+	public boolean isConcurrentCount() {
+		return concurrentCount != null ? concurrentCount.value() : FastQueryJSONObject.getConcurrentCount();
+	}
+
+	/**
+	 * 
+	 * @return 分页总行数的缓存,没有标识@CountCache则为null
+	 */
+	TotalCache getTotalCache() {
+		return totalCache;
+	}
+
+	/**
+	 * 
+	 * @return 分页时是否不等待求和语句执行完
+	 */
+	public boolean isAsyncCount() {
+		return concurrentCount != null && concurrentCount.value() && concurrentCount.async() && !notCount;
+	}
+
+	boolean isSupporTx() {
+		return supporTx;
+	}
+
+	boolean isRequirePk() {
+		return requirePk;
+	}
+
+	public List<String> getI18nFields() {
+		return i18nFields;
+	}
+
+	public int getIdIndex() {
+		return idIndex;
+	}
+
+	/**
+	 * 从实参中获取行回调, Consumer 会被适配成 RowHandler
+	 * 
+	 * @param args 实参
+	 * @return 行回调
+	 */
+	@SuppressWarnings("unchecked")
+	RowHandler<Object> getRowHandler(Object[] args) {
+		Object handler = args[rowHandlerIndex];
+		if (handler == null) {
+			throw new RepositoryException(method + " 行回调参数不能为null");
+		} else if (handler instanceof RowHandler) {
+			return (RowHandler<Object>) handler;
+		} else {
+			return ((Consumer<Object>) handler)::accept;
+		}
+	}
+
+	int getBuilderQueryIndex() {
+		return builderQueryIndex;
+	}
+
+	public Class<?>[] getBefores() {
+		return befores.clone();
+	}
+
+	public Class<?>[] getAfters() {
+		return afters.clone();
+	}
+
+	public boolean hasBefores() {
+		return befores.length > 0;
+	}
+
+	public boolean hasAfters() {
+		return afters.length > 0;
+	}
+
+	/**
+	 * 
+	 * @return 标识了@InListChunk的参数索引,没有则为-1
+	 */
+	public int getInListIndex() {
+		return inListIndex;
+	}
+
+	/**
+	 * 
+	 * @return 参数上的@InListChunk,没有则为null
+	 */
+	public InListChunk getInListChunk() {
+		return inListChunk;
+	}
+
+	/**
+	 * 获取由主体查询语句推算出的求和语句. 主体语句的形状(生效的条件,$表达式的值)不同, 求和语句也不同, 按形状缓存.
+	 * 
+	 * @param sql 主体查询语句
+	 * @param countField 求和字段
+	 * @return 求和语句
+	 */
+	public String getCountStatement(String sql, String countField) {
+		return cached(countStatements, countField + ':' + sql, k -> CountStatement.derive(sql, countField));
+	}
+
+	/**
+	 * 获取延迟关联的分页语句(见 {@link DeferredJoin}), 按主体语句的形状缓存.
+	 * 
+	 * @param sql 主体查询语句, 以#{#limit}结尾
+	 * @return 改写之后的语句, 没有标识@DeferredJoin则原样返回
+	 */
+	public String getDeferredStatement(String sql) {
+		if (deferredJoin == null) {
+			return sql;
+		}
+		return cached(deferredStatements, sql, k -> DeferredJoinStatement.rewrite(sql, deferredJoin.value()));
+	}
+
+	private static Map<String, String> statements() {
+		return new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > MAX_STATEMENTS;
+			}
+		};
+	}
+
+	private static String cached(Map<String, String> statements, String key, Function<String, String> function) {
+		String statement;
+		synchronized (statements) { // 按访问排序, get 也会调整顺序
+			statement = statements.get(key);
+		}
+		if (statement == null) {
+			statement = function.apply(key);
+			synchronized (statements) {
+				statements.put(key, statement);
+			}
+		}
+		return statement;
+	}
+
+	Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * 结果集可以由映射器直接转换成的实体
+	 * 
+	 * @return 不能直接转换时返回null
+	 */
+	Class<?> getBeanType() {
+		return beanType;
+	}
+
+	BeanStrategy getBeanStrategy() {
+		return beanStrategy;
+	}
+
+	QueryStrategy getQueryStrategy() {
+		return queryStrategy;
+	}
+
+	RowMapper getRowMapper() {
+		return rowMapper;
+	}
+
+	ModifyStrategy getModifyStrategy() {
+		return modifyStrategy;
+	}
+
+	@Override
+	public String toString() {
+		return method.toString();
+	}
+}
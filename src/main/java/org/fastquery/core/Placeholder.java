@@ -48,12 +48,18 @@ public final class Placeholder {
 	public static final String ID = "#{#id}";
 	public static final String ID_REG = "\\#\\{\\#id\\}";
 
+	public static final String SETS = "#{#sets}";
 	public static final String SETS_REG = "\\#\\{\\#sets\\}";
+
+	public static final String WHERE = "#{#where}";
 	public static final String WHERE_REG = "\\#\\{\\#where\\}";
 
 	public static final String LIMIT = "#{#limit}";
 	public static final String LIMIT_RGE = "\\#\\{\\#limit\\}";
 
+	public static final String KEYSET = "#{#keyset}";
+	public static final String KEYSET_REG = "\\#\\{\\#keyset\\}";
+
 	public static final String SP1_REG = "\\?\\d+";
 
 	/**
@@ -29,10 +29,7 @@ import java.util.List;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import org.fastquery.filter.FilterChainHandler;
-import org.fastquery.mapper.QueryPool;
-import org.fastquery.page.Page;
 import org.fastquery.util.FastQueryJSONObject;
-import org.fastquery.util.TypeUtil;
 
 /**
  * 
@@ -46,43 +43,36 @@ public class Prepared {
 	}
 
 	/**
-	 * 执行方法
+	 * 执行方法, 由生成的Repository实现类直接调用
 	 * 
-	 * @param methodName 方法名称
-	 * @param methodDescriptor 方法完整描述(asm)
+	 * @param plan 方法的执行计划(由实现类的静态常量持有)
 	 * @param args 方法参数 注意: 此处参数列表的成员,永远都是包装类型(已经验证)
 	 * @param target 目标 Repository
 	 * @return 执行之后的值
 	 */
-	public static Object excute(String methodName, String methodDescriptor, Object[] args, Repository target) { // NO_UCD
+	public static Object excute(MethodPlan plan, Object[] args, Repository target) { // NO_UCD
+		QueryContext.checkRowHandling(plan);
 		long start = System.currentTimeMillis();
-		Method method = null;
+		Method method = plan.getMethod();
 		try {
-			@SuppressWarnings("unchecked") // 是动态生成的实例,因此它的接口可以很明确就是一个
-			Class<? extends Repository> iclazz = (Class<? extends Repository>) target.getClass().getInterfaces()[0];
-			method = TypeUtil.getMethod(iclazz, methodName, methodDescriptor);
-
-			// 如果是调试模式
-			if (FastQueryJSONObject.getDebug()) {
-				QueryPool.reset(iclazz.getName());
-			}
-
 			// QueryContext 生命开始
-			QueryContext.start(iclazz, method, args);
+			QueryContext.start(plan, args);
 
 			// 在businessProcess的先后加拦截器 ==================
 			// 注入BeforeFilter
-			Object object = FilterChainHandler.bindBeforeFilterChain(iclazz, target, method, args);
+			Object object = FilterChainHandler.bindBeforeFilterChain(plan, target, args);
 			if (object != void.class) {
 				return object;
 			}
 
 			LOG.info("准备执行方法:{}", method);
-			// 取出当前线程中method和args(BeforeFilter 有可能中途修换其他method, 因为过滤器有个功能this.change(..,...) )
-			object = businessProcess();
+			object = plan.getInListIndex() != -1 ? InListChunker.excute(plan, args, () -> businessProcess(plan)) : null;
+			if (object == null) { // 不需要切分
+				object = businessProcess(plan);
+			}
 
 			// 注入AfterFilter
-			object = FilterChainHandler.bindAfterFilterChain(iclazz, target, method, args, object); // 注意,这个方法的method,必须是原始的!!!
+			object = FilterChainHandler.bindAfterFilterChain(plan, target, args, object); // 注意,这个方法的method,必须是原始的!!!
 			// 在businessProcess的先后加拦截器 ================== End
 
 			return object;
@@ -95,7 +85,7 @@ public class Prepared {
 			}
 
 			sb.append('\n');
-			sb.append("发生方法:" + QueryContext.getMethod());
+			sb.append("发生方法:" + method);
 			sb.append('\n');
 			sb.append("执行过的sql:");
 
@@ -125,44 +115,36 @@ public class Prepared {
 		}
 	}
 
-	private static Object businessProcess() {
-		Method method = QueryContext.getMethod();
-		Class<?> returnType = QueryContext.getReturnType();
+	private static Object businessProcess(MethodPlan plan) {
 		// 目前只有一种可能:Query Interface
 		// 在这里是一个分水岭
-		if (QueryRepository.class.isAssignableFrom(QueryContext.getIclass())) { // 判断iclazz
-																				// 是否就是QueryRepository.class,或是其子类
+		if (QueryRepository.class.isAssignableFrom(plan.getIclass())) { // 判断iclazz
+																			// 是否就是QueryRepository.class,或是其子类
 			// QueryRepository 中的方法可分成4类
 			// 1. 同时包含有@Query和@Modify
 			// 2. 只包含@Query
 			// 3. 只包含@Modify 这是不允许的, 该检测已放在生成类之前做了.
 			// 4. 没有Query,也没有@Modify
-			Query[] querys = method.getAnnotationsByType(Query.class);
-			Modifying modifying = method.getAnnotation(Modifying.class);
-			QueryByNamed queryById = method.getAnnotation(QueryByNamed.class);
-			if ((querys.length > 0 || queryById != null) && modifying != null) { // ->进入Modify
-				return QueryProcess.getInstance().modifying();
-			} else if (querys.length > 0 || queryById != null) {
-				if (returnType == Page.class && queryById != null) { // ->进入QueryByNamed Page
-					return QueryProcess.getInstance().queryByNamedPage();
-				}
-
-				if (returnType == Page.class) { // ->进入Page
-					return QueryProcess.getInstance().queryPage();
-				}
-
-				// -> 进入query
-				return QueryProcess.getInstance().query();
-			} else {
-				// 分两种 是否有@Id
-				Id id = method.getAnnotation(Id.class);
-				if (id != null) {
-					return QueryProcess.getInstance().methodQuery(id);
-				} else {
-					return QueryProcess.getInstance().methodQuery();
-				}
+			// 在生成执行计划时已经归好类
+			QueryProcess process = QueryProcess.getInstance();
+			switch (plan.getKind()) {
+			case MODIFYING:
+				return process.modifying();
+			case QUERY_BY_NAMED_PAGE:
+				return process.queryByNamedPage();
+			case QUERY_PAGE:
+				return process.queryPage();
+			case QUERY:
+				return process.query();
+			case QUERY_STREAM:
+				return process.queryStream();
+			case QUERY_EACH:
+				return process.queryEach();
+			case METHOD_ID:
+				return process.methodQuery(plan.getId());
+			default:
+				return process.methodQuery();
 			}
-
 		} else {
 			throw new RepositoryException("不能识别的Repository");
 		}
@@ -1,22 +1,24 @@
 package org.fastquery.core;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.sql.DataSource;
 
 import org.slf4j.LoggerFactory;
-
-import com.alibaba.fastjson.JSONObject;
-
 import org.slf4j.Logger;
 import org.fastquery.dsm.FQueryProperties;
-import org.fastquery.util.TypeUtil;
 
 /**
  * 
@@ -28,17 +30,30 @@ public final class QueryContext {
 
 	private static ThreadLocal<QueryContext> threadLocal = new ThreadLocal<>();
 
-	private Method method; // 当前method
-	private boolean supporTx; // 是否需要事务支持
-	private boolean requirePk;// 改操作的返回值是否依赖主键
-	private Class<?> returnType; // 返回类型
+	private static final AtomicInteger WORKER_NUMBER = new AtomicInteger();
+	// 线程数有上限, 突发的请求在队列中排队, 而不是每个请求创建一个线程
+	private static final int WORKER_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	private static final ThreadPoolExecutor WORKERS = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> {
+				Thread thread = new Thread(r, "fastquery-worker-" + WORKER_NUMBER.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	static {
+		WORKERS.allowCoreThreadTimeOut(true);
+	}
+
+	private MethodPlan plan; // 当前method的执行计划
 	private Connection connection; // 当前连接
+	private StatementCache statementCache; // 当前物理连接的语句缓存,没有开启则为null
 	private String sourceName; // 当前数据源名称
-	private Class<? extends Repository> iclass;// 当前拦截到的接口
+	private String dataSourceName; // 实际所用数据源的名称
 	private Object[] args; // 当前方法的实参
 	private List<String> sqls = new ArrayList<>(); // 当前method所执行的SQL集合
 	private MetaData metaData; // 当前上下文元数据
 	private boolean builderQuery;
+	private boolean rowHandling; // 是否正在执行行回调
 
 	private static String lang = "zh_CN"; // 语言编码
 	// 作用于调式
@@ -51,7 +66,23 @@ public final class QueryContext {
 		return threadLocal.get();
 	}
 
-	static void start(Class<? extends Repository> iclass, Method method, Object[] args) throws SQLException {
+	/**
+	 * 行回调执行期间, 当前连接上的结果集还在逐行读取, 不允许在同一个线程上调用Repository的方法. 在 {@link #start(MethodPlan, Object[])} 之前检测, 以免关闭正在读取的连接.
+	 * 
+	 * @param plan 将要执行的方法
+	 */
+	static void checkRowHandling(MethodPlan plan) {
+		QueryContext context = threadLocal.get();
+		if (context != null && context.rowHandling) {
+			throw new RepositoryException(String.format("行回调(RowHandler/Consumer)中不能调用Repository的方法, 当前连接上的结果集还在逐行读取. 发生方法:%s", plan.getMethod()));
+		}
+	}
+
+	static void setRowHandling(boolean rowHandling) {
+		getQueryContext().rowHandling = rowHandling;
+	}
+
+	static void start(MethodPlan plan, Object[] args) throws SQLException {
 		if (threadLocal.get() != null && !debug) {
 			clear();
 			throw new SQLException("QueryContext 没有正确释放");
@@ -60,40 +91,166 @@ public final class QueryContext {
 			threadLocal.set(new QueryContext());
 		}
 		QueryContext context = getQueryContext();
-		context.iclass = iclass;
-		context.method = method;
+		context.plan = plan;
 		context.args = args;
 
-		context.sourceName = findSource(method.getParameters(), args);
+		context.sourceName = plan.getSourceName(args);
+		context.dataSourceName = getDataSourceName(context.sourceName, plan);
 		if (context.connection == null || context.connection.isClosed()) { // 不加这行,测试StudentDBServiceTest会卡顿
-			context.connection = getDataSource(context.sourceName, iclass.getName()).getConnection();
+			checkinStatementCache(context);
+			context.connection = getDataSource(context.dataSourceName).getConnection();
+			context.statementCache = StatementCache.acquire(context.dataSourceName, context.connection);
 			if (debug) {
 				getQueryContext().connection.setAutoCommit(false);
 			}
 		}
 
-		Transactional t = context.method.getAnnotation(Transactional.class);
-		context.supporTx = t == null || !t.propagation().equals(Propagation.NOT_SUPPORTED);
-
-		context.returnType = method.getReturnType();
+		int bqIndex = plan.getBuilderQueryIndex();
+		BuilderQuery bq = bqIndex != -1 ? (BuilderQuery) args[bqIndex] : null;
+		context.builderQuery = false;
+		if (bq != null) {
+			context.builderQuery = true;
+			context.metaData = new MetaData();
+			bq.accept(context.metaData);
+		}
+	}
 
-		if (context.returnType == Map.class || context.returnType == JSONObject.class || context.returnType == Primarykey.class
-				|| TypeUtil.hasDefaultConstructor(context.returnType)) {
-			context.requirePk = true;
+	/**
+	 * 在另一个线程上执行当前方法的一部分工作(如:分页的求和语句), 该线程有自己的 QueryContext, 使用连接池中的另一个连接. <br>
+	 * 调用者在 {@link Fork#join()} 时, 若工作线程还没有拿到连接, 就改在调用者自己的连接上执行, 因此不会出现每个调用者都占着一个连接、每个工作线程都在等另一个连接的死锁. 不过,
+	 * 要让两者真正同时执行, 连接池的容量需要是并发调用数的两倍. <br>
+	 * 调试模式下连接需要复用(未提交的数据只对这个连接可见), 因此仍在当前线程上执行.
+	 * 
+	 * @param supplier 要执行的工作
+	 * @return 执行中的工作
+	 */
+	static <T> Fork<T> fork(Supplier<T> supplier) {
+		Fork<T> fork = new Fork<>(supplier);
+		if (debug) {
+			fork.state.set(Fork.TAKEN);
+			fork.future.complete(supplier.get());
+			return fork;
 		}
+		QueryContext context = getQueryContext();
+		MethodPlan plan = context.plan;
+		Object[] args = context.args;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader(); // 全局配置是按ClassLoader存放的
+		WORKERS.execute(() -> {
+			if (!fork.state.compareAndSet(Fork.PENDING, Fork.STARTING)) {
+				return; // 调用者已经自己执行了
+			}
+			Thread thread = Thread.currentThread();
+			ClassLoader old = thread.getContextClassLoader();
+			thread.setContextClassLoader(classLoader);
+			try {
+				start(plan, args);
+				if (fork.state.compareAndSet(Fork.STARTING, Fork.RUNNING)) { // 拿到连接时, 调用者可能已经自己执行了
+					fork.future.complete(supplier.get());
+				}
+			} catch (Throwable e) {
+				if (fork.state.compareAndSet(Fork.STARTING, Fork.RUNNING) || fork.state.get() == Fork.RUNNING) {
+					fork.future.completeExceptionally(e instanceof SQLException ? new RepositoryException(e.getMessage(), e) : e);
+				}
+			} finally {
+				try {
+					if (threadLocal.get() != null) {
+						clear();
+					}
+				} catch (SQLException e) {
+					LOG.error("数据库连接无法释放", e);
+				}
+				thread.setContextClassLoader(old);
+			}
+		});
+		return fork;
+	}
 
-		BuilderQuery bq = null;
-		for (Object arg : args) {
-			if (arg instanceof BuilderQuery) {
-				bq = (BuilderQuery) arg;
-				break;
+	/**
+	 * 在共享的工作线程上, 以当前方法和实参建立另一个 QueryContext(使用连接池中的另一个连接), 然后执行 task. 拿不到连接时 task 不执行, 调用者不能依赖它一定执行. <br>
+	 * 调试模式下连接需要复用, 什么也不做.
+	 * 
+	 * @param task 要执行的工作, 自己处理异常
+	 */
+	static void runWithConnection(Runnable task) {
+		if (debug) {
+			return;
+		}
+		QueryContext context = getQueryContext();
+		MethodPlan plan = context.plan;
+		Object[] args = context.args;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader(); // 全局配置是按ClassLoader存放的
+		WORKERS.execute(() -> {
+			Thread thread = Thread.currentThread();
+			ClassLoader old = thread.getContextClassLoader();
+			thread.setContextClassLoader(classLoader);
+			try {
+				start(plan, args);
+				task.run();
+			} catch (SQLException e) {
+				LOG.warn("工作线程没能获取连接:{}", e.getMessage());
+			} finally {
+				try {
+					if (threadLocal.get() != null) {
+						clear();
+					}
+				} catch (SQLException e) {
+					LOG.error("数据库连接无法释放", e);
+				}
+				thread.setContextClassLoader(old);
 			}
+		});
+	}
+
+	/**
+	 * 由 {@link QueryContext#fork(Supplier)} 交给另一个线程执行的工作
+	 * 
+	 * @param <T> 结果类型
+	 */
+	static final class Fork<T> {
+
+		private static final int PENDING = 0; // 在队列中等待
+		private static final int STARTING = 1; // 工作线程正在获取连接
+		private static final int RUNNING = 2; // 工作线程已拿到连接, 结果由它给出
+		private static final int TAKEN = 3; // 由调用者自己执行
+
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final Supplier<T> supplier;
+
+		private Fork(Supplier<T> supplier) {
+			this.supplier = supplier;
 		}
-		if (bq != null) {
-			context.builderQuery = true;
-			context.metaData = new MetaData();
-			bq.accept(context.metaData);
+
+		/**
+		 * 
+		 * @return 结果, 用于不等待的场景. 注意: 不会被调用者取走, 一定由工作线程完成
+		 */
+		CompletableFuture<T> future() {
+			return future;
 		}
+
+		/**
+		 * 获取结果. 工作线程还没拿到连接时, 在当前线程(当前连接)上执行, 否则等待工作线程.
+		 * 
+		 * @return 结果
+		 */
+		T join() {
+			if (state.compareAndSet(PENDING, TAKEN) || state.compareAndSet(STARTING, TAKEN)) {
+				T result = supplier.get();
+				future.complete(result);
+				return result;
+			}
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof RepositoryException ? (RepositoryException) cause : new RepositoryException(cause);
+			}
+		}
+	}
+
+	static ExecutorService getWorkers() {
+		return WORKERS;
 	}
 
 	static List<String> getSqls() {
@@ -114,7 +271,16 @@ public final class QueryContext {
 	}
 
 	public static Method getMethod() {
-		return getQueryContext().method;
+		return getQueryContext().plan.getMethod();
+	}
+
+	/**
+	 * 获取当前方法的执行计划
+	 * 
+	 * @return 执行计划
+	 */
+	public static MethodPlan getPlan() {
+		return getQueryContext().plan;
 	}
 
 	public static void setLang(String lang) { // NO_UCD
@@ -125,12 +291,57 @@ public final class QueryContext {
 		return getQueryContext().connection;
 	}
 
+	/**
+	 * 获取当前连接的语句缓存
+	 * 
+	 * @return 语句缓存, 没有开启则返回null
+	 */
+	static StatementCache getStatementCache() {
+		QueryContext context = getQueryContext();
+		return context != null ? context.statementCache : null;
+	}
+
+	/**
+	 * 把当前连接从上下文中分离出来, 分离之后 QueryContext 生命终止时不再释放它, 改由调用者负责关闭. <br>
+	 * 调试模式下连接需要在多个方法之间复用, 因此不分离.
+	 * 
+	 * @return 被分离的连接, 调试模式下返回null
+	 */
+	static Connection detachConnection() {
+		if (debug) {
+			return null;
+		}
+		QueryContext context = getQueryContext();
+		Connection conn = context.connection;
+		context.connection = null;
+		checkinStatementCache(context);
+		return conn;
+	}
+
+	/**
+	 * 获取当前方法实际所用数据源的名称
+	 * 
+	 * @return 数据源名称
+	 */
+	static String getDataSourceName() {
+		return getQueryContext().dataSourceName;
+	}
+
 	public static Object[] getArgs() {
 		return getQueryContext().args;
 	}
 
+	/**
+	 * 替换当前方法的实参, 如: 切分之后的每一块用各自的实参执行
+	 * 
+	 * @param args 实参
+	 */
+	static void setArgs(Object[] args) {
+		getQueryContext().args = args;
+	}
+
 	public static Class<? extends Repository> getIclass() {
-		return getQueryContext().iclass;
+		return getQueryContext().plan.getIclass();
 	}
 
 	static void clear() throws SQLException {
@@ -142,13 +353,13 @@ public final class QueryContext {
 					context.metaData.clear();
 					context.metaData = null;
 				}
-				context.method = null;
+				context.plan = null;
 				context.sqls.clear();
 				context.sqls = null;
-				context.returnType = null;
 				context.sourceName = null;
-				context.iclass = null;
+				context.dataSourceName = null;
 				context.args = null;
+				checkinStatementCache(context);
 				if (context.connection != null) {
 					context.connection.close();
 				}
@@ -167,23 +378,37 @@ public final class QueryContext {
 		clear();
 	}
 
+	private static void checkinStatementCache(QueryContext context) {
+		if (context.statementCache != null) {
+			context.statementCache.checkin();
+			context.statementCache = null;
+		}
+	}
+
+	/**
+	 * 确定当前所用数据源的名称. 注意: 根据dataSourceName查优先
+	 * 
+	 * @param dataSourceName 数据源名称, 若为null或不存在,那么就根据执行计划来查找
+	 * @param plan 执行计划
+	 * @return 数据源名称
+	 */
+	private static String getDataSourceName(String dataSourceName, MethodPlan plan) {
+		if (dataSourceName != null && FQueryProperties.findDataSource(dataSourceName) != null) {
+			return dataSourceName;
+		}
+		// basePackage 绑定的数据源的名字
+		return plan.getDataSourceName();
+	}
+
 	/**
-	 * 根据数据源名称或者className,获取数据源. 注意: 根据dataSourceName查优先
+	 * 根据数据源的名称,获取数据源.
 	 * 
-	 * @param dataSourceName 数据源名称, 若为null,那么就根据className来查找
-	 * @param className Repository class
+	 * @param dataSourceName 数据源名称
 	 * @return 数据源
 	 */
-	private static DataSource getDataSource(String dataSourceName, String className) {
+	private static DataSource getDataSource(String dataSourceName) {
 
-		// 根据dataSourceName 查
 		DataSource dataSource = FQueryProperties.findDataSource(dataSourceName);
-		if (dataSource == null) {
-			// 根据basePackage 查找出 数据源的名字
-			String name = FQueryProperties.findDataSourceName(className);
-			// 再根据数据源的名字查寻出数据库对象
-			dataSource = FQueryProperties.findDataSource(name);
-		}
 
 		// dataSource 为null 什么也做不了
 		if (dataSource == null) {
@@ -194,20 +419,8 @@ public final class QueryContext {
 		return dataSource;
 	}
 
-	/**
-	 * 标识有Source注解的参数的具体的实参.
-	 * 
-	 * @param parameters 类型集合
-	 * @param args 实参
-	 * @return 值
-	 */
-	private static String findSource(Parameter[] parameters, Object... args) {
-		Object obj = TypeUtil.findAnnotationParameterVal(Source.class, parameters, args);
-		return obj != null ? obj.toString() : null;
-	}
-
 	public static Class<?> getReturnType() {
-		return getQueryContext().returnType;
+		return getQueryContext().plan.getReturnType();
 	}
 
 	/**
@@ -217,7 +430,7 @@ public final class QueryContext {
 	 * @throws SQLException 异常
 	 */
 	static void setAutoCommit(boolean autoCommit) throws SQLException {
-		if (!debug && getQueryContext().supporTx) {
+		if (!debug && getQueryContext().plan.isSupporTx()) {
 			getQueryContext().connection.setAutoCommit(autoCommit);
 		}
 	}
@@ -228,7 +441,7 @@ public final class QueryContext {
 	 * @throws SQLException 异常
 	 */
 	static void commit() throws SQLException {
-		if (!debug && getQueryContext().supporTx) {
+		if (!debug && getQueryContext().plan.isSupporTx()) {
 			getQueryContext().connection.commit();
 		}
 	}
@@ -239,13 +452,13 @@ public final class QueryContext {
 	 * @throws SQLException 异常
 	 */
 	static void rollback() throws SQLException {
-		if (!debug && getQueryContext().supporTx) {
+		if (!debug && getQueryContext().plan.isSupporTx()) {
 			getQueryContext().connection.rollback();
 		}
 	}
 
 	static boolean isRequirePk() {
-		return getQueryContext().requirePk;
+		return getQueryContext().plan.isRequirePk();
 	}
 
 	/**
@@ -22,23 +22,19 @@
 
 package org.fastquery.core;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import org.fastquery.mapper.QueryPool;
-import org.fastquery.page.NotCount;
+import org.fastquery.page.KeysetPageable;
 import org.fastquery.page.Pageable;
-import org.fastquery.page.PageableImpl;
 import org.fastquery.struct.ParamMap;
 import org.fastquery.struct.SQLValue;
+import org.fastquery.util.CountStatement;
 import org.fastquery.util.TypeUtil;
 
 /**
@@ -61,15 +57,14 @@ public class QueryParser {
 	 * @return
 	 */
 	static List<SQLValue> modifyParser() {
-		Method method = QueryContext.getMethod();
+		MethodPlan plan = QueryContext.getPlan();
 		Object[] args = QueryContext.getArgs();
-		Query[] queries = method.getAnnotationsByType(Query.class);
 
-		Modifying modifying = method.getAnnotation(Modifying.class);
+		Modifying modifying = plan.getModifying();
 		String id = modifying.id(); // 不可能为null
 		String table = modifying.table();
 
-		List<String> sqls = TypeUtil.getQuerySQL(method, queries, args);
+		List<String> sqls = TypeUtil.getQuerySQL(plan, args);
 
 		int sqlCount = sqls.size();
 
@@ -79,8 +74,8 @@ public class QueryParser {
 			// 获取sql
 			String sql = sqls.get(jk);
 			// 替换SQL中的占位变量符
-			sql = sql.replaceAll(Placeholder.TABLE_REG, Matcher.quoteReplacement(table));
-			sql = sql.replaceAll(Placeholder.ID_REG, Matcher.quoteReplacement(id));
+			sql = StringUtils.replace(sql, Placeholder.TABLE, table);
+			sql = StringUtils.replace(sql, Placeholder.ID, id);
 			msvs.add(inParser(sql));
 		}
 
@@ -93,40 +88,30 @@ public class QueryParser {
 	 * @return
 	 */
 	static SQLValue queryParser() {
-		Method method = QueryContext.getMethod();
-		Query[] queries = method.getAnnotationsByType(Query.class);
-		String sql = TypeUtil.getQuerySQL(method, queries, QueryContext.getArgs()).get(0);
+		String sql = TypeUtil.getQuerySQL(QueryContext.getPlan(), QueryContext.getArgs()).get(0);
 		return inParser(sql);
 	}
 
 	public static List<SQLValue> pageParser() {
 
 		// 当前页query
-		// 求和query
-		// 下一页query
+		// 求和query(不求和时,当前页多查一行,用来判断有没有下一页)
 		List<SQLValue> sqlValues = new ArrayList<>(2);
 
-		Method method = QueryContext.getMethod();
+		MethodPlan plan = QueryContext.getPlan();
 		Object[] args = QueryContext.getArgs();
-		Query[] querys = method.getAnnotationsByType(Query.class);
 
 		// 获取sql
-		String sql = TypeUtil.getQuerySQL(method, querys, args).get(0);
-		Pageable pageable = null;
-		for (Object arg : args) {
-			if (arg instanceof Pageable) { // 如果当前arg是Pageable接口的一个实例
-				pageable = (Pageable) arg;
-				break;
-			}
-		}
-		Parameter[] parameters = method.getParameters();
-		if (pageable == null) {
-			// 没有传递Pageable,那么必然有 pageIndex, pageSize 不然,不能通过初始化
-			pageable = new PageableImpl(TypeUtil.findPageIndex(parameters, args), TypeUtil.findPageSize(parameters, args));
+		String sql = TypeUtil.getQuerySQL(plan, args).get(0);
+		Pageable pageable = plan.getPageable(args);
+
+		if (pageable instanceof KeysetPageable) { // 键集分页,不求和
+			sqlValues.add(inParser(keysetLimit(sql, (KeysetPageable) pageable), (KeysetPageable) pageable));
+			return sqlValues;
 		}
 
 		int firstResult = pageable.getOffset();
-		int maxResults = pageable.getPageSize();
+		int maxResults = plan.isNotCount() ? pageable.getPageSize() + 1 : pageable.getPageSize();
 
 		LOG.debug("firstResult:{} maxResults:{}", firstResult, maxResults);
 
@@ -138,20 +123,20 @@ public class QueryParser {
 		sb.append(maxResults);
 		String limit = sb.toString();
 
-		List<String> strs = TypeUtil.matches(sql, Placeholder.LIMIT_RGE);
-		if (strs.isEmpty()) { // 如果没有#{#limit}, 默认在末尾增加.
+		if (sql.indexOf(Placeholder.LIMIT) == -1) { // 如果没有#{#limit}, 默认在末尾增加.
 			sql += Placeholder.LIMIT;
 		}
 
 		String ssql = sql; // 创建一个副本,String是不可变的,在后面sql不管怎么改变,也不会影响ssql
+		String psql = plan.getDeferredStatement(ssql); // 标识了@DeferredJoin, 改写成延迟关联
 
-		sql = sql.replaceFirst(Placeholder.LIMIT_RGE, Matcher.quoteReplacement(limit));
+		sql = StringUtils.replaceOnce(psql, Placeholder.LIMIT, limit);
 
 		sqlValues.add(inParser(sql));
 
-		if (method.getAnnotation(NotCount.class) == null) {
+		if (!plan.isNotCount()) {
 			// 求和 ---------------------------------------------------
-			Query query = querys[0];
+			Query query = plan.getQuery();
 			String countField = query.countField();
 			// 获取求和sql
 			String countQuery = query.countQuery();
@@ -160,112 +145,61 @@ public class QueryParser {
 			if (QueryContext.isBuilderQuery()) {
 				countField = QueryContext.getCountField();
 				countQuery = QueryContext.getCountQuery();
-				countQuery = TypeUtil.paramNameFilter(method, countQuery);
+				countQuery = TypeUtil.paramNameFilter(plan, countQuery);
 			}
 			// end
 
 			if (countQuery == null || "".equals(countQuery)) { // 表明在声明时没有指定求和语句
-				// 那么通过主体查询语句算出count语句
-				sql = calcCountStatement(sql, countField);
-				sql = TypeUtil.getCountQuerySQL(method, sql, args);
+				// 那么通过主体查询语句算出count语句, 主体语句不含分页的limit
+				sql = plan.getCountStatement(StringUtils.replaceOnce(ssql, Placeholder.LIMIT, ""), countField);
+				sql = TypeUtil.getCountQuerySQL(plan, sql, args);
 			} else {
-				sql = TypeUtil.getCountQuerySQL(method, countQuery, args);
+				// 求和语句不需要order by 和 limit
+				sql = CountStatement.strip(TypeUtil.getCountQuerySQL(plan, countQuery, args));
 			}
 
-			// 求和语句不需要order by 和 limit
-			// (?i) : 表示不区分大小写
-			// 过滤order by 后面的字符串(包含本身)
-			sql = sql.replaceFirst("(?i)(order by )(.|\n)+", "");
-			// 过滤limit后面的字符串(包含自身)
-			sql = sql.replaceFirst("(?i)(limit )(.|\n)+", "");
-
-			sqlValues.add(inParser(sql));
-		} else {
-			// 在查一下推算出下一页是否有数据, 要不要把下一页的数据存储起来,有待考虑...
-			firstResult = pageable.getOffset() + pageable.getPageSize();
-			sb = new StringBuilder(LIMIT);
-			sb.append(firstResult);
-			sb.append(',');
-			sb.append(maxResults);
-			limit = sb.toString();
-			sql = ssql.replaceFirst(Placeholder.LIMIT_RGE, Matcher.quoteReplacement(limit));
-
 			sqlValues.add(inParser(sql));
 		}
 
 		return sqlValues;
 	}
 
-	private static String calcCountStatement(String sql, String countField) {
-		String tmp = sql.toLowerCase();
-		// 计算求和语句
-		// 把select 与 from 之间的 内容变为 count(countField)
-		int fromIndex = tmp.lastIndexOf("from") - 1;
-		StringBuilder sb = new StringBuilder("select count(");
-		sb.append(countField);
-		sb.append(')');
-		sb.append(sql.substring(fromIndex));
-		return sb.toString();
-	}
-
 	public static List<SQLValue> pageParserByNamed() {
 
 		// 当前页query
-		// 求和query
-		// 下一页query
+		// 求和query(不求和时,当前页多查一行,用来判断有没有下一页)
 		List<SQLValue> sqlValues = new ArrayList<>(2);
 
 		String query = QueryPool.render(true);
 
-		Method method = QueryContext.getMethod();
-		Object[] args = QueryContext.getArgs();
+		MethodPlan plan = QueryContext.getPlan();
 		// 获取 pageable
-		Pageable pageable = null;
-		for (Object arg : args) {
-			if (arg instanceof Pageable) { // 如果当前arg是Pageable接口的一个实例
-				pageable = (Pageable) arg;
-				break;
-			}
-		}
-		Parameter[] parameters = method.getParameters();
-		if (pageable == null) {
-			// 没有传递Pageable,那么必然有 pageIndex, pageSize 不然,不能通过初始化
-			pageable = new PageableImpl(TypeUtil.findPageIndex(parameters, args), TypeUtil.findPageSize(parameters, args));
-		}
-		// 获取 pageable End
+		Pageable pageable = plan.getPageable(QueryContext.getArgs());
 
 		// 获取sql
-		String sql = TypeUtil.paramNameFilter(method, query);
+		String sql = TypeUtil.paramNameFilter(plan, query);
+
+		if (pageable instanceof KeysetPageable) { // 键集分页,不求和
+			sqlValues.add(inParser(keysetLimit(sql, (KeysetPageable) pageable), (KeysetPageable) pageable));
+			return sqlValues;
+		}
 
-		String limit = getLimit(pageable.getOffset(), pageable.getPageSize());
+		String limit = getLimit(pageable.getOffset(), plan.isNotCount() ? pageable.getPageSize() + 1 : pageable.getPageSize());
 		if (sql.indexOf(Placeholder.LIMIT) != -1) { // 如果#{#limit}存在
-			sql = sql.replaceAll(Placeholder.LIMIT_RGE, Matcher.quoteReplacement(limit));
+			sql = StringUtils.replace(sql, Placeholder.LIMIT, limit);
 		} else {
 			sql += limit;
 		}
 
 		sqlValues.add(inParser(sql));
 
-		if (method.getAnnotation(NotCount.class) == null) { // 需要求和
+		if (!plan.isNotCount()) { // 需要求和
 			String countQuery = QueryPool.render(false);
-			sql = TypeUtil.paramNameFilter(method, countQuery);
+			sql = TypeUtil.paramNameFilter(plan, countQuery);
 
 			sqlValues.add(inParser(sql));
 
 			// 求和 --------------------------------------------------- End
-		} else {
-			// 获取sql
-			sql = TypeUtil.paramNameFilter(method, query); // 06-11-11
-			// 在查一下推算出下一页是否有数据, 要不要把下一页的数据存储起来,有待考虑...
-			int firstResult = pageable.getOffset() + pageable.getPageSize();
-			limit = getLimit(firstResult, pageable.getPageSize());
-			if (sql.indexOf(Placeholder.LIMIT) != -1) {
-				sql = sql.replaceAll(Placeholder.LIMIT_RGE, Matcher.quoteReplacement(limit));
-			} else {
-				sql += limit;
-			}
-
-			sqlValues.add(inParser(sql));
 		}
 
 		return sqlValues;
@@ -279,18 +213,63 @@ public class QueryParser {
 		return sb.toString();
 	}
 
+	// 键集分页: 按排序键排序, 多查一行以判断有没有下一页
+	private static String keysetLimit(String sql, KeysetPageable keyset) {
+		if (sql.indexOf(Placeholder.KEYSET) == -1) {
+			throw new RepositoryException(String.format("%s 中没有%s,不能使用键集分页", sql, Placeholder.KEYSET));
+		}
+		String direction = keyset.isDesc() ? " desc" : "";
+		StringBuilder sb = new StringBuilder(" order by ");
+		String[] keys = keyset.getKeys();
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(keys[i]);
+			sb.append(direction);
+		}
+		sb.append(LIMIT);
+		sb.append(keyset.getPageSize() + 1);
+		if (sql.indexOf(Placeholder.LIMIT) == -1) {
+			sql += Placeholder.LIMIT;
+		}
+		return StringUtils.replaceOnce(sql, Placeholder.LIMIT, sb.toString());
+	}
+
 	private static SQLValue inParser(String sql) {
+		return inParser(sql, null);
+	}
+
+	private static SQLValue inParser(String sql, KeysetPageable keyset) {
 		int[] ints = TypeUtil.getSQLParameter(sql);
 		// sql 中的"?"号调整
 		// sql中的"?"可能会因为方法参数是一个集合,会变成多个, 举例说明: in (?) 那么这个?的实际个数取决于传递的集合长度
-		ParamMap paramMap = TypeUtil.getParamMap(ints, QueryContext.getArgs());
-		Map<Integer, Integer> rpates = paramMap.getRps();
-		List<Object> objs = paramMap.getObjs();
-
-		Set<Entry<Integer, Integer>> entities = rpates.entrySet();
-		for (Entry<Integer, Integer> entry : entities) {
-			sql = TypeUtil.replace(sql, entry.getKey(), entry.getValue());
+		// 开启了IN列表补齐时, 只补齐独自构成 IN 列表的参数
+		boolean[] inLists = QueryContext.getPlan().isInListPadding() ? TypeUtil.getInListParameters(sql) : null;
+		ParamMap paramMap = TypeUtil.getParamMap(ints, inLists, QueryContext.getArgs());
+		// #{#keyset} 之前的"?数字"所产生的值的个数, 游标值插在它们之后. 不能数展开后的"?", 字符串或注释中也可能有"?"
+		int keysetAt = 0;
+		if (keyset != null && keyset.getAfter() != null) {
+			int before = TypeUtil.getSQLParameter(sql.substring(0, sql.indexOf(Placeholder.KEYSET))).length;
+			keysetAt = TypeUtil.getParamMap(Arrays.copyOf(ints, before), inLists != null ? Arrays.copyOf(inLists, before) : null, QueryContext.getArgs())
+					.getObjs().size();
+		}
+		sql = TypeUtil.replace(sql, paramMap.getRps());
+		List<Object> values = paramMap.getObjs();
+		if (keyset != null) {
+			// #{#keyset} 替换成 (k1,k2) > (?,?), 游标值插入到它前面的参数对应的值之后
+			Object[] after = keyset.getAfter();
+			String predicate = "1 = 1";
+			if (after != null) {
+				String[] keys = keyset.getKeys();
+				String cmp = keyset.isDesc() ? " < " : " > ";
+				predicate = keys.length == 1 ? keys[0] + cmp + '?'
+						: '(' + String.join(", ", keys) + ')' + cmp + '(' + StringUtils.repeat("?", ", ", keys.length) + ')';
+				values = new ArrayList<>(values);
+				values.addAll(keysetAt, Arrays.asList(after));
+			}
+			sql = StringUtils.replaceOnce(sql, Placeholder.KEYSET, predicate);
 		}
-		return new SQLValue(sql, objs);
+		return new SQLValue(sql, values);
 	}
 }
@@ -24,26 +24,21 @@ package org.fastquery.core;
 
 import java.io.File;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.TypeVariable;
 import java.math.BigInteger;
-import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
-import org.slf4j.LoggerFactory;
-import org.slf4j.Logger;
 import org.apache.commons.lang3.StringUtils;
-import org.fastquery.handler.ModifyingHandler;
-import org.fastquery.handler.QueryHandler;
-import org.fastquery.page.NotCount;
+import org.fastquery.page.AsyncPage;
+import org.fastquery.page.KeysetPage;
+import org.fastquery.page.KeysetPageable;
 import org.fastquery.page.PageImpl;
 import org.fastquery.page.Pageable;
-import org.fastquery.page.PageableImpl;
 import org.fastquery.page.Slice;
 import org.fastquery.struct.RespUpdate;
 import org.fastquery.struct.SQLValue;
@@ -52,8 +47,7 @@ import org.fastquery.util.FastQueryJSONObject;
 import org.fastquery.util.TypeUtil;
 import org.objectweb.asm.Type;
 
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSON;
 
 /**
  * 
@@ -61,8 +55,6 @@ import com.alibaba.fastjson.JSONObject;
  */
 class QueryProcess {
 
-	private static final Logger LOG = LoggerFactory.getLogger(QueryProcess.class);
-
 	private static class LazyHolder {
 		private static final QueryProcess INSTANCE = new QueryProcess();
 
@@ -84,127 +76,134 @@ class QueryProcess {
 
 	// 改操作
 	Object modifying() {
-		Method method = QueryContext.getMethod();
-		Class<?> returnType = QueryContext.getReturnType();
+		MethodPlan plan = QueryContext.getPlan();
 
 		// 获取待执行的sql
 		List<SQLValue> sqlValues = QueryParser.modifyParser();
 
 		// 执行
-		List<RespUpdate> respUpdates;
-		if (QueryContext.isRequirePk()) {
-			respUpdates = DB.modify(sqlValues, true);
-		} else {
-			respUpdates = DB.modify(sqlValues, false);
-		}
+		List<RespUpdate> respUpdates = DB.modify(sqlValues, plan.isRequirePk());
 
-		Long autoIncKey = respUpdates.get(0).getPk();
+		// 数据已改变, 引用了该表的分页总行数缓存失效
+		TotalCache.invalidate(plan.getModifying().table());
 
-		// 返回类型分析=====================================
-		ModifyingHandler mh = ModifyingHandler.getInstance();
-		if (returnType == void.class) {
-			return mh.voidType();
-		} else if (returnType == int.class) {
-			return mh.intType(respUpdates);
-		} else if (returnType == int[].class) {
-			int len = respUpdates.size();
-			int[] effects = new int[len];
-			for (int i = 0; i < len; i++) {
-				effects[i] = respUpdates.get(i).getEffect();
-			}
-			return effects;
-		} else if (returnType == Map.class) { // 如果然会值是Map,那么一定是insert或update,在生成实现的时候已经做安全检测
-			return mh.mapType(autoIncKey, TypeUtil.mapValueTyep(method));
-		} else if (returnType == JSONObject.class) {
-			return mh.jsonObjectType(autoIncKey);
-		} else if (returnType == Primarykey.class) {
-			return mh.primarykeyType(autoIncKey);
-		} else if (returnType == boolean.class) {
-			return mh.booleanType(respUpdates);
-		} else { // 把值强制转换成 returnType
-			return mh.beanType(autoIncKey);
-		}
-		// 返回类型分析===================================== End
+		Long autoIncKey = respUpdates.get(0).getPk();
 
+		// 返回类型分析(在生成执行计划时已经确定好处理策略)
+		return plan.getModifyStrategy().handle(respUpdates, autoIncKey);
 	}
 
 	// 查操作
 	Object query() {
-
-		Method method = QueryContext.getMethod();
-		Class<?> returnType = QueryContext.getReturnType();
+		MethodPlan plan = QueryContext.getPlan();
 		SQLValue sqlValue = QueryParser.queryParser();
-		List<Map<String, Object>> keyvals = DB.find(sqlValue);
+		// 返回类型分析(在生成执行计划时已经确定好处理策略)
+		Class<?> beanType = plan.getBeanType();
+		if (beanType != null) { // 由映射器直接把每一行转换成实体
+			return plan.getBeanStrategy().handle(DB.find(sqlValue, beanType));
+		}
 
+		List<Map<String, Object>> keyvals = DB.find(sqlValue);
 		// 上面的try发生异常了,才会导致keyvals为null, 不过异常一旦捕获到就throw了,因此,程序执行到这里keyvals不可能为null.
-		// 返回类型分析=====================================
-		QueryHandler qh = QueryHandler.getInstance();
-		if (returnType == long.class) {
-			return qh.longType(keyvals);
-		} else if (returnType == int.class) {
-			return qh.intType(keyvals);
-		} else if (returnType == boolean.class) {
-			return qh.booleanType(keyvals);
-		} else if (returnType == Map.class) {
-			return qh.mapType(keyvals, TypeUtil.mapValueTyep(method));
-		} else if (TypeUtil.isListMapSO(method.getGenericReturnType())) {
-			return qh.listType(keyvals, TypeUtil.listMapValueTyep(method));
-		} else if (returnType == List.class) {
-			return qh.list(keyvals);
-		} else if (returnType == JSONObject.class) {
-			return qh.jsonObjeType(keyvals);
-		} else if (returnType == JSONArray.class) {
-			return qh.jsonArrayType(keyvals);
-		} else if (TypeUtil.isWarrp(returnType)) {
-			return qh.wrapperType(method, returnType, keyvals);
-		} else if (TypeUtil.isWarrp(returnType.getComponentType()) || TypeUtil.hasDefaultConstructor(returnType.getComponentType())) {
-			// 基本类型数组, bean数组
-			return qh.wrapperAarryType(returnType, keyvals);
-		} else {
-			return qh.beanType(keyvals);
-		}
-		// 返回类型分析===================================== End
+		return plan.getQueryStrategy().handle(keyvals);
+	}
+
+	// 流式查询, 连接的生命周期交由游标管理
+	Object queryStream() {
+		MethodPlan plan = QueryContext.getPlan();
+		SQLValue sqlValue = QueryParser.queryParser();
+		Cursor<Object> cursor = DB.cursor(sqlValue, plan);
+		return plan.getReturnType() == Stream.class ? cursor.stream() : cursor;
+	}
+
+	// 行回调查询, 逐行交给RowHandler处理
+	Object queryEach() {
+		MethodPlan plan = QueryContext.getPlan();
+		RowHandler<Object> rowHandler = plan.getRowHandler(QueryContext.getArgs());
+		SQLValue sqlValue = QueryParser.queryParser();
+		DB.each(sqlValue, plan, rowHandler);
+		return null;
 	}
 
 	// 分页查询
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	Object queryPage() {
-		Method method = QueryContext.getMethod();
-		Object[] args = QueryContext.getArgs();
-
-		Pageable pageable = null;
-		for (Object arg : args) {
-			if (arg instanceof Pageable) { // 如果当前arg是Pageable接口的一个实例
-				pageable = (Pageable) arg;
-				break;
-			}
-		}
-		Parameter[] parameters = method.getParameters();
-		if (pageable == null) {
-			// 没有传递Pageable,那么必然有 pageIndex, pageSize 不然,不能通过初始化
-			pageable = new PageableImpl(TypeUtil.findPageIndex(parameters, args), TypeUtil.findPageSize(parameters, args));
+		return page(QueryParser.pageParser());
+	}
+
+	// 分页查询(仅针对QueryByNamed Page分页查询,不针对Query)
+	Object queryByNamedPage() {
+		return page(QueryParser.pageParserByNamed());
+	}
+
+	/**
+	 * 执行分页语句, 构建分页对象
+	 * 
+	 * @param sqlValues 第1条是当前页的查询语句, 第2条是求和语句(不求和时,是下一页的探测语句)
+	 * @return 分页对象
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Object page(List<SQLValue> sqlValues) {
+		MethodPlan plan = QueryContext.getPlan();
+		Pageable pageable = plan.getPageable(QueryContext.getArgs());
+		if (pageable instanceof KeysetPageable) {
+			return keysetPage(plan, (KeysetPageable) pageable, sqlValues.get(0));
 		}
 
-		List<SQLValue> sqlValues = QueryParser.pageParser();
-		List<Map<String, Object>> keyvals = DB.find(sqlValues.get(0));
+		// 标识了@CountCache, 先从缓存中取总行数
+		SQLValue second = plan.isNotCount() ? null : sqlValues.get(1);
+		TotalCache totalCache = plan.getTotalCache();
+		List<Object> key = totalCache != null ? TotalCache.key(QueryContext.getDataSourceName(), second) : null;
+		Long cached = totalCache != null ? totalCache.get(key) : null;
+		long generation = TotalCache.generation();
+
+		// 求和语句不依赖当前页的结果, 开启了@ConcurrentCount时, 在另一个连接上与当前页的查询同时执行
+		QueryContext.Fork<List<Map<String, Object>>> fork = second != null && cached == null && plan.isConcurrentCount()
+				? QueryContext.fork(() -> DB.find(second))
+				: null;
+
+		Class<?> beanType = plan.getBeanType();
+		List<?> list = beanType != null ? DB.find(sqlValues.get(0), beanType) : DB.find(sqlValues.get(0));
 
 		int size = pageable.getPageSize(); // 每页多少条数据
+		boolean lookAhead = plan.isNotCount() && list.size() > size; // 不求和时多查了一行, 有这一行就说明有下一页
+		if (lookAhead) {
+			list.remove(size);
+		}
 		long totalElements = -1L; // 总行数,如果不求和默认-1L
 		int totalPages = -1; // 总页数,如果不求和默认-1
-		int numberOfElements = keyvals.size(); // 每页实际显示多少条数据
+		int numberOfElements = list.size(); // 每页实际显示多少条数据
 		int number = pageable.getPageIndex(); // 当前页码
-		boolean hasContent = !keyvals.isEmpty();// 这页有内容吗?
+		boolean hasContent = !list.isEmpty();// 这页有内容吗?
 		boolean hasPrevious = (number > 1) && hasContent;// number不是第1页且当前页有数据,就可以断言它有上一页.
 		boolean hasNext; // 有下一页吗? 在这里不用给默认值,如下一定会给他赋值.
 		boolean isLast;
+		boolean isFirst = number == 1;
+		Slice previousPageable = new Slice((!isFirst) ? (number - 1) : number, size);
+
+		// Page<T> 中的 T如果是一个实体,却没能由映射器直接转换(如:有国际化字段),那么需要把 HashMap 转换成实体
+		Class<?> bean = plan.getElementType();
+		if (beanType == null && bean != null) {
+			list = TypeUtil.listMap2ListBean((List<Map<String, Object>>) list, bean);
+		}
 
-		if (method.getAnnotation(NotCount.class) == null) {
+		if (fork != null && plan.isAsyncCount()) { // 不等待求和
+			return new AsyncPage(size, numberOfElements, number, list, hasContent, hasPrevious, isFirst, previousPageable, fork.future().thenApply(results -> {
+				long total = totalElements(results);
+				if (totalCache != null) {
+					totalCache.put(key, total, generation);
+				}
+				return total;
+			}));
+		}
 
-			List<Map<String, Object>> results = DB.find(sqlValues.get(1));
-			if (!results.isEmpty()) {
-				totalElements = (long) results.get(0).values().iterator().next();
+		if (!plan.isNotCount()) {
+			if (cached != null) {
+				totalElements = cached;
 			} else {
-				totalElements = 0;
+				totalElements = totalElements(fork != null ? fork.join() : DB.find(second));
+				if (totalCache != null) {
+					totalCache.put(key, totalElements, generation);
+				}
 			}
 
 			// 计算总页数
@@ -216,119 +215,75 @@ class QueryProcess {
 			isLast = number == totalPages;
 			// 求和 --------------------------------------------------- End
 		} else {
-			List<Map<String, Object>> nextvalues = DB.find(sqlValues.get(1));
-			boolean next = nextvalues.isEmpty();
-			hasNext = !next; // 下一页有数据
-			isLast = next; // 下一页没有数据了,表明这是最后一页了.
+			hasNext = lookAhead; // 下一页有数据
+			isLast = !lookAhead; // 下一页没有数据了,表明这是最后一页了.
 		}
 
-		boolean isFirst = number == 1;
 		Slice nextPageable = new Slice((!isLast) ? (number + 1) : number, size);
-		Slice previousPageable = new Slice((!isFirst) ? (number - 1) : number, size);
-
-		List<?> list = keyvals;
-		// Page<T> 中的 T如果是一个实体,那么需要把 HashMap 转换成实体
-		// method.getGenericReturnType()
-		if (!method.getGenericReturnType().getTypeName().contains("Page<java.util.Map<java.lang.String, java.lang.Object>>")) {
-			// 则说明是一个T是一个实体
-			java.lang.reflect.Type type = method.getGenericReturnType();
-			if (type instanceof ParameterizedType) {
-				ParameterizedType parameterizedType = (ParameterizedType) method.getGenericReturnType();
-				Class<?> bean = (Class<?>) parameterizedType.getActualTypeArguments()[0];
-				list = TypeUtil.listMap2ListBean(keyvals, bean);
-			}
-		}
 
 		return new PageImpl(size, numberOfElements, number, list, totalElements, totalPages, hasContent, hasNext, hasPrevious, isFirst, isLast,
 				nextPageable, previousPageable);
-
 	}
 
-	// 分页查询(仅针对QueryByNamed Page分页查询,不针对Query)
+	// 键集分页, 查询语句多查了一行, 用来判断有没有下一页
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	Object queryByNamedPage() {
-		Method method = QueryContext.getMethod();
-		Object[] args = QueryContext.getArgs();
-		// 获取 pageable
-		Pageable pageable = null;
-		for (Object arg : args) {
-			if (arg instanceof Pageable) { // 如果当前arg是Pageable接口的一个实例
-				pageable = (Pageable) arg;
-				break;
-			}
-		}
-		Parameter[] parameters = method.getParameters();
-		if (pageable == null) {
-			// 没有传递Pageable,那么必然有 pageIndex, pageSize 不然,不能通过初始化
-			pageable = new PageableImpl(TypeUtil.findPageIndex(parameters, args), TypeUtil.findPageSize(parameters, args));
+	private static Object keysetPage(MethodPlan plan, KeysetPageable keyset, SQLValue sqlValue) {
+		Class<?> beanType = plan.getBeanType();
+		List<?> list = beanType != null ? DB.find(sqlValue, beanType) : DB.find(sqlValue);
+		int size = keyset.getPageSize();
+		KeysetPageable next = null;
+		if (list.size() > size) {
+			list.remove(size);
+			next = keyset.next(keyValues(list.get(size - 1), keyset.getKeys()));
 		}
-		// 获取 pageable End
 
-		List<SQLValue> sqlValues = QueryParser.pageParserByNamed();
-		List<Map<String, Object>> keyvals = DB.find(sqlValues.get(0));
-
-		int size = pageable.getPageSize(); // 每页多少条数据
-		long totalElements = -1L; // 总行数,如果不求和默认-1L
-		int totalPages = -1; // 总页数,如果不求和默认-1
-		int numberOfElements = keyvals.size(); // 每页实际显示多少条数据
-		int number = pageable.getPageIndex(); // 当前页码
-		boolean hasContent = !keyvals.isEmpty();// 这页有内容吗?
-		boolean hasPrevious = (number > 1) && hasContent;// number不是第1页且当前页有数据,就可以断言它有上一页.
-		boolean hasNext; // 有下一页吗? 在这里不用给默认值,如下一定会给他赋值.
-		boolean isLast;
+		// Page<T> 中的 T如果是一个实体,却没能由映射器直接转换(如:有国际化字段),那么需要把 HashMap 转换成实体
+		Class<?> bean = plan.getElementType();
+		if (beanType == null && bean != null) {
+			list = TypeUtil.listMap2ListBean((List<Map<String, Object>>) list, bean);
+		}
+		return new KeysetPage(size, list, keyset.getAfter() == null, next);
+	}
 
-		if (method.getAnnotation(NotCount.class) == null) { // 需要求和
-			List<Map<String, Object>> results = DB.find(sqlValues.get(1));
-			if (!results.isEmpty()) {
-				totalElements = (long) results.get(0).values().iterator().next();
-			} else {
-				totalElements = 0;
+	// 取出一行中排序键的值, 列名与属性的匹配规则: 先精确匹配, 再忽略大小写及"_"匹配
+	@SuppressWarnings("unchecked")
+	private static Object[] keyValues(Object row, String[] keys) {
+		Map<String, Object> map = row instanceof Map ? (Map<String, Object>) row : (Map<String, Object>) JSON.toJSON(row);
+		Object[] values = new Object[keys.length];
+		o: for (int i = 0; i < keys.length; i++) {
+			String key = StringUtils.remove(keys[i], '`');
+			key = key.substring(key.lastIndexOf('.') + 1);
+			if (map.containsKey(key)) {
+				values[i] = map.get(key);
+				continue;
 			}
-
-			// 计算总页数
-			totalPages = ((int) totalElements) / size;
-			if (((int) totalElements) % size != 0) {
-				totalPages += 1;
+			String name = StringUtils.remove(key, '_');
+			for (Map.Entry<String, Object> entry : map.entrySet()) {
+				if (name.equalsIgnoreCase(StringUtils.remove(entry.getKey(), '_'))) {
+					values[i] = entry.getValue();
+					continue o;
+				}
 			}
-			hasNext = number < totalPages;
-			isLast = number == totalPages;
-		} else {
-			List<Map<String, Object>> nextvalues = DB.find(sqlValues.get(1));
-			boolean next = nextvalues.isEmpty();
-			hasNext = !next; // 下一页有数据
-			isLast = next; // 下一页没有数据了,表明这是最后一页了.
+			throw new RepositoryException(String.format("查询结果中没有排序键%s,推算不出下一页", keys[i]));
 		}
+		return values;
+	}
 
-		boolean isFirst = number == 1;
-		Slice nextPageable = new Slice((!isLast) ? (number + 1) : number, size);
-		Slice previousPageable = new Slice((!isFirst) ? (number - 1) : number, size);
-
-		List<?> list = keyvals;
-		// Page<T> 中的 T如果是一个实体,那么需要把 HashMap 转换成实体
-		// method.getGenericReturnType()
-		if (!method.getGenericReturnType().getTypeName().contains("Page<java.util.Map<java.lang.String, java.lang.Object>>")) {
-			// 则说明是一个T是一个实体
-			java.lang.reflect.Type type = method.getGenericReturnType();
-			if (type instanceof ParameterizedType) {
-				ParameterizedType parameterizedType = (ParameterizedType) method.getGenericReturnType();
-				Class<?> bean = (Class<?>) parameterizedType.getActualTypeArguments()[0];
-				list = TypeUtil.listMap2ListBean(keyvals, bean);
-			}
+	private static long totalElements(List<Map<String, Object>> results) {
+		if (!results.isEmpty()) {
+			return (long) results.get(0).values().iterator().next();
+		} else {
+			return 0;
 		}
-
-		return new PageImpl(size, numberOfElements, number, list, totalElements, totalPages, hasContent, hasNext, hasPrevious, isFirst, isLast,
-				nextPageable, previousPageable);
-
 	}
 
 	@SuppressWarnings("unchecked")
 	Object methodQuery(Id id) {
-		Method method = QueryContext.getMethod();
+		MethodPlan plan = QueryContext.getPlan();
 		Object[] iargs = QueryContext.getArgs();
 		// 检验实体
-		Parameter[] parameters = method.getParameters();
-		for (int i = 0; i < parameters.length; i++) {
-			if (parameters[i].getParameterizedType() instanceof TypeVariable) { // 这个类型是变量类型吗?
+		for (int i = 0; i < iargs.length; i++) {
+			if (plan.isTypeVariable(i) && iargs[i] != null) { // 这个类型是变量类型吗?
 				Field[] fields = iargs[i].getClass().getDeclaredFields();
 				for (Field field : fields) {
 					if (Type.getType(field.getType()).getSort() != Type.OBJECT) {
@@ -342,45 +297,33 @@ class QueryProcess {
 		byte methodId = id.value();
 
 		Object bean;
-		String sql;
+		SQLValue sqlValue;
 		String dbName = null;
-		boolean ignoreRepeat;
 		switch (methodId) {
 		case MethodId.QUERY:
 			if (iargs.length == 3) {
 				bean = iargs[2];
-				sql = BeanUtil.toInsertSQL((String) iargs[1], bean);
-				LOG.info(sql);
-				Object keyObj = DB.update(sql, false);
-				if (keyObj == null) {
-					return new BigInteger("-1");
-				} else {
-					return new BigInteger(keyObj.toString());
-				}
+				sqlValue = BeanUtil.toInsertSQLValue(bean, (String) iargs[1]);
 			} else {
 				bean = iargs[0];
-				sql = BeanUtil.toInsertSQL(bean, false);
-				LOG.info(sql);
-				Object keyObj = DB.update(sql, false);
-				if (keyObj == null) {
-					return new BigInteger("-1");
-				} else {
-					return new BigInteger(keyObj.toString());
-				}
+				sqlValue = BeanUtil.toInsertSQLValue(bean, null);
+			}
+			Object keyObj = DB.update(sqlValue, false);
+			if (keyObj == null) {
+				return new BigInteger("-1");
+			} else {
+				return new BigInteger(keyObj.toString());
 			}
 
 		case MethodId.QUERY0:
 			if (iargs.length == 3) {
 				bean = iargs[2];
-				sql = BeanUtil.toInsertSQL((String) iargs[1], bean);
-				LOG.info(sql);
-				return DB.update(sql, true);
+				sqlValue = BeanUtil.toInsertSQLValue(bean, (String) iargs[1]);
 			} else {
 				bean = iargs[0];
-				sql = BeanUtil.toInsertSQL(bean, false);
-				LOG.info(sql);
-				return DB.update(sql, true);
+				sqlValue = BeanUtil.toInsertSQLValue(bean, null);
 			}
+			return DB.update(sqlValue, true);
 
 		case MethodId.QUERY1:
 			if (iargs.length == 1) {
@@ -402,13 +345,13 @@ class QueryProcess {
 				dbName = (String) iargs[1];
 				bean = iargs[2];
 			}
-			sql = BeanUtil.toSelectSQL(bean, null, dbName,false);
-			if (sql!=null && DB.exists(sql)) {
+			sqlValue = BeanUtil.toSelectSQLValue(bean, null, dbName, false);
+			if (sqlValue != null && DB.exists(sqlValue)) {
 				// 更新
 				return DB.update(bean, dbName, null);
 			} else {
 				// 保存
-				return DB.update((iargs.length == 3) ? BeanUtil.toInsertSQL(iargs[1].toString(), bean) : BeanUtil.toInsertSQL(bean, false), true);
+				return DB.update(BeanUtil.toInsertSQLValue(bean, (iargs.length == 3) ? iargs[1].toString() : null), true);
 			}
 		case MethodId.QUERY3:
 			if (iargs.length == 2) {
@@ -421,7 +364,6 @@ class QueryProcess {
 			}
 			return DB.update(bean, dbName, (String) iargs[iargs.length - 1]);
 		case MethodId.QUERY4:
-			ignoreRepeat = (boolean) iargs[0];
 			Object entitiesObj = iargs[iargs.length - 1];
 			if(entitiesObj==null) {
 				return 0;
@@ -429,30 +371,21 @@ class QueryProcess {
 			if (iargs.length == 4) {
 				dbName = (String) iargs[2];
 			}
-			if (entitiesObj.getClass().isArray()) {
-				Object[] arryObj = (Object[]) entitiesObj;
-				if(arryObj.length==0) {
-					return 0;
-				}
-				sql = BeanUtil.arr2InsertSQL(arryObj, dbName, ignoreRepeat);
-			} else {
-				Collection<Object> coll =  (Collection<Object>) entitiesObj;
-				if(coll.isEmpty()) {
-					return 0;
-				}
-				sql = BeanUtil.toInsertSQL(coll, dbName, ignoreRepeat);
-			}
-			LOG.info(sql);
-			return DB.update(sql, true);
+			BulkInsert bulkInsert = new BulkInsert();
+			bulkInsert.setIgnoreRepeat((boolean) iargs[0]);
+			Iterator<?> iterator = entitiesObj.getClass().isArray() ? Arrays.asList((Object[]) entitiesObj).iterator() : ((Collection<?>) entitiesObj).iterator();
+			return DB.bulkInsert(iterator, dbName, bulkInsert, null);
 
 		case MethodId.QUERY5:
 			Collection<Object> entities = (Collection<Object>) iargs[iargs.length - 1];
 			if (iargs.length == 3) {
 				dbName = (String) iargs[1];
 			}
-			sql = BeanUtil.toUpdateSQL(entities, dbName);
-			LOG.info(sql);
-			return DB.update(sql, true);
+			sqlValue = BeanUtil.toUpdateSQLValue(entities, dbName);
+			if (sqlValue == null) {
+				return 0;
+			}
+			return DB.update(sqlValue, true);
 
 		case MethodId.QUERY6:
 			String sqlFile;
@@ -464,13 +397,8 @@ class QueryProcess {
 					sqlFile = FastQueryJSONObject.getBasedir() + (String) iargs[0];
 				}
 
-				return DB.executeBatch(sqlFile, (stat, s) -> {
-					try {
-						stat.addBatch(s);
-					} catch (SQLException e) {
-						throw new RepositoryException(e);
-					}
-				});
+				SQLScript script = iargs.length > 1 && iargs[1] instanceof SQLScript ? (SQLScript) iargs[1] : new SQLScript();
+				return DB.executeBatch(sqlFile, script);
 			}
 
 			break;
@@ -482,7 +410,7 @@ class QueryProcess {
 				dbName = (String) iargs[3]; // 数据库名称
 			}
 
-			return DB.select(BeanUtil.toSelectSQL(clazz, i, dbName,true), clazz);
+			return DB.select(BeanUtil.toSelectSQLValue(clazz, i, dbName, true), clazz);
 
 		case MethodId.QUERY8:
 			String tableName = (String) iargs[0]; // 表名称
@@ -494,8 +422,22 @@ class QueryProcess {
 				if (iargs.length == 5) {
 					dbName = (String) iargs[4]; // 数据库名称
 				}
-				return DB.update(BeanUtil.toDelete(tableName, name, key, dbName), true);
+				return DB.update(BeanUtil.toDeleteSQLValue(tableName, name, key, dbName), true);
+			}
+
+		case MethodId.QUERY9:
+			if (iargs.length == 4) {
+				dbName = (String) iargs[2];
+			}
+			BulkInsert option = iargs[0] != null ? (BulkInsert) iargs[0] : new BulkInsert();
+			return DB.bulkInsert((Iterator<?>) iargs[iargs.length - 1], dbName, option, null);
+
+		case MethodId.QUERY10:
+			if (iargs.length == 5) {
+				dbName = (String) iargs[2];
 			}
+			BulkInsert keysOption = iargs[0] != null ? (BulkInsert) iargs[0] : new BulkInsert();
+			return DB.bulkInsert((Iterator<?>) iargs[iargs.length - 2], dbName, keysOption, (List<Long>) iargs[iargs.length - 1]);
 
 		default:
 			break;
@@ -24,6 +24,8 @@ package org.fastquery.core;
 
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 import org.fastquery.util.BeanUtil;
 
@@ -132,6 +134,81 @@ public interface QueryRepository extends Repository { // NO_UCD (test only)
 	@Id(MethodId.QUERY4)
 	int saveArray(boolean ignoreRepeat, @Source String dataSourceName, String dbName, Object... entities);
 
+	/**
+	 * 分块批量保存实体. 实体被流式地读取, 按行数或字节数切分成若干块, 每块用一条多行insert语句执行, 适合海量数据的导入
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项(每块的行数,字节数,提交方式),传递null表示全部用默认值
+	 * @param entities 实体迭代器,插入哪些字段以第一个实体为准,若,传递null或没有元素,则会返回0
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY9)
+	<B> int save(BulkInsert bulkInsert, Iterator<B> entities);
+
+	/**
+	 * 分块批量保存实体
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项,传递null表示全部用默认值
+	 * @param dataSourceName 数据源名称
+	 * @param entities 实体迭代器,若,传递null或没有元素,则会返回0
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY9)
+	<B> int save(BulkInsert bulkInsert, @Source String dataSourceName, Iterator<B> entities);
+
+	/**
+	 * 分块批量保存实体
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项,传递null表示全部用默认值
+	 * @param dataSourceName 数据源名称
+	 * @param dbName 数据库名称
+	 * @param entities 实体迭代器,若,传递null或没有元素,则会返回0
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY9)
+	<B> int save(BulkInsert bulkInsert, @Source String dataSourceName, String dbName, Iterator<B> entities);
+
+	/**
+	 * 分块批量保存实体, 并收集自增主键. 主键集由每次调用传入, 同一个分块选项可以在多个线程之间共享
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项,传递null表示全部用默认值
+	 * @param entities 实体迭代器,若,传递null或没有元素,则会返回0
+	 * @param generatedKeys 自增主键按插入的顺序追加到这个集合中,传递null表示不收集
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY10)
+	<B> int save(BulkInsert bulkInsert, Iterator<B> entities, List<Long> generatedKeys);
+
+	/**
+	 * 分块批量保存实体, 并收集自增主键
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项,传递null表示全部用默认值
+	 * @param dataSourceName 数据源名称
+	 * @param entities 实体迭代器,若,传递null或没有元素,则会返回0
+	 * @param generatedKeys 自增主键按插入的顺序追加到这个集合中,传递null表示不收集
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY10)
+	<B> int save(BulkInsert bulkInsert, @Source String dataSourceName, Iterator<B> entities, List<Long> generatedKeys);
+
+	/**
+	 * 分块批量保存实体, 并收集自增主键
+	 * 
+	 * @param <B> 实体
+	 * @param bulkInsert 分块选项,传递null表示全部用默认值
+	 * @param dataSourceName 数据源名称
+	 * @param dbName 数据库名称
+	 * @param entities 实体迭代器,若,传递null或没有元素,则会返回0
+	 * @param generatedKeys 自增主键按插入的顺序追加到这个集合中,传递null表示不收集
+	 * @return 影响行数
+	 */
+	@Id(MethodId.QUERY10)
+	<B> int save(BulkInsert bulkInsert, @Source String dataSourceName, String dbName, Iterator<B> entities, List<Long> generatedKeys);
+
 	/**
 	 * 插入一个实体 <br>
 	 * 
@@ -298,7 +375,7 @@ public interface QueryRepository extends Repository { // NO_UCD (test only)
 	<E> int update(@Source String dataSourceName, String dbName, Collection<E> entities);
 
 	/**
-	 * 执行SQL文件,注意: 只支持单行注释 "#...","-- ..."
+	 * 执行SQL文件,支持 "#...","-- ...","/* ... *&#47;" 注释及 DELIMITER 命令, 整个文件在一个事务里执行
 	 * 
 	 * @param sqlName 基准目录下的SQL文件名称 注意: 基准目录在fastquery.json里配置.当然,sqlName为绝对路径也可以.若传递null,什么也不做
 	 * @return 数组中的每个数对应一条SQL语句执行后所影响的行数,有些数据库驱动没有实现该功能，成功提交成功后不能返回影响行数,而是返回-2。在JDBC的规范中Statement.SUCCESS_NO_INFO(-2)代表:执行成功,受影响行数不确定.
@@ -307,7 +384,7 @@ public interface QueryRepository extends Repository { // NO_UCD (test only)
 	int[] executeBatch(String sqlName);
 
 	/**
-	 * 执行SQL文件,注意: 只支持单行注释 "#...","-- ..."
+	 * 执行SQL文件,支持 "#...","-- ...","/* ... *&#47;" 注释及 DELIMITER 命令, 整个文件在一个事务里执行
 	 * 
 	 * @param sqlName 基准目录下的SQL文件名称 注意: 基准目录在fastquery.json里配置.当然,sqlName为绝对路径也可以.若传递null,什么也不做
 	 * @param dataSourceName 数据源的名称
@@ -316,6 +393,27 @@ public interface QueryRepository extends Repository { // NO_UCD (test only)
 	@Id(MethodId.QUERY6)
 	int[] executeBatch(String sqlName, @Source String dataSourceName);
 
+	/**
+	 * 流式地执行SQL文件, 脚本逐条读出, 每攒够一块就执行一次, 适合执行很大的脚本
+	 * 
+	 * @param sqlName 基准目录下的SQL文件名称 注意: 基准目录在fastquery.json里配置.当然,sqlName为绝对路径也可以.若传递null,什么也不做
+	 * @param script 执行选项(每块的大小,是否每块提交一次,跳过前面多少条语句), 执行之后可从中获取已提交的进度
+	 * @return 数组中的每个数对应一条SQL语句执行后所影响的行数(被跳过的语句不包含在内)
+	 */
+	@Id(MethodId.QUERY6)
+	int[] executeBatch(String sqlName, SQLScript script);
+
+	/**
+	 * 流式地执行SQL文件, 脚本逐条读出, 每攒够一块就执行一次, 适合执行很大的脚本
+	 * 
+	 * @param sqlName 基准目录下的SQL文件名称 注意: 基准目录在fastquery.json里配置.当然,sqlName为绝对路径也可以.若传递null,什么也不做
+	 * @param script 执行选项(每块的大小,是否每块提交一次,跳过前面多少条语句), 执行之后可从中获取已提交的进度
+	 * @param dataSourceName 数据源的名称
+	 * @return 数组中的每个数对应一条SQL语句执行后所影响的行数(被跳过的语句不包含在内)
+	 */
+	@Id(MethodId.QUERY6)
+	int[] executeBatch(String sqlName, SQLScript script, @Source String dataSourceName);
+
 	/**
 	 * 根据主键查询实体
 	 * 
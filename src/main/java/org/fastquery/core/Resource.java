@@ -23,6 +23,7 @@
 package org.fastquery.core;
 
 import java.io.InputStream;
+import java.net.URL;
 
 /**
  * 资源获取
@@ -48,4 +49,15 @@ public interface Resource {
 	 * @return 存在true,反之,false
 	 */
 	boolean exist(String name);
+
+	/**
+	 * 获取name资源的地址, 用于监听文件的变化 <br>
+	 * 注意: 没有找到或无法定位返回null
+	 * 
+	 * @param name 资源名称
+	 * @return 资源地址
+	 */
+	default URL getResource(String name) {
+		return null;
+	}
 }
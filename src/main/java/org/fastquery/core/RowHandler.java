@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+/**
+ * 行回调. 查询方法的参数中若有RowHandler(或java.util.function.Consumer),那么每读取一行,就转换成T交给它处理,不会把结果集收集起来. <br>
+ * 此时方法的返回值必须是void. T可以是Map&lt;String,Object&gt;,Map&lt;String,String&gt;,包装类型或实体. <br>
+ * 注意: 行回调执行时, 结果集还在当前连接上逐行读取, 因此行回调中不能调用任何Repository的方法(否则抛出RepositoryException), 需要的话先把数据收集起来, 方法返回之后再处理.
+ * 
+ * @param <T> 每一行转换成的类型
+ * @author mei.sir@aliyun.cn
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+	/**
+	 * 处理一行
+	 * 
+	 * @param row 当前行
+	 */
+	void handle(T row);
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+/**
+ * 执行SQL文件的选项及进度. 脚本被流式地逐条读出, 每攒够 chunkStatements 条语句或 chunkBytes 个字符就提交给数据库执行一次. <br>
+ * commitPerChunk 为 false(默认)时, 整个脚本在一个事务里执行, 出错全部回滚; 为 true 时, 每块执行完就提交, 出错时只回滚当前块,
+ * 这时 committed 记录了已经提交的语句条数, 修正脚本后把它设置为 skip 就能从断点处接着执行.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class SQLScript {
+
+	private int chunkStatements = 1000;
+	private int chunkBytes = 1024 * 1024;
+	private boolean commitPerChunk;
+	private long skip;
+	private long committed;
+	private int line;
+
+	public SQLScript() {
+	}
+
+	/**
+	 * 构造执行SQL文件的选项
+	 * 
+	 * @param chunkStatements 每块最多多少条语句
+	 * @param commitPerChunk true:每块提交一次; false:全部执行之后提交一次
+	 */
+	public SQLScript(int chunkStatements, boolean commitPerChunk) {
+		this.chunkStatements = chunkStatements;
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	public int getChunkStatements() {
+		return chunkStatements;
+	}
+
+	public void setChunkStatements(int chunkStatements) {
+		this.chunkStatements = chunkStatements;
+	}
+
+	public int getChunkBytes() {
+		return chunkBytes;
+	}
+
+	public void setChunkBytes(int chunkBytes) {
+		this.chunkBytes = chunkBytes;
+	}
+
+	public boolean isCommitPerChunk() {
+		return commitPerChunk;
+	}
+
+	public void setCommitPerChunk(boolean commitPerChunk) {
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	public long getSkip() {
+		return skip;
+	}
+
+	/**
+	 * 
+	 * @param skip 跳过脚本中前面的多少条语句(不执行), 用于从断点处恢复执行
+	 */
+	public void setSkip(long skip) {
+		this.skip = skip;
+	}
+
+	/**
+	 * 
+	 * @return 已经提交的语句条数(包括被跳过的语句), 执行出错后可以把它设置为 skip 再执行一次
+	 */
+	public long getCommitted() {
+		return committed;
+	}
+
+	void setCommitted(long committed) {
+		this.committed = committed;
+	}
+
+	/**
+	 * 
+	 * @return 最后一条已提交的语句结束于脚本的第几行
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	void setLine(int line) {
+		this.line = line;
+	}
+
+}
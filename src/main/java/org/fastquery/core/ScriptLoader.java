@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fastquery.util.FastQueryJSONObject;
+
+/**
+ * 并行地执行多个互相独立的SQL文件. 每个文件由一个工作线程通过 {@link QueryRepository#executeBatch(String, SQLScript)} 执行,
+ * 工作线程各自从连接池中获取连接, 各自一个事务, 互不影响. <br>
+ * 文件之间若有先后关系, 用 {@link #dependsOn(String, String...)} 声明, 被依赖的文件全部执行成功之后才会执行该文件, 否则该文件不执行. <br>
+ * 注意: parallelism 不要超过连接池的最大连接数.
+ * 
+ * <pre>
+ * List&lt;ScriptLoader.Result&gt; results = new ScriptLoader(studentDBService).addDir("init/").dependsOn("init/score.sql", "init/student.sql").load();
+ * </pre>
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class ScriptLoader {
+
+	private final QueryRepository repository;
+	private final Set<String> sqlNames = new LinkedHashSet<>();
+	private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+	private String dataSourceName;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int chunkStatements = 1000;
+	private boolean commitPerChunk;
+
+	/**
+	 * 
+	 * @param repository 用来执行SQL文件的Repository
+	 */
+	public ScriptLoader(QueryRepository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * 添加要执行的SQL文件
+	 * 
+	 * @param sqlNames 基准目录下的SQL文件名称, 也可以是绝对路径
+	 * @return 当前实例
+	 */
+	public ScriptLoader add(String... sqlNames) {
+		this.sqlNames.addAll(Arrays.asList(sqlNames));
+		return this;
+	}
+
+	/**
+	 * 添加目录中所有的 *.sql 文件(不包括子目录), 文件名称为 dir + 文件名, 按文件名排序
+	 * 
+	 * @param dir 基准目录下的目录名称, 也可以是绝对路径. 注意: 末尾需要加 "/"
+	 * @return 当前实例
+	 */
+	public ScriptLoader addDir(String dir) {
+		File file = new File(dir);
+		if (!file.isDirectory()) {
+			file = new File(FastQueryJSONObject.getBasedir() + dir);
+		}
+		String[] names = file.list((d, name) -> name.endsWith(".sql"));
+		if (names == null) {
+			throw new RepositoryException(String.format("目录\"%s\"不存在", dir));
+		}
+		Arrays.sort(names);
+		for (String name : names) {
+			sqlNames.add(dir + name);
+		}
+		return this;
+	}
+
+	/**
+	 * 声明文件之间的先后关系
+	 * 
+	 * @param sqlName SQL文件名称
+	 * @param dependencies sqlName 所依赖的文件, 它们全部执行成功之后才执行 sqlName
+	 * @return 当前实例
+	 */
+	public ScriptLoader dependsOn(String sqlName, String... dependencies) {
+		this.dependencies.computeIfAbsent(sqlName, k -> new LinkedHashSet<>()).addAll(Arrays.asList(dependencies));
+		return this;
+	}
+
+	public String getDataSourceName() {
+		return dataSourceName;
+	}
+
+	/**
+	 * 
+	 * @param dataSourceName 数据源的名称, 不设置时取 repository 所绑定的数据源
+	 */
+	public void setDataSourceName(String dataSourceName) {
+		this.dataSourceName = dataSourceName;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * 
+	 * @param parallelism 最多同时执行几个文件, 默认为CPU的核数
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public int getChunkStatements() {
+		return chunkStatements;
+	}
+
+	/**
+	 * 
+	 * @param chunkStatements 参见 {@link SQLScript#setChunkStatements(int)}
+	 */
+	public void setChunkStatements(int chunkStatements) {
+		this.chunkStatements = chunkStatements;
+	}
+
+	public boolean isCommitPerChunk() {
+		return commitPerChunk;
+	}
+
+	/**
+	 * 
+	 * @param commitPerChunk 参见 {@link SQLScript#setCommitPerChunk(boolean)}
+	 */
+	public void setCommitPerChunk(boolean commitPerChunk) {
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	/**
+	 * 执行所有的SQL文件, 等全部结束之后返回. 某个文件执行失败不影响与它无关的文件.
+	 * 
+	 * @return 每个文件的执行结果, 顺序与添加的顺序一致
+	 */
+	public List<Result> load() {
+		List<String> order = order();
+		if (order.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		AtomicInteger number = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, order.size())), r -> {
+			Thread thread = new Thread(r, "fastquery-script-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setContextClassLoader(classLoader); // 全局配置是按ClassLoader存放的
+			return thread;
+		});
+
+		try {
+			Map<String, CompletableFuture<Result>> futures = new LinkedHashMap<>();
+			for (String sqlName : order) {
+				List<CompletableFuture<Result>> deps = new ArrayList<>();
+				dependencies.getOrDefault(sqlName, Collections.emptySet()).forEach(dep -> deps.add(futures.get(dep)));
+				futures.put(sqlName, CompletableFuture.allOf(deps.toArray(new CompletableFuture<?>[deps.size()])).thenApplyAsync(v -> {
+					for (CompletableFuture<Result> dep : deps) {
+						Result r = dep.join();
+						if (!r.isSuccess()) {
+							return new Result(sqlName, null, 0,
+									new RepositoryException(String.format("所依赖的文件\"%s\"没有执行成功,因此\"%s\"未执行", r.getSqlName(), sqlName)));
+						}
+					}
+					return execute(sqlName);
+				}, pool));
+			}
+
+			List<Result> results = new ArrayList<>();
+			for (String sqlName : sqlNames) {
+				results.add(futures.get(sqlName).join());
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private Result execute(String sqlName) {
+		SQLScript script = new SQLScript(chunkStatements, commitPerChunk);
+		long start = System.currentTimeMillis();
+		try {
+			int[] effects = dataSourceName != null ? repository.executeBatch(sqlName, script, dataSourceName) : repository.executeBatch(sqlName, script);
+			return new Result(sqlName, effects, System.currentTimeMillis() - start, null);
+		} catch (RuntimeException e) {
+			return new Result(sqlName, null, System.currentTimeMillis() - start, e);
+		}
+	}
+
+	// 拓扑排序, 被依赖的文件排在前面
+	private List<String> order() {
+		for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			if (!sqlNames.contains(entry.getKey())) {
+				throw new RepositoryException(String.format("没有添加SQL文件\"%s\"", entry.getKey()));
+			}
+			for (String dep : entry.getValue()) {
+				if (!sqlNames.contains(dep)) {
+					throw new RepositoryException(String.format("\"%s\"所依赖的文件\"%s\"没有添加", entry.getKey(), dep));
+				}
+			}
+		}
+
+		List<String> order = new ArrayList<>(sqlNames.size());
+		Set<String> visiting = new HashSet<>();
+		Set<String> visited = new HashSet<>();
+		for (String sqlName : sqlNames) {
+			visit(sqlName, visiting, visited, order);
+		}
+		return order;
+	}
+
+	private void visit(String sqlName, Set<String> visiting, Set<String> visited, List<String> order) {
+		if (visited.contains(sqlName)) {
+			return;
+		}
+		if (!visiting.add(sqlName)) {
+			throw new RepositoryException(String.format("SQL文件之间存在循环依赖,涉及\"%s\"", sqlName));
+		}
+		for (String dep : dependencies.getOrDefault(sqlName, Collections.emptySet())) {
+			visit(dep, visiting, visited, order);
+		}
+		visiting.remove(sqlName);
+		visited.add(sqlName);
+		order.add(sqlName);
+	}
+
+	/**
+	 * 一个SQL文件的执行结果
+	 * 
+	 * @author mei.sir@aliyun.cn
+	 */
+	public static class Result {
+
+		private final String sqlName;
+		private final int[] effects;
+		private final long millis;
+		private final RuntimeException error;
+
+		Result(String sqlName, int[] effects, long millis, RuntimeException error) {
+			this.sqlName = sqlName;
+			this.effects = effects;
+			this.millis = millis;
+			this.error = error;
+		}
+
+		public String getSqlName() {
+			return sqlName;
+		}
+
+		/**
+		 * 
+		 * @return 每条语句所影响的行数, 执行失败时为null
+		 */
+		public int[] getEffects() {
+			return effects;
+		}
+
+		/**
+		 * 
+		 * @return 执行耗时(单位:毫秒)
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * 
+		 * @return 执行失败的原因, 成功时为null
+		 */
+		public RuntimeException getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		@Override
+		public String toString() {
+			return "Result [sqlName=" + sqlName + ", statements=" + (effects != null ? effects.length : 0) + ", millis=" + millis + ", error="
+					+ (error != null ? error.getMessage() : null) + "]";
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.fastquery.dsm.FQueryProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PreparedStatement 缓存, 按物理连接存放: 连接池每次借出的连接是代理, 先解开代理找到物理连接, 同一个物理连接再次被借出时继续使用上次的缓存. 语句直接在物理连接上预编译, 归还连接时不关闭. <br>
+ * 键为 SQL 文本 + 是否返回主键, 超出容量时淘汰最久未使用的语句. 物理连接被连接池关闭后, 它的缓存在之后新建缓存时成批清理掉. <br>
+ * 容量在 fastquery.json 的数据源作用域中通过 statementCacheSize 配置, 不配置或为0表示不缓存. 没有连接池的"jdbc"数据源不使用它, 改由驱动的 cachePrepStmts 缓存.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class StatementCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StatementCache.class);
+
+	// 数据源名称 -> 命中统计
+	private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+	// 物理连接 -> 缓存. 缓存中的语句引用着连接, 用WeakHashMap也无法回收, 因此按连接是否已关闭来清理
+	private static final Map<Connection, StatementCache> CACHES = new IdentityHashMap<>();
+	// 上次清理之后新建的缓存个数, 达到现有缓存个数(至少16)时才清理一次, 均摊下来每次新建只多花常数时间. 由CACHES的锁保护
+	private static int created;
+
+	private final Connection conn;
+	private final int capacity;
+	private final Stats stats;
+	// 空闲的语句, accessOrder=true 即按最近使用排序, 头部是最久未使用的
+	private final LinkedHashMap<Key, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+	// 正在使用的语句(已从idle取出), 释放时放回idle
+	private final Map<PreparedStatement, Key> busy = new IdentityHashMap<>();
+
+	private StatementCache(Connection conn, int capacity, Stats stats) {
+		this.conn = conn;
+		this.capacity = capacity;
+		this.stats = stats;
+	}
+
+	/**
+	 * 获取连接对应的缓存, 同一个物理连接总是得到同一个缓存. 用完之后调用 {@link #checkin()}
+	 * 
+	 * @param dataSourceName 数据源名称
+	 * @param conn 连接(可以是连接池的代理)
+	 * @return 缓存, 该数据源没有开启语句缓存则返回null
+	 * @throws SQLException SQL异常
+	 */
+	static StatementCache acquire(String dataSourceName, Connection conn) throws SQLException {
+		int capacity = FQueryProperties.getStatementCacheSize(dataSourceName);
+		if (capacity <= 0) {
+			return null;
+		}
+		Connection physical = unwrap(conn);
+		synchronized (CACHES) {
+			StatementCache cache = CACHES.get(physical);
+			if (cache == null) {
+				if (++created >= Math.max(16, CACHES.size())) {
+					sweep();
+					created = 0;
+				}
+				cache = new StatementCache(physical, capacity, STATS.computeIfAbsent(dataSourceName, k -> new Stats()));
+				CACHES.put(physical, cache);
+			}
+			return cache;
+		}
+	}
+
+	// 解开连接池的代理, 找到物理连接
+	private static Connection unwrap(Connection conn) {
+		try {
+			if (conn.isWrapperFor(Connection.class)) {
+				Connection physical = conn.unwrap(Connection.class);
+				if (physical != null) {
+					return physical;
+				}
+			}
+		} catch (SQLException | AbstractMethodError e) {
+			LOG.debug("无法解开连接代理:{}", e.getMessage());
+		}
+		return conn;
+	}
+
+	// 清理已关闭的物理连接的缓存, 调用者持有CACHES的锁
+	private static void sweep() {
+		Iterator<StatementCache> iterator = CACHES.values().iterator();
+		while (iterator.hasNext()) {
+			StatementCache cache = iterator.next();
+			boolean closed;
+			try {
+				closed = cache.conn.isClosed();
+			} catch (SQLException e) {
+				closed = true;
+			}
+			if (closed) {
+				cache.close();
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * 获取指定数据源的语句缓存统计
+	 * 
+	 * @param dataSourceName 数据源名称
+	 * @return 统计信息, 该数据源没有用过语句缓存则返回null
+	 */
+	public static Stats getStats(String dataSourceName) {
+		return STATS.get(dataSourceName);
+	}
+
+	/**
+	 * 取出一个预编译语句, 用完之后必须调用 {@link #release(Statement)}
+	 * 
+	 * @param sql SQL语句
+	 * @param generatedKeys 是否需要返回主键
+	 * @return 预编译语句
+	 * @throws SQLException SQL异常
+	 */
+	PreparedStatement prepare(String sql, boolean generatedKeys) throws SQLException {
+		Key key = new Key(sql, generatedKeys);
+		PreparedStatement stat = idle.remove(key);
+		if (stat != null && stat.isClosed()) { // 连接被重置过
+			stat = null;
+		}
+		if (stat != null) {
+			stats.hits.increment();
+		} else {
+			stats.misses.increment();
+			stat = generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+		}
+		busy.put(stat, key);
+		return stat;
+	}
+
+	/**
+	 * 归还语句. 归还之后语句并不关闭, 而是清空参数等待复用; 超出容量时关闭最久未使用的那个.
+	 * 
+	 * @param stat 语句
+	 * @return 若是从本缓存中取出的语句返回true, 否则返回false(调用者需自行关闭)
+	 */
+	boolean release(Statement stat) {
+		Key key = busy.remove(stat);
+		if (key == null) {
+			return false;
+		}
+		PreparedStatement ps = (PreparedStatement) stat;
+		try {
+			ps.clearParameters();
+		} catch (SQLException e) {
+			close(ps);
+			return true;
+		}
+		PreparedStatement old = idle.put(key, ps);
+		if (old != null) { // 同一个SQL被嵌套使用时,会出现两个语句,保留后归还的那个
+			close(old);
+		}
+		if (idle.size() > capacity) {
+			Iterator<PreparedStatement> iterator = idle.values().iterator();
+			close(iterator.next());
+			iterator.remove();
+			stats.evictions.increment();
+		}
+		return true;
+	}
+
+	/**
+	 * 归还连接时调用, 关闭没有归还的语句(出现异常时才会有), 空闲的语句留给下一次借出
+	 */
+	void checkin() {
+		busy.keySet().forEach(StatementCache::close);
+		busy.clear();
+	}
+
+	// 关闭所有缓存的语句
+	private void close() {
+		idle.values().forEach(StatementCache::close);
+		idle.clear();
+		busy.keySet().forEach(StatementCache::close);
+		busy.clear();
+	}
+
+	private static void close(Statement stat) {
+		try {
+			stat.close();
+		} catch (SQLException e) {
+			LOG.error(e.getMessage(), e);
+		}
+	}
+
+	private static final class Key {
+		private final String sql;
+		private final boolean generatedKeys;
+
+		Key(String sql, boolean generatedKeys) {
+			this.sql = sql;
+			this.generatedKeys = generatedKeys;
+		}
+
+		@Override
+		public int hashCode() {
+			return sql.hashCode() * 31 + (generatedKeys ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return generatedKeys == other.generatedKeys && sql.equals(other.sql);
+		}
+	}
+
+	/**
+	 * 语句缓存的命中统计, 同一个数据源的所有连接共用一份
+	 */
+	public static final class Stats {
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
+		}
+
+		/**
+		 * 因超出容量而被淘汰的语句个数
+		 * 
+		 * @return 淘汰数
+		 */
+		public long getEvictions() {
+			return evictions.sum();
+		}
+
+		/**
+		 * 命中率
+		 * 
+		 * @return 0~1之间的数, 还没有访问过返回0
+		 */
+		public double getHitRatio() {
+			long h = getHits();
+			long total = h + getMisses();
+			return total == 0 ? 0 : (double) h / total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("hits=%d, misses=%d, hitRatio=%.2f, evictions=%d", getHits(), getMisses(), getHitRatio(), getEvictions());
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.fastquery.page.CountCache;
+import org.fastquery.struct.SQLValue;
+
+/**
+ * 分页总行数的缓存(见 {@link CountCache}), 每个方法一个. 以数据源名称、求和语句及其参数值为键, 同一个方法用于多个数据源时互不干扰.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class TotalCache {
+
+	private static final Set<TotalCache> CACHES = ConcurrentHashMap.newKeySet();
+	// 每失效一次加1. 求和开始之后若发生过失效, 结果可能已经过时, 不放入缓存
+	private static final AtomicLong GENERATION = new AtomicLong();
+
+	private final long ttl; // 毫秒
+	private final Map<List<Object>, long[]> totals; // 键 -> {总行数, 过期时间}
+
+	TotalCache(CountCache countCache) {
+		this.ttl = countCache.ttl() * 1000;
+		int maxEntries = countCache.maxEntries();
+		this.totals = new LinkedHashMap<List<Object>, long[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, long[]> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		CACHES.add(this);
+	}
+
+	static long generation() {
+		return GENERATION.get();
+	}
+
+	/**
+	 * 
+	 * @param dataSourceName 实际所用数据源的名称
+	 * @param sqlValue 求和语句
+	 * @return 键
+	 */
+	static List<Object> key(String dataSourceName, SQLValue sqlValue) {
+		List<Object> key = new ArrayList<>(sqlValue.getValues().size() + 2);
+		key.add(dataSourceName);
+		key.add(sqlValue.getSql());
+		key.addAll(sqlValue.getValues());
+		return key;
+	}
+
+	/**
+	 * 
+	 * @param key 键
+	 * @return 总行数, 没有缓存或已过期返回null
+	 */
+	synchronized Long get(List<Object> key) {
+		long[] total = totals.get(key);
+		if (total == null) {
+			return null;
+		}
+		if (total[1] < System.currentTimeMillis()) {
+			totals.remove(key);
+			return null;
+		}
+		return total[0];
+	}
+
+	/**
+	 * 
+	 * @param key 键
+	 * @param total 总行数
+	 * @param generation 开始求和时的 {@link #generation()}
+	 */
+	synchronized void put(List<Object> key, long total, long generation) {
+		if (generation == GENERATION.get()) {
+			totals.put(key, new long[] { total, System.currentTimeMillis() + ttl });
+		}
+	}
+
+	/**
+	 * 让所有引用了该表的缓存失效
+	 * 
+	 * @param table 表名称, 可以带库名和反引号
+	 */
+	static void invalidate(String table) {
+		if (table == null || table.isEmpty()) {
+			return;
+		}
+		String name = StringUtils.remove(table, '`');
+		String simpleName = name.substring(name.lastIndexOf('.') + 1);
+		GENERATION.incrementAndGet();
+		for (TotalCache cache : CACHES) {
+			synchronized (cache) {
+				Iterator<List<Object>> iterator = cache.totals.keySet().iterator();
+				while (iterator.hasNext()) {
+					if (mentions((String) iterator.next().get(1), simpleName)) {
+						iterator.remove();
+					}
+				}
+			}
+		}
+	}
+
+	// SQL中是否以独立的单词引用了该表(不区分大小写)
+	static boolean mentions(String sql, String table) {
+		int len = table.length();
+		int from = 0;
+		while (true) {
+			int i = StringUtils.indexOfIgnoreCase(sql, table, from);
+			if (i == -1) {
+				return false;
+			}
+			if ((i == 0 || !isWordPart(sql.charAt(i - 1))) && (i + len == sql.length() || !isWordPart(sql.charAt(i + len)))) {
+				return true;
+			}
+			from = i + 1;
+		}
+	}
+
+	private static boolean isWordPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+}
@@ -45,6 +45,9 @@ public class FQueryProperties {
 	// 第一个参数是dataSourceName,在此用Map,是为了查寻方便, 放在这里我们最终是为了查寻.
 	private static Map<String, DataSource> dataSources = new HashMap<>();
 
+	// 第一个参数是dataSourceName, 第二个参数是每个连接的PreparedStatement缓存容量
+	private static Map<String, Integer> statementCacheSizes = new HashMap<>();
+
 	private FQueryProperties() {
 	}
 
@@ -90,6 +93,20 @@ public class FQueryProperties {
 		return dataSources.get(dataSourceName);
 	}
 
+	public static void putStatementCacheSize(String dataSourceName, int statementCacheSize) {
+		statementCacheSizes.put(dataSourceName, statementCacheSize);
+	}
+
+	/**
+	 * 根据数据源的名字查寻出每个连接的PreparedStatement缓存容量
+	 * 
+	 * @param dataSourceName 数据源名称
+	 * @return 缓存容量, 没有配置返回0
+	 */
+	public static int getStatementCacheSize(String dataSourceName) {
+		return statementCacheSizes.getOrDefault(dataSourceName, 0);
+	}
+
 	public static void createDataSource(String dataSourceName, Properties properties) {
 		if (dataSourceName == null || "".equals(dataSourceName)) {
 			throw new RepositoryException("dataSourceName 不能为\"\"或为null");
@@ -127,5 +144,6 @@ public class FQueryProperties {
 	public static void clear() {
 		dataSourceIndexs.clear();
 		dataSources.clear();
+		statementCacheSizes.clear();
 	}
 }
@@ -34,6 +34,7 @@ public class FastQueryJson {
 	private String config;
 	private String dataSourceName; // 重写它hashCode和equals,用它来标识唯一标识.
 	private Set<String> basePackages;
+	private int statementCacheSize; // 每个连接最多缓存多少个PreparedStatement,0表示不缓存
 
 	public String getConfig() {
 		return config;
@@ -66,6 +67,14 @@ public class FastQueryJson {
 		this.basePackages = basePackages;
 	}
 
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -22,11 +22,7 @@
 
 package org.fastquery.filter;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
+import org.fastquery.core.MethodPlan;
 import org.fastquery.core.Repository;
 import org.fastquery.core.RepositoryException;
 
@@ -40,57 +36,44 @@ public class FilterChainHandler {
 	 * 绑定before filter
 	 * 
 	 * @param <R> repository
-	 * @param iclazz 类class
+	 * @param plan 方法的执行计划
 	 * @param repository repository
-	 * @param method 方法
 	 * @param args 参数值
 	 * @return 执行结果
 	 */
-	public static <R extends Repository> Object bindBeforeFilterChain(Class<?> iclazz, R repository, Method method, Object[] args) {
-		SkipFilter skipFilter = method.getAnnotation(SkipFilter.class);
-		List<Before> befores = new ArrayList<>();
-		if (skipFilter == null) {
-			befores = new ArrayList<>(Arrays.asList(iclazz.getAnnotationsByType(Before.class))); // 获取当前类级别的before's
+	public static <R extends Repository> Object bindBeforeFilterChain(MethodPlan plan, R repository, Object[] args) {
+		if (!plan.hasBefores()) {
+			return void.class;
 		}
-		befores.addAll(Arrays.asList(method.getAnnotationsByType(Before.class))); // 获取当前方法上的before's
-
 		BeforeFilterChain<R> beforeFilterChain = new BeforeFilterChain<>();
-		for (Before before : befores) {
-			// Type safety: 如下是把 Class<? extends BeforeFilter<? extends Repository>>[] 转化成了
-			// Class<BeforeFilter<R>>[]
-			// 分析后,属于安全转化.
-			@SuppressWarnings("unchecked")
-			Class<BeforeFilter<R>>[] clazzs = (Class<BeforeFilter<R>>[]) before.value();
-			for (Class<BeforeFilter<R>> clazz : clazzs) {
-				try {
-					beforeFilterChain.addFilter(clazz.newInstance());
-				} catch (Exception e) {
-					throw new RepositoryException(e.getMessage(), e);
-				}
+		// Type safety: 执行计划中存储的是 @Before 的 value, 即 Class<? extends BeforeFilter<? extends Repository>>
+		// 分析后,属于安全转化.
+		for (Class<?> clazz : plan.getBefores()) {
+			try {
+				@SuppressWarnings("unchecked")
+				BeforeFilter<R> filter = (BeforeFilter<R>) clazz.newInstance();
+				beforeFilterChain.addFilter(filter);
+			} catch (Exception e) {
+				throw new RepositoryException(e.getMessage(), e);
 			}
 		}
-		return beforeFilterChain.start(repository, method, args);
+		return beforeFilterChain.start(repository, plan.getMethod(), args);
 	}
 
-	public static <R extends Repository> Object bindAfterFilterChain(Class<?> iclazz, R repository, Method method, Object[] args, Object object) {
-		SkipFilter skipFilter = method.getAnnotation(SkipFilter.class);
-		List<After> afters = new ArrayList<>();
-		if (skipFilter == null) {
-			afters = new ArrayList<>(Arrays.asList(iclazz.getAnnotationsByType(After.class))); // 获取当前类级别的after's
+	public static <R extends Repository> Object bindAfterFilterChain(MethodPlan plan, R repository, Object[] args, Object object) {
+		if (!plan.hasAfters()) {
+			return object;
 		}
-		afters.addAll(Arrays.asList(method.getAnnotationsByType(After.class)));// 获取当前方法上的after's
 		AfterFilterChain<R> afterFilterChain = new AfterFilterChain<>();
-		for (After after : afters) {
-			@SuppressWarnings("unchecked")
-			Class<AfterFilter<R>>[] clazzs = (Class<AfterFilter<R>>[]) after.value();
-			for (Class<? extends AfterFilter<R>> clazz : clazzs) {
-				try {
-					afterFilterChain.addFilter(clazz.newInstance());
-				} catch (Exception e) {
-					throw new RepositoryException(e.getMessage(), e);
-				}
+		for (Class<?> clazz : plan.getAfters()) {
+			try {
+				@SuppressWarnings("unchecked")
+				AfterFilter<R> filter = (AfterFilter<R>) clazz.newInstance();
+				afterFilterChain.addFilter(filter);
+			} catch (Exception e) {
+				throw new RepositoryException(e.getMessage(), e);
 			}
 		}
-		return afterFilterChain.doFilter(repository, method, args, object);
+		return afterFilterChain.doFilter(repository, plan.getMethod(), args, object);
 	}
 }
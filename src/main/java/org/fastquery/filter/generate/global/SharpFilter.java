@@ -41,7 +41,7 @@ public class SharpFilter implements MethodFilter {
 
 	@Override
 	public Method doFilter(Method method) {
-		Set<String> allows = Stream.of("#{#sets}" , "#{#condition}" , "#{#table}", "#{#id}" , "#{#limit}" , "#{#where}").collect(Collectors.toCollection(HashSet::new));
+		Set<String> allows = Stream.of("#{#sets}" , "#{#condition}" , "#{#table}", "#{#id}" , "#{#limit}" , "#{#where}", "#{#keyset}").collect(Collectors.toCollection(HashSet::new));
 		Query[] queries = method.getAnnotationsByType(Query.class);
 		for (Query query : queries) {
 			String sql = query.value();
@@ -64,6 +64,10 @@ public class PageFilter implements MethodFilter {
 			if (strs.size() > 1) {
 				this.abortWith(method, String.format("%s中,禁止重复出现%s", sql, Placeholder.LIMIT));
 			}
+			strs = TypeUtil.matches(sql, Placeholder.KEYSET_REG);
+			if (strs.size() > 1) {
+				this.abortWith(method, String.format("%s中,禁止重复出现%s", sql, Placeholder.KEYSET));
+			}
 
 		}
 
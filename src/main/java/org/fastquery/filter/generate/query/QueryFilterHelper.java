@@ -23,6 +23,8 @@
 package org.fastquery.filter.generate.query;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -79,4 +81,26 @@ class QueryFilterHelper {
 	static List<String> getQuerySQL(Method method) {
 		return getQuerySQL(method, method.getAnnotationsByType(Query.class));
 	}
+
+	/**
+	 * 逐行读取时,容器(Stream&lt;T&gt;,Iterator&lt;T&gt;,Iterable&lt;T&gt;,RowHandler&lt;T&gt;,Consumer&lt;T&gt;)中的元素T是否合法. <br>
+	 * T只能是Map&lt;String,Object&gt;,Map&lt;String,String&gt;,包装类型或自定义实体
+	 * 
+	 * @param containerType 容器的类型
+	 * @return y:true/n:false
+	 */
+	static boolean isRowElement(Type containerType) {
+		if (!(containerType instanceof ParameterizedType)) {
+			return false;
+		}
+		Type type = ((ParameterizedType) containerType).getActualTypeArguments()[0];
+		if (TypeUtil.isMapSO(type)) {
+			return true;
+		}
+		if (!(type instanceof Class)) {
+			return false;
+		}
+		Class<?> clazz = (Class<?>) type;
+		return TypeUtil.isWarrp(clazz) || TypeUtil.hasDefaultConstructor(clazz);
+	}
 }
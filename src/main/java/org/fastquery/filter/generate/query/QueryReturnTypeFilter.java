@@ -34,7 +34,7 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 
 /**
- * 查询返回值安全检测,既然是查询,如果方法的返回值是void,显然是不受允许的.
+ * 查询返回值安全检测,既然是查询,如果方法的返回值是void,显然是不受允许的. 流式查询的元素类型也在此检测.
  * 
  * @author xixifeng (fastquery@126.com)
  */
@@ -42,17 +42,21 @@ public class QueryReturnTypeFilter implements MethodFilter {
 
 	@Override
 	public Method doFilter(Method method) {
-		String errmsg = String.format("为这个方法设置的返回值错误,其返回值类型支持类型如下:%n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n",
+		String errmsg = String.format("为这个方法设置的返回值错误,其返回值类型支持类型如下:%n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n%s %n",
 				"1). long/int 用于统计总行数", "2). boolean 判断是否存在", "3). Map<String,Object>", "4). List<Map<String,Object>>",
 				"5). List<Map<String,String>>", "6). List<实体>", "7). Page", "8). JSONObject", "9). JSONArray",
 				"10). Integer,Double,Long,Short,Byte,Character,Float,String 八种基本类型(除了Boolean)",
-				"11). Integer[],Double[],Long[],Short[],Byte[],Character[],Float[]", "12). 自定义实体数组", "13).自定义实体,必须包含有默认的构造函数");
+				"11). Integer[],Double[],Long[],Short[],Byte[],Character[],Float[]", "12). 自定义实体数组", "13).自定义实体,必须包含有默认的构造函数",
+				"14). Stream<T>,Iterator<T>,Iterable<T> 流式查询, T可以是Map<String,Object>,Map<String,String>,包装类型或自定义实体",
+				"15). void 方法参数中有RowHandler<T>或Consumer<T>");
 
 		Type genericReturnType = method.getGenericReturnType();
 		Class<?> returnType = method.getReturnType();
 
 		// 返回值所允许的类型
-		if (returnType == long.class || returnType == int.class) {
+		if (returnType == void.class && hasRowHandler(method)) { // 行回调,其余校验交给RowHandlerFilter
+			return method;
+		} else if (returnType == long.class || returnType == int.class) {
 			return method;
 		} else if (returnType == boolean.class) {
 			return method;
@@ -62,6 +66,11 @@ public class QueryReturnTypeFilter implements MethodFilter {
 			return method;
 		} else if (returnType == Page.class) {
 			return method;
+		} else if (TypeUtil.isStreamType(returnType)) { // Stream<T>,Cursor<T>,Iterator<T>,Iterable<T>
+			if (!QueryFilterHelper.isRowElement(genericReturnType)) {
+				this.abortWith(method, errmsg);
+			}
+			return method;
 		} else if (returnType == JSONObject.class) {
 			return method;
 		} else if (returnType == JSONArray.class) {
@@ -81,6 +90,15 @@ public class QueryReturnTypeFilter implements MethodFilter {
 		return method;
 	}
 
+	private boolean hasRowHandler(Method method) {
+		for (Class<?> clazz : method.getParameterTypes()) {
+			if (TypeUtil.isRowHandler(clazz)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	// 判断 returnType 是否是包装类型
 	private boolean isWarrp(Class<?> returnType) {
 		if (returnType == null) {
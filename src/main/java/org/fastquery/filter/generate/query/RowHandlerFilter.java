@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.filter.generate.query;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+import org.fastquery.core.Modifying;
+import org.fastquery.filter.generate.common.MethodFilter;
+import org.fastquery.util.TypeUtil;
+
+/**
+ * 行回调(RowHandler&lt;T&gt;,Consumer&lt;T&gt;)安全检测
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class RowHandlerFilter implements MethodFilter {
+
+	@Override
+	public Method doFilter(Method method) {
+
+		Parameter handler = null;
+		for (Parameter parameter : method.getParameters()) {
+			if (TypeUtil.isRowHandler(parameter.getType())) {
+				// 1). 行回调参数最多只能有一个
+				if (handler != null) {
+					this.abortWith(method, "方法中最多只能有一个RowHandler或Consumer参数");
+				}
+				handler = parameter;
+			}
+		}
+
+		if (handler == null) {
+			return method;
+		}
+
+		// 2). 行回调只能用于查询
+		if (method.getAnnotation(Modifying.class) != null) {
+			this.abortWith(method, "改操作不支持RowHandler或Consumer参数");
+		}
+
+		// 3). 查询结果已经逐行交给了行回调,因此返回值必须是void
+		if (method.getReturnType() != void.class) {
+			this.abortWith(method, "参数中有RowHandler或Consumer时,方法的返回值必须是void");
+		}
+
+		// 4). 必须指明T, T只能是Map<String,Object>,Map<String,String>,包装类型或自定义实体
+		if (!QueryFilterHelper.isRowElement(handler.getParameterizedType())) {
+			this.abortWith(method, handler.getParameterizedType().getTypeName() + " 中的T只能是Map<String,Object>,Map<String,String>,包装类型或自定义实体");
+		}
+
+		return method;
+	}
+
+}
@@ -34,7 +34,6 @@ import org.fastquery.core.QueryContext;
 import org.fastquery.core.RepositoryException;
 import org.fastquery.struct.RespUpdate;
 import org.fastquery.struct.SQLValue;
-import org.fastquery.util.TypeUtil;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
@@ -75,7 +74,7 @@ public final class ModifyingHandler {
 	}
 
 	public Map<String, Object> mapType(Long autoIncKey, Class<?> convertType) {
-		Modifying modifying = QueryContext.getMethod().getAnnotation(Modifying.class);
+		Modifying modifying = QueryContext.getPlan().getModifying();
 		String keyFieldName = modifying.id(); // 不可能为null
 		String tableName = modifying.table();
 		List<Object> values = new ArrayList<>(1);
@@ -149,7 +148,7 @@ public final class ModifyingHandler {
 
 	private Object getId() { // 获取指定的主健,没有找到返回null
 		Object[] args = QueryContext.getArgs();
-		int index = TypeUtil.findId(QueryContext.getMethod().getParameters());
+		int index = QueryContext.getPlan().getIdIndex();
 		if (index != -1) {
 			return args[index];
 		} else {
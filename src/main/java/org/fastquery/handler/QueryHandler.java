@@ -24,7 +24,6 @@ package org.fastquery.handler;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -34,6 +33,7 @@ import java.util.Map.Entry;
 
 import org.fastquery.core.QueryContext;
 import org.fastquery.core.RepositoryException;
+import org.fastquery.struct.RowMap;
 import org.fastquery.util.TypeUtil;
 
 import java.util.Set;
@@ -120,10 +120,23 @@ public class QueryHandler {
 			throw new RepositoryException(QueryContext.getMethod() + "不能把多条记录赋值给Map");
 		}
 
-		Map<String, Object> map = keyvals.get(0);
+		return rowMap(keyvals.get(0), convertType);
+	}
+
+	/**
+	 * 转换一行记录中的value
+	 * 
+	 * @param map 一行记录
+	 * @param convertType 表示map种的value需要转换的目标类型
+	 * @return 转换后的map
+	 */
+	public Map<String, Object> rowMap(Map<String, Object> map, Class<?> convertType) {
 		if (convertType == String.class) {
+			if (map instanceof RowMap) { // 与原行共享列信息
+				return ((RowMap) map).replaceValues(v -> v != null ? v.toString() : null);
+			}
 			Map<String, Object> map2 = new HashMap<>();
-			map.forEach((k, v) -> map2.put(k, v.toString()));
+			map.forEach((k, v) -> map2.put(k, v != null ? v.toString() : null));
 			return map2;
 		}
 		return map;
@@ -132,58 +145,55 @@ public class QueryHandler {
 	// convertType 表示map种的value需要转换的目标类型
 	public List<Map<String, Object>> listType(List<Map<String, Object>> keyvals, Class<?> convertType) {
 		if (convertType == String.class) {
-			List<Map<String, Object>> kvs = new ArrayList<>();
-			keyvals.forEach(map -> {
-				Map<String, Object> m = new HashMap<>();
-				map.forEach((k, v) -> {
-					m.put(k, v);
-					kvs.add(m);
-				});
-			});
+			List<Map<String, Object>> kvs = new ArrayList<>(keyvals.size());
+			keyvals.forEach(map -> kvs.add(rowMap(map, convertType)));
 			return kvs;
 		}
 		return keyvals;
 	}
 
-	public Object list(List<Map<String, Object>> keyvals) { // list bean
+	/**
+	 * List&lt;T&gt; 类型
+	 * 
+	 * @param keyvals 结果集
+	 * @param elementType 元素的类型T
+	 * @return list
+	 */
+	public Object list(List<Map<String, Object>> keyvals, Class<?> elementType) { // list bean
 		List<Object> list = new ArrayList<>();
 		if (keyvals.isEmpty()) {
 			return list;
 		}
 
-		// -- start
-		String returnTypeName = QueryContext.getMethod().getGenericReturnType().getTypeName();
-		ParameterizedType pt = (ParameterizedType) QueryContext.getMethod().getGenericReturnType();
-		java.lang.reflect.Type[] types = pt.getActualTypeArguments();
-		if (types.length == 1) {
-			java.lang.reflect.Type ct = types[0];
-			if (TypeUtil.isWarrp(ct)) {
-				keyvals.forEach(map -> {
-					if (map.values().size() > 1) {
-						throw new RepositoryException("不能把" + keyvals + "转换成" + returnTypeName);
-					}
-					Object obj = map.values().iterator().next();
-					Class<?> clazz = (Class<?>) ct;
-					// 如果obj就是clazz对应实例的子类
-					if (clazz.isAssignableFrom(obj.getClass())) {
-						list.add(obj);
-					} else {
-						throw new RepositoryException("从数据库查出的类型是:" + obj.getClass() + "不能充当List<" + ct + ">的元素");
-					}
-				});
-				return list;
-			}
-		}
-		// end
-
-		Class<?> beanType = (Class<?>) pt.getActualTypeArguments()[0];
-
 		for (Map<String, Object> map : keyvals) {
-			list.add(JSON.toJavaObject(new JSONObject(map), beanType));
+			list.add(element(map, elementType));
 		}
 		return list;
 	}
 
+	/**
+	 * 把一行记录转换成集合(List&lt;T&gt;,Stream&lt;T&gt;等)中的元素T
+	 * 
+	 * @param map 一行记录
+	 * @param elementType 元素的类型T
+	 * @return 元素
+	 */
+	public Object element(Map<String, Object> map, Class<?> elementType) {
+		if (TypeUtil.isWarrp(elementType)) {
+			if (map.values().size() > 1) {
+				throw new RepositoryException("不能把" + map + "转换成" + QueryContext.getPlan().getGenericReturnType().getTypeName());
+			}
+			Object obj = map.values().iterator().next();
+			// 如果obj就是clazz对应实例的子类
+			if (elementType.isAssignableFrom(obj.getClass())) {
+				return obj;
+			} else {
+				throw new RepositoryException("从数据库查出的类型是:" + obj.getClass() + "不能充当" + elementType + "的元素");
+			}
+		}
+		return JSON.toJavaObject(new JSONObject(map), elementType);
+	}
+
 	public JSONObject jsonObjeType(List<Map<String, Object>> keyvals) {
 		if (keyvals.size() > 1) {
 			throw new RepositoryException(QueryContext.getMethod() + "不能把多条记录赋值给JSONObject");
@@ -284,6 +294,39 @@ public class QueryHandler {
 		return array;
 	}
 
+	/**
+	 * 实体数组, 实体已由映射器转换好
+	 * 
+	 * @param returnType 返回值类型
+	 * @param beans 实体集
+	 * @return 数组
+	 */
+	public Object beanArrayType(Class<?> returnType, List<?> beans) {
+		int count = beans.size();
+		Object array = Array.newInstance(returnType.getComponentType(), count);
+		for (int index = 0; index < count; index++) {
+			Array.set(array, index, beans.get(index));
+		}
+		return array;
+	}
+
+	/**
+	 * 单个实体, 实体已由映射器转换好
+	 * 
+	 * @param returnType 返回值类型
+	 * @param beans 实体集
+	 * @return 实体,没有查到返回null
+	 */
+	public Object beanType(Class<?> returnType, List<?> beans) {
+		if (beans.isEmpty()) {
+			return null;
+		}
+		if (beans.size() != 1) {
+			throw new RepositoryException(String.format("%s 不能把一个集合转换成 %s %n根据输入的SQL所查询的结果是一个集合.", QueryContext.getMethod(), returnType));
+		}
+		return beans.get(0);
+	}
+
 	public Object beanType(List<Map<String, Object>> keyvals) {
 		Class<?> returnType = QueryContext.getReturnType();
 		if (keyvals.isEmpty()) {
@@ -0,0 +1,859 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.mapper;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模板语法子集的原生编译器. 支持: 原文, $name, ${name}, $!name, $!{name}, #if/#elseif/#else/#end, #foreach($x in $list)...#end, $foreach.(hasNext|count|index|first|last), ## 和 #* *# 注释. <br>
+ * 条件表达式支持: ||, &amp;&amp;, !, ==, !=, &gt;, &gt;=, &lt;, &lt;= (以及 or, and, not, eq, ne, gt, ge, lt, le), 括号, 数字, 字符串, true, false, null. <br>
+ * 模板被编译成节点树, 渲染时只做一遍遍历, 其语义(真假判断, 比较, 空值的输出)与Velocity一致. 超出这个子集的模板(例如 #set, #macro, 方法调用, 属性访问, 转义), {@link #compile(String)} 返回null, 交给Velocity处理.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class NativeTemplate {
+
+	private final Node[] nodes;
+
+	private NativeTemplate(Node[] nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 * 编译模板
+	 * 
+	 * @param tpl 模板源码
+	 * @return 如果模板超出了支持的语法子集,返回null
+	 */
+	static NativeTemplate compile(String tpl) {
+		Parser parser = new Parser(tpl);
+		try {
+			Node[] nodes = parser.block();
+			if (parser.stop != null) { // 多余的 #end, #else 或 #elseif
+				return null;
+			}
+			return new NativeTemplate(nodes);
+		} catch (Unsupported e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 渲染模板
+	 * 
+	 * @param map 键值
+	 * @return 渲染之后的字符串
+	 */
+	String render(Map<String, Object> map) {
+		StringBuilder out = new StringBuilder(128);
+		render(nodes, new Scope(map), out);
+		return out.toString();
+	}
+
+	private static void render(Node[] nodes, Scope scope, StringBuilder out) {
+		for (Node node : nodes) {
+			node.render(scope, out);
+		}
+	}
+
+	// 超出了支持的语法子集
+	private static final class Unsupported extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Unsupported() {
+			super(null, null, false, false);
+		}
+	}
+
+	// 变量作用域, #foreach 会在当前作用域上叠加一层
+	private static final class Scope {
+		private final Map<String, Object> map;
+		private final Scope parent;
+		private final String var;
+		private Object item;
+		private Loop loop;
+
+		Scope(Map<String, Object> map) {
+			this(map, null, null);
+		}
+
+		Scope(Map<String, Object> map, Scope parent, String var) {
+			this.map = map;
+			this.parent = parent;
+			this.var = var;
+		}
+
+		Object get(String name) {
+			for (Scope s = this; s.var != null; s = s.parent) {
+				if (s.var.equals(name)) {
+					return s.item;
+				} else if ("foreach".equals(name)) {
+					return s.loop;
+				}
+			}
+			return map.get(name);
+		}
+	}
+
+	// $foreach
+	private static final class Loop {
+		private int index;
+		private boolean hasNext;
+
+		Object get(String prop) {
+			switch (prop) {
+			case "hasNext":
+				return hasNext;
+			case "count":
+				return index + 1;
+			case "index":
+				return index;
+			case "first":
+				return index == 0;
+			default: // last
+				return !hasNext;
+			}
+		}
+	}
+
+	private interface Node {
+		void render(Scope scope, StringBuilder out);
+	}
+
+	private interface Expr {
+		Object eval(Scope scope);
+	}
+
+	private static final class Text implements Node {
+		private final String text;
+
+		Text(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public void render(Scope scope, StringBuilder out) {
+			out.append(text);
+		}
+	}
+
+	private static final class Ref implements Node, Expr {
+		private final String name;
+		private final String prop; // $foreach 的属性, 其他引用为null
+		private final boolean quiet;
+		private final String literal; // 值为null时原样输出
+
+		Ref(String name, String prop, boolean quiet, String literal) {
+			this.name = name;
+			this.prop = prop;
+			this.quiet = quiet;
+			this.literal = literal;
+		}
+
+		@Override
+		public Object eval(Scope scope) {
+			Object value = scope.get(name);
+			if (prop != null) {
+				return value instanceof Loop ? ((Loop) value).get(prop) : null;
+			}
+			return value;
+		}
+
+		@Override
+		public void render(Scope scope, StringBuilder out) {
+			Object value = eval(scope);
+			if (value != null) {
+				out.append(value);
+			} else if (!quiet) {
+				out.append(literal);
+			}
+		}
+	}
+
+	private static final class If implements Node {
+		private final Expr[] conditions;
+		private final Node[][] bodies;
+		private final Node[] otherwise;
+
+		If(Expr[] conditions, Node[][] bodies, Node[] otherwise) {
+			this.conditions = conditions;
+			this.bodies = bodies;
+			this.otherwise = otherwise;
+		}
+
+		@Override
+		public void render(Scope scope, StringBuilder out) {
+			for (int i = 0; i < conditions.length; i++) {
+				if (truth(conditions[i].eval(scope))) {
+					NativeTemplate.render(bodies[i], scope, out);
+					return;
+				}
+			}
+			NativeTemplate.render(otherwise, scope, out);
+		}
+	}
+
+	private static final class Foreach implements Node {
+		private final String var;
+		private final Expr source;
+		private final Node[] body;
+
+		Foreach(String var, Expr source, Node[] body) {
+			this.var = var;
+			this.source = source;
+			this.body = body;
+		}
+
+		@Override
+		public void render(Scope scope, StringBuilder out) {
+			Iterator<?> iterator = iterator(source.eval(scope));
+			if (!iterator.hasNext()) {
+				return;
+			}
+			Scope s = new Scope(scope.map, scope, var);
+			s.loop = new Loop();
+			while (iterator.hasNext()) {
+				s.item = iterator.next();
+				s.loop.hasNext = iterator.hasNext();
+				NativeTemplate.render(body, s, out);
+				s.loop.index++;
+			}
+		}
+
+		private static Iterator<?> iterator(Object value) {
+			if (value instanceof Iterable) {
+				return ((Iterable<?>) value).iterator();
+			} else if (value instanceof Map) {
+				return ((Map<?, ?>) value).values().iterator();
+			} else if (value instanceof Iterator) {
+				return (Iterator<?>) value;
+			} else if (value instanceof Enumeration) {
+				return Collections.list((Enumeration<?>) value).iterator();
+			} else if (value != null && value.getClass().isArray()) {
+				int len = Array.getLength(value);
+				List<Object> list = new ArrayList<>(len);
+				for (int i = 0; i < len; i++) {
+					list.add(Array.get(value, i));
+				}
+				return list.iterator();
+			}
+			return Collections.emptyIterator();
+		}
+	}
+
+	private static final class Literal implements Expr {
+		private final Object value;
+
+		Literal(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object eval(Scope scope) {
+			return value;
+		}
+	}
+
+	private static final class Not implements Expr {
+		private final Expr expr;
+
+		Not(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		public Object eval(Scope scope) {
+			return !truth(expr.eval(scope));
+		}
+	}
+
+	private static final class Binary implements Expr {
+		private final String op;
+		private final Expr left;
+		private final Expr right;
+
+		Binary(String op, Expr left, Expr right) {
+			this.op = op;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public Object eval(Scope scope) {
+			switch (op) {
+			case "||":
+				return truth(left.eval(scope)) || truth(right.eval(scope));
+			case "&&":
+				return truth(left.eval(scope)) && truth(right.eval(scope));
+			case "==":
+				return equal(left.eval(scope), right.eval(scope));
+			case "!=":
+				return !equal(left.eval(scope), right.eval(scope));
+			default:
+				Integer c = compare(left.eval(scope), right.eval(scope));
+				if (c == null) {
+					return false;
+				}
+				switch (op) {
+				case ">":
+					return c > 0;
+				case ">=":
+					return c >= 0;
+				case "<":
+					return c < 0;
+				default: // <=
+					return c <= 0;
+				}
+			}
+		}
+	}
+
+	// 与Velocity的#if一致: null, false, 0, 空字符串, 空集合, 空数组为假, 其他为真
+	private static boolean truth(Object value) {
+		if (value == null) {
+			return false;
+		} else if (value instanceof Boolean) {
+			return (Boolean) value;
+		} else if (value instanceof CharSequence) {
+			return ((CharSequence) value).length() != 0;
+		} else if (value instanceof Number) {
+			return ((Number) value).doubleValue() != 0;
+		} else if (value instanceof Collection) {
+			return !((Collection<?>) value).isEmpty();
+		} else if (value instanceof Map) {
+			return !((Map<?, ?>) value).isEmpty();
+		} else if (value.getClass().isArray()) {
+			return Array.getLength(value) != 0;
+		}
+		return true;
+	}
+
+	// 与Velocity一致: 两边都能当作数字时按数值比较, 否则同类型用equals, 不同类型比较toString
+	private static boolean equal(Object left, Object right) {
+		if (left == null || right == null) {
+			return left == right;
+		}
+		Number l = number(left);
+		Number r = number(right);
+		if (l != null && r != null) {
+			return compareNumber(l, r) == 0;
+		} else if (left.getClass().isAssignableFrom(right.getClass()) || right.getClass().isAssignableFrom(left.getClass())) {
+			return left.equals(right);
+		}
+		return left.toString().equals(right.toString());
+	}
+
+	// 与Velocity一致: 只有两边都能当作数字时才能比较大小
+	private static Integer compare(Object left, Object right) {
+		Number l = number(left);
+		Number r = number(right);
+		if (l != null && r != null) {
+			return compareNumber(l, r);
+		}
+		return null;
+	}
+
+	private static Number number(Object value) {
+		if (value instanceof Number) {
+			return (Number) value;
+		} else if (value instanceof String) {
+			try {
+				return new BigDecimal((String) value);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static int compareNumber(Number left, Number right) {
+		if (integral(left) && integral(right)) {
+			return Long.compare(left.longValue(), right.longValue());
+		} else if (special(left) || special(right)) {
+			return Double.compare(left.doubleValue(), right.doubleValue());
+		}
+		return decimal(left).compareTo(decimal(right));
+	}
+
+	// NaN 或 无穷大
+	private static boolean special(Number n) {
+		return (n instanceof Double || n instanceof Float) && (Double.isNaN(n.doubleValue()) || Double.isInfinite(n.doubleValue()));
+	}
+
+	private static boolean integral(Number n) {
+		return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+	}
+
+	private static BigDecimal decimal(Number n) {
+		if (n instanceof BigDecimal) {
+			return (BigDecimal) n;
+		} else if (n instanceof BigInteger) {
+			return new BigDecimal((BigInteger) n);
+		} else if (integral(n)) {
+			return BigDecimal.valueOf(n.longValue());
+		}
+		return new BigDecimal(n.toString());
+	}
+
+	private static final class Parser {
+		private final String s;
+		private final int len;
+		private int i;
+		private String stop; // 结束当前块的指令: end, else 或 elseif
+
+		Parser(String s) {
+			this.s = s;
+			this.len = s.length();
+		}
+
+		// 解析到块的结尾,遇到 #end, #else, #elseif 时停下来并记录在stop里
+		Node[] block() {
+			List<Node> nodes = new ArrayList<>();
+			StringBuilder text = new StringBuilder();
+			stop = null;
+			while (i < len) {
+				char c = s.charAt(i);
+				if (c == '\\') {
+					if (i + 1 < len && (s.charAt(i + 1) == '$' || s.charAt(i + 1) == '#')) {
+						throw new Unsupported();
+					}
+					text.append(c);
+					i++;
+				} else if (c == '$') {
+					Ref ref = ref();
+					if (ref == null) {
+						text.append(c);
+						i++;
+					} else {
+						flush(text, nodes);
+						nodes.add(ref);
+					}
+				} else if (c == '#') {
+					String directive = directive();
+					if (directive == null) {
+						text.append(c);
+						i++;
+						continue;
+					}
+					flush(text, nodes);
+					switch (directive) {
+					case "":
+						break; // 注释
+					case "if":
+						nodes.add(ifs());
+						break;
+					case "foreach":
+						nodes.add(foreach());
+						break;
+					default: // end, else, elseif
+						stop = directive;
+						return nodes.toArray(new Node[nodes.size()]);
+					}
+				} else {
+					text.append(c);
+					i++;
+				}
+			}
+			flush(text, nodes);
+			return nodes.toArray(new Node[nodes.size()]);
+		}
+
+		private static void flush(StringBuilder text, List<Node> nodes) {
+			if (text.length() > 0) {
+				nodes.add(new Text(text.toString()));
+				text.setLength(0);
+			}
+		}
+
+		// 当前位置是'#'. 返回指令名称并跳过它,注释返回"",不是指令返回null(当作原文)
+		private String directive() {
+			if (s.startsWith("##", i)) {
+				int e = s.indexOf('\n', i);
+				i = e == -1 ? len : e + 1;
+				return "";
+			} else if (s.startsWith("#*", i)) {
+				int e = s.indexOf("*#", i + 2);
+				if (e == -1) {
+					throw new Unsupported();
+				}
+				i = e + 2;
+				return "";
+			}
+			int j = i + 1;
+			boolean braced = j < len && s.charAt(j) == '{';
+			if (braced) {
+				j++;
+			}
+			int k = identifier(j);
+			if (k == j) {
+				return null;
+			}
+			String name = s.substring(j, k);
+			if (braced) {
+				if (k >= len || s.charAt(k) != '}') {
+					throw new Unsupported();
+				}
+				k++;
+			}
+			switch (name) {
+			case "if":
+			case "elseif":
+			case "foreach":
+			case "else":
+			case "end":
+				i = k;
+				return name;
+			case "set":
+			case "macro":
+			case "parse":
+			case "include":
+			case "evaluate":
+			case "define":
+			case "break":
+			case "stop":
+				throw new Unsupported();
+			default:
+				if (k < len && s.charAt(k) == '(') { // 宏调用
+					throw new Unsupported();
+				}
+				return null; // 例如 #{#limit}
+			}
+		}
+
+		private If ifs() {
+			List<Expr> conditions = new ArrayList<>();
+			List<Node[]> bodies = new ArrayList<>();
+			conditions.add(condition());
+			bodies.add(block());
+			while ("elseif".equals(stop)) {
+				conditions.add(condition());
+				bodies.add(block());
+			}
+			Node[] otherwise = new Node[0];
+			if ("else".equals(stop)) {
+				otherwise = block();
+			}
+			if (!"end".equals(stop)) {
+				throw new Unsupported();
+			}
+			stop = null;
+			return new If(conditions.toArray(new Expr[conditions.size()]), bodies.toArray(new Node[bodies.size()][]), otherwise);
+		}
+
+		private Foreach foreach() {
+			Expression e = new Expression(arguments());
+			Ref var = e.ref();
+			if (var == null || var.prop != null || !"in".equals(e.word())) {
+				throw new Unsupported();
+			}
+			Expr source = e.primary();
+			e.finish();
+			Node[] body = block();
+			if (!"end".equals(stop)) {
+				throw new Unsupported();
+			}
+			stop = null;
+			return new Foreach(var.name, source, body);
+		}
+
+		private Expr condition() {
+			Expression e = new Expression(arguments());
+			Expr expr = e.or();
+			e.finish();
+			return expr;
+		}
+
+		// 读取指令后面"(...)"里的内容
+		private String arguments() {
+			while (i < len && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) {
+				i++;
+			}
+			if (i >= len || s.charAt(i) != '(') {
+				throw new Unsupported();
+			}
+			int depth = 0;
+			char quote = 0;
+			for (int j = i; j < len; j++) {
+				char c = s.charAt(j);
+				if (quote != 0) {
+					if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '\'' || c == '"') {
+					quote = c;
+				} else if (c == '(') {
+					depth++;
+				} else if (c == ')' && --depth == 0) {
+					String args = s.substring(i + 1, j);
+					i = j + 1;
+					return args;
+				}
+			}
+			throw new Unsupported();
+		}
+
+		// 当前位置是'$'. 返回引用并跳过它,不是引用返回null(当作原文)
+		private Ref ref() {
+			int j = i + 1;
+			boolean quiet = j < len && s.charAt(j) == '!';
+			if (quiet) {
+				j++;
+			}
+			boolean braced = j < len && s.charAt(j) == '{';
+			if (braced) {
+				j++;
+			}
+			int k = identifier(j);
+			if (k == j) {
+				return null;
+			}
+			String name = s.substring(j, k);
+			String prop = null;
+			if (k + 1 < len && s.charAt(k) == '.' && identifier(k + 1) > k + 1) { // 属性或方法
+				int e = identifier(k + 1);
+				prop = s.substring(k + 1, e);
+				if (!"foreach".equals(name) || !isLoopProperty(prop)) {
+					throw new Unsupported();
+				}
+				k = e;
+			}
+			if (braced) {
+				if (k >= len || s.charAt(k) != '}') {
+					throw new Unsupported();
+				}
+				k++;
+			} else if (k < len && (s.charAt(k) == '[' || s.charAt(k) == '(')) { // 下标或方法
+				throw new Unsupported();
+			}
+			String literal = s.substring(i, k);
+			i = k;
+			return new Ref(name, prop, quiet, literal);
+		}
+
+		private static boolean isLoopProperty(String prop) {
+			return "hasNext".equals(prop) || "count".equals(prop) || "index".equals(prop) || "first".equals(prop) || "last".equals(prop);
+		}
+
+		private int identifier(int from) {
+			int k = from;
+			if (k < len && (Character.isLetter(s.charAt(k)) || s.charAt(k) == '_')) {
+				k++;
+				while (k < len && (Character.isLetterOrDigit(s.charAt(k)) || s.charAt(k) == '_')) {
+					k++;
+				}
+			}
+			return k;
+		}
+	}
+
+	// 条件表达式, 优先级从低到高: || , &&, (== !=), (&gt; &gt;= &lt; &lt;=), !
+	private static final class Expression {
+		private final Parser p;
+
+		Expression(String args) {
+			this.p = new Parser(args);
+		}
+
+		Expr or() {
+			Expr left = and();
+			while (operator("||", "or")) {
+				left = new Binary("||", left, and());
+			}
+			return left;
+		}
+
+		private Expr and() {
+			Expr left = equality();
+			while (operator("&&", "and")) {
+				left = new Binary("&&", left, equality());
+			}
+			return left;
+		}
+
+		private Expr equality() {
+			Expr left = relational();
+			while (true) {
+				if (operator("==", "eq")) {
+					left = new Binary("==", left, relational());
+				} else if (operator("!=", "ne")) {
+					left = new Binary("!=", left, relational());
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Expr relational() {
+			Expr left = unary();
+			while (true) {
+				if (operator(">=", "ge")) {
+					left = new Binary(">=", left, unary());
+				} else if (operator("<=", "le")) {
+					left = new Binary("<=", left, unary());
+				} else if (operator(">", "gt")) {
+					left = new Binary(">", left, unary());
+				} else if (operator("<", "lt")) {
+					left = new Binary("<", left, unary());
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Expr unary() {
+			if (operator("!", "not")) {
+				return new Not(unary());
+			}
+			return primary();
+		}
+
+		Expr primary() {
+			skip();
+			if (p.i >= p.len) {
+				throw new Unsupported();
+			}
+			char c = p.s.charAt(p.i);
+			if (c == '(') {
+				p.i++;
+				Expr expr = or();
+				skip();
+				if (p.i >= p.len || p.s.charAt(p.i) != ')') {
+					throw new Unsupported();
+				}
+				p.i++;
+				return expr;
+			} else if (c == '$') {
+				Ref ref = ref();
+				if (ref == null) {
+					throw new Unsupported();
+				}
+				return ref;
+			} else if (c == '\'' || c == '"') {
+				int e = p.s.indexOf(c, p.i + 1);
+				if (e == -1) {
+					throw new Unsupported();
+				}
+				String str = p.s.substring(p.i + 1, e);
+				if (c == '"' && (str.indexOf('$') != -1 || str.indexOf('#') != -1)) { // 双引号字符串会被解析
+					throw new Unsupported();
+				}
+				p.i = e + 1;
+				return new Literal(str);
+			} else if (Character.isDigit(c) || c == '-') {
+				return number();
+			}
+			String word = word();
+			if ("true".equals(word)) {
+				return new Literal(Boolean.TRUE);
+			} else if ("false".equals(word)) {
+				return new Literal(Boolean.FALSE);
+			} else if ("null".equals(word)) {
+				return new Literal(null);
+			}
+			throw new Unsupported();
+		}
+
+		private Expr number() {
+			int j = p.i;
+			if (p.s.charAt(j) == '-') {
+				j++;
+			}
+			int start = j;
+			while (j < p.len && Character.isDigit(p.s.charAt(j))) {
+				j++;
+			}
+			boolean decimal = j + 1 < p.len && p.s.charAt(j) == '.' && Character.isDigit(p.s.charAt(j + 1));
+			if (decimal) {
+				j++;
+				while (j < p.len && Character.isDigit(p.s.charAt(j))) {
+					j++;
+				}
+			}
+			if (j == start) {
+				throw new Unsupported();
+			}
+			String n = p.s.substring(p.i, j);
+			p.i = j;
+			return new Literal(decimal ? new BigDecimal(n) : (Number) new BigInteger(n));
+		}
+
+		Ref ref() {
+			skip();
+			if (p.i >= p.len || p.s.charAt(p.i) != '$') {
+				return null;
+			}
+			return p.ref();
+		}
+
+		String word() {
+			skip();
+			int k = p.identifier(p.i);
+			String word = p.s.substring(p.i, k);
+			p.i = k;
+			return word;
+		}
+
+		// 如果接下来是给定的运算符(符号或单词形式),就跳过它并返回true
+		private boolean operator(String symbol, String word) {
+			skip();
+			if (p.s.startsWith(symbol, p.i)) {
+				if ("!".equals(symbol) && p.s.startsWith("!=", p.i)) {
+					return false;
+				}
+				if ((">".equals(symbol) || "<".equals(symbol)) && p.s.startsWith("=", p.i + 1)) {
+					return false;
+				}
+				p.i += symbol.length();
+				return true;
+			}
+			int k = p.identifier(p.i);
+			if (k > p.i && p.s.substring(p.i, k).equals(word)) {
+				p.i = k;
+				return true;
+			}
+			return false;
+		}
+
+		void finish() {
+			skip();
+			if (p.i != p.len) {
+				throw new Unsupported();
+			}
+		}
+
+		private void skip() {
+			while (p.i < p.len && Character.isWhitespace(p.s.charAt(p.i))) {
+				p.i++;
+			}
+		}
+	}
+}
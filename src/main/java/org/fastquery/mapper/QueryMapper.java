@@ -30,10 +30,26 @@ public class QueryMapper {
 
 	private String id; // 重写id的hashCode和equals,用它作为唯一标识
 	private String template; // 模板
+	private String countQuery; // 求和模板,可能为null
+	private TemplateEngine.Renderer renderer; // 编译好的模板,无法编译时为null
+	private TemplateEngine.Renderer countRenderer;
 
-	QueryMapper(String id, String template) {
+	QueryMapper(String id, String template, String countQuery) {
 		this.id = id;
 		this.template = template;
+		this.countQuery = countQuery;
+	}
+
+	/**
+	 * 预编译模板和求和模板
+	 * 
+	 * @param key "类的完整名称.id值"
+	 */
+	void compile(String key) {
+		renderer = TemplateEngine.compile(key, template);
+		if (countQuery != null) {
+			countRenderer = TemplateEngine.compile(key + TemplateEngine.COUNT, countQuery);
+		}
 	}
 
 	public String getId() {
@@ -44,6 +60,18 @@ public class QueryMapper {
 		return template;
 	}
 
+	public String getCountQuery() {
+		return countQuery;
+	}
+
+	TemplateEngine.Renderer getRenderer() {
+		return renderer;
+	}
+
+	TemplateEngine.Renderer getCountRenderer() {
+		return countRenderer;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -24,14 +24,14 @@ package org.fastquery.mapper;
 
 import java.io.InputStream;
 import java.io.StringWriter;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.Velocity;
+import org.fastquery.core.MethodPlan;
 import org.fastquery.core.Param;
 import org.fastquery.core.QueryByNamed;
 import org.fastquery.core.QueryContext;
@@ -64,28 +65,22 @@ public class QueryPool {
 
 	private static Resource resource;
 
-	private static Map<String, Set<QueryMapper>> mapQueryMapper = new HashMap<>();
-
-	private static Map<String, String> countQueryMap = new HashMap<>();
+	// key: 类的完整名称, value: 该类的全部模板(id -> QueryMapper), 只读的快照, 重新读取模板时整个替换掉
+	private static final Map<String, Map<String, QueryMapper>> mapQueryMapper = new ConcurrentHashMap<>();
 
 	private QueryPool() {
 	}
 
-	private static void putCountQuery(String key, String value) {
-		if (value == null || key == null) {
-			return;
-		}
-		countQueryMap.put(key, value);
-	}
-
 	/**
-	 * 获取求和模板 key: "类的完整名称.id值"
+	 * 根据类名称(包含包地址)和id查询出模板
 	 * 
-	 * @param key
-	 * @return
+	 * @param className 类的完整名称
+	 * @param id 模板id
+	 * @return 没有找到返回null
 	 */
-	static String getCountQuery(String key) {
-		return countQueryMap.get(key);
+	static QueryMapper getQueryMapper(String className, String id) {
+		Map<String, QueryMapper> queryMappers = mapQueryMapper.get(className);
+		return queryMappers == null ? null : queryMappers.get(id);
 	}
 
 	private static String findTplXml(String className, Resource resource) {
@@ -159,13 +154,13 @@ public class QueryPool {
 					// 待续...
 					// 在存储template, 和 countQuery 之前 需要做数据库过滤 end
 
-					// countQuery 单独存储起来 (className + "." + id)可以确保唯一值,
-					putCountQuery(className + "." + id, countQuery); // 该方法接受到null值后,会视而不见
 					LOG.debug(String.format("id=%s , template=%s", id, template));
-					QueryMapper queryMapper = new QueryMapper(id, template);
+					QueryMapper queryMapper = new QueryMapper(id, template, countQuery);
 					// 边解析,边做合法校验
 					legalCheck(queryMappers, queryMapper, postion);
 					legalCheck(countQuery, postion);
+					// (className + "." + id)可以确保唯一值
+					queryMapper.compile(className + "." + id);
 					queryMappers.add(queryMapper);
 				}
 			}
@@ -246,7 +241,7 @@ public class QueryPool {
 	}
 
 	/**
-	 * 根据 className -&gt; query配置文件 -&gt; 获取模板,然后存储到QueryPool里.<br>
+	 * 根据 className -&gt; query配置文件 -&gt; 获取模板,然后存储到QueryPool里. 调试模式下会监听模板文件,文件有改动时只重新读取这一个文件.<br>
 	 * 注意: 这个方法开销较大,生产环境中最好做到项目初始时执行一次,不要执行多遍.
 	 * 
 	 * @param className class名称
@@ -254,20 +249,33 @@ public class QueryPool {
 	 */
 	public static void put(String className, Resource resource) {
 		QueryPool.resource = resource;
-		Set<QueryMapper> queryMappers = xml2QueryMapper(className, resource);
-		queryMappers.forEach(queryMapper -> addTemplate(className, queryMapper));
+		load(className, resource);
+		if (FastQueryJSONObject.getDebug()) {
+			String xmlName = findTplXml(className, resource);
+			if (xmlName != null) {
+				QueryWatcher.watch(className, resource, resource.getResource(xmlName));
+			}
+		}
 	}
 
 	/**
-	 * 重新读取模板放入池中,显然在调试模式下很有用
+	 * 重新读取模板放入池中. 新模板全部解析成功后才替换旧模板,其他类的模板不受影响.
 	 * 
 	 * @param className class名称
 	 */
 	public static void reset(String className) {
-		mapQueryMapper.clear();
-		countQueryMap.clear();
+		load(className, resource);
+	}
+
+	static void load(String className, Resource resource) {
 		Set<QueryMapper> queryMappers = xml2QueryMapper(className, resource);
-		queryMappers.forEach(queryMapper -> addTemplate(className, queryMapper));
+		if (queryMappers.isEmpty()) {
+			mapQueryMapper.remove(className);
+			return;
+		}
+		Map<String, QueryMapper> snapshot = new HashMap<>();
+		queryMappers.forEach(queryMapper -> snapshot.put(queryMapper.getId(), queryMapper));
+		mapQueryMapper.put(className, Collections.unmodifiableMap(snapshot));
 	}
 
 	/**
@@ -295,22 +303,18 @@ public class QueryPool {
 
 	// 该方法永远不会返回null或空,因为在初始化时就做了检测
 	public static String render(boolean isQuery) {
-		String className = QueryContext.getIclass().getName();
-		Method method = QueryContext.getMethod();
+		MethodPlan plan = QueryContext.getPlan();
+		String className = plan.getIclass().getName();
 		Object[] args = QueryContext.getArgs();
-		QueryByNamed qbn = method.getAnnotation(QueryByNamed.class);
+		QueryByNamed qbn = plan.getQueryByNamed();
 		String id = qbn.value();
 		if ("".equals(id)) {
-			id = method.getName();
+			id = plan.getMethod().getName();
 		}
 		LOG.info("已获得模板:{}", id);
-		String tpl;
-		if (isQuery) {
-			// getTemplate 永远不会为null,在初始化时已经做了检测
-			tpl = getTemplate(className, id);
-		} else {
-			tpl = getCountQuery(className + '.' + id);
-		}
+		// 永远不会为null,在初始化时已经做了检测
+		QueryMapper queryMapper = getQueryMapper(className, id);
+		String tpl = isQuery ? queryMapper.getTemplate() : queryMapper.getCountQuery();
 
 		if (!qbn.render()) {
 			return tpl;
@@ -318,54 +322,21 @@ public class QueryPool {
 
 		// 处理@Param
 		Map<String, Object> map = new HashMap<>();
-		Annotation[][] annotations = method.getParameterAnnotations();
-		int len = annotations.length;
+		Param[] params = plan.getParams();
+		int len = params.length;
 		for (int i = 0; i < len; i++) {
-			Annotation[] anns = annotations[i];
-			for (Annotation ann : anns) {
-				if (ann.annotationType() == Param.class) {
-					Param param = (Param) ann;
-					map.put(param.value(), args[i]);
-				}
+			if (params[i] != null) {
+				map.put(params[i].value(), args[i]);
 			}
 		}
 		// 处理@Param End
 
 		String logTag = new StringBuilder(className).append('.').append(id).toString();
 
-		String str = render(tpl, logTag, map).trim().replaceAll("\\s+", " ");
-
-		return TypeUtil.parWhere(str);
-	}
-
-	/**
-	 * 往QueryPool里添加一个模板,参数值全部都不能为null,否则对外抛出IllegalArgumentException.
-	 * 
-	 * @param className
-	 * @param id
-	 * @param template
-	 */
-	private static synchronized void addTemplate(String className, QueryMapper queryMapper) {
-		Set<QueryMapper> queryMappers = getQueryMappers(className);
-		queryMappers.add(queryMapper);
-	}
+		TemplateEngine.Renderer renderer = isQuery ? queryMapper.getRenderer() : queryMapper.getCountRenderer();
+		String str = renderer != null ? renderer.render(map) : render(tpl, logTag, map);
 
-	/**
-	 * 根据类名称(包含包地址)和id查询出模板 该方法永远不会返回null或"",因为在初始化时做了与处理,如果为null或"",初始化都通过不了.
-	 * 
-	 * @param className
-	 * @param id
-	 * @return
-	 */
-	private static String getTemplate(String className, String id) {
-		// 特别注意: 是否有模板,已经在初始化时做了严格校验,在此处就不用判断是否为null了
-		Set<QueryMapper> queryMappers = mapQueryMapper.get(className);
-		for (QueryMapper queryMapper : queryMappers) {
-			if (queryMapper.getId().equals(id)) {
-				return queryMapper.getTemplate();
-			}
-		}
-		return null;
+		return TypeUtil.compact(str);
 	}
 
 	// 在解析xml时,合法性检查
@@ -401,26 +372,7 @@ public class QueryPool {
 		}
 	}
 
-	/**
-	 * 根据className 获取它对应的QueryMapper集合,如果没有的话new一个QueryMapper集合存储起来,然后返回这个空集合,供外界修改
-	 * 
-	 * @param className
-	 * @return
-	 */
-	private static Set<QueryMapper> getQueryMappers(String className) {
-		Set<QueryMapper> queryMappers = mapQueryMapper.get(className);
-		if (queryMappers == null) {
-			queryMappers = new HashSet<>();
-			mapQueryMapper.put(className, queryMappers);
-		}
-		return queryMappers;
-	}
-
-	static Map<String, Set<QueryMapper>> getMapQueryMapper() {
+	static Map<String, Map<String, QueryMapper>> getMapQueryMapper() {
 		return mapQueryMapper;
 	}
-
-	static Map<String, String> getCountQueryMap() {
-		return countQueryMap;
-	}
 }
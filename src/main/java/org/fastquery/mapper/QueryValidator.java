@@ -26,7 +26,6 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.fastquery.core.Placeholder;
 import org.fastquery.core.QueryByNamed;
@@ -49,14 +48,14 @@ public class QueryValidator {
 	public static void check(List<Class<Repository>> classes) {
 		List<String> queries = new ArrayList<>();
 
-		Map<String, String> countQueryMap = QueryPool.getCountQueryMap();
-		countQueryMap.forEach((k, v) -> queries.add(v));
-
-		Map<String, Set<QueryMapper>> mapQueryMapper = QueryPool.getMapQueryMapper();
-		Set<Entry<String, Set<QueryMapper>>> queryMappers = mapQueryMapper.entrySet();
-		for (Entry<String, Set<QueryMapper>> entry : queryMappers) {
-			Set<QueryMapper> qms = entry.getValue();
-			qms.forEach(q -> queries.add(q.getTemplate()));
+		Map<String, Map<String, QueryMapper>> mapQueryMapper = QueryPool.getMapQueryMapper();
+		for (Map<String, QueryMapper> qms : mapQueryMapper.values()) {
+			qms.values().forEach(q -> {
+				queries.add(q.getTemplate());
+				if (q.getCountQuery() != null) {
+					queries.add(q.getCountQuery());
+				}
+			});
 		}
 
 		for (String query : queries) {
@@ -106,6 +105,7 @@ public class QueryValidator {
 			// 3). query装载后,就不能再出现 #{#name} 表达式了
 			List<String> mts = TypeUtil.matches(query, "#\\{#\\S+\\}");
 			mts.remove(Placeholder.LIMIT); // 内置标签不参与校验 
+			mts.remove(Placeholder.KEYSET);
 			if (!mts.isEmpty()) {
 				error(String.format("没有找到name=\"%s\"的part", mts.get(0).replace("{", "").replace("}", "").replace("#", "")), query);
 			}
@@ -135,17 +135,16 @@ public class QueryValidator {
 					id = method.getName();
 				}
 				// m1: 标识有@QueryByNamed的方法,必须有对应的模板
-				String tmp = getTemplate(className, id, mapQueryMapper.get(className));
-				if (tmp == null) {
+				QueryMapper queryMapper = QueryPool.getQueryMapper(className, id);
+				if (queryMapper == null) {
 					error(method, String.format("从%s.queries.xml里没有找到id为%s的模板,模板文件区分大小写,很有可能%s.queries.xml不存在.", className, id, className));
 					return;
 				}
-				if ("".equals(tmp.trim())) {
+				if ("".equals(queryMapper.getTemplate().trim())) {
 					error(method, String.format("在%s.queries.xml里,id为%s的模板不能为空字符串", className, id));
 				}
 
-				String key = className + "." + id;
-				String countQuery = QueryPool.getCountQuery(key);
+				String countQuery = queryMapper.getCountQuery();
 
 				// m2: 如果是分页,并且没有标识@NotCount,必须有求和语句
 				Class<?> returnType = method.getReturnType();
@@ -174,19 +173,4 @@ public class QueryValidator {
 		throw new ExceptionInInitializerError(msg + ", 错误位置>>>>>>>>>>>>>>: " + query);
 	}
 
-	private static String getTemplate(String className, String id, Set<QueryMapper> queryMappers) {
-		if (className == null || id == null) {
-			return null;
-		}
-		if (queryMappers == null) {
-			return null;
-		}
-		for (QueryMapper queryMapper : queryMappers) {
-			if (queryMapper.getId().equals(id)) {
-				return queryMapper.getTemplate();
-			}
-		}
-		return null;
-	}
-
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.mapper;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fastquery.core.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 调试模式下监听 *.queries.xml, 文件有改动时只重新读取这一个文件对应的模板. 取代以前每次调用方法都重新读取全部模板的做法.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class QueryWatcher {
+
+	private static final Logger LOG = LoggerFactory.getLogger(QueryWatcher.class);
+
+	// key: 模板文件的绝对路径
+	private static final Map<Path, Source> SOURCES = new ConcurrentHashMap<>();
+
+	private static WatchService watchService;
+
+	private QueryWatcher() {
+	}
+
+	// 模板文件对应的类, 以及重新读取它所需要的环境
+	private static final class Source {
+		private final String className;
+		private final Resource resource;
+		private final ClassLoader classLoader; // 配置文件按ClassLoader区分
+
+		Source(String className, Resource resource, ClassLoader classLoader) {
+			this.className = className;
+			this.resource = resource;
+			this.classLoader = classLoader;
+		}
+	}
+
+	/**
+	 * 监听模板文件, 不在文件系统里的模板(例如打包在jar里)无法监听
+	 * 
+	 * @param className 类的完整名称
+	 * @param resource 资源
+	 * @param url 模板文件的地址
+	 */
+	static synchronized void watch(String className, Resource resource, URL url) {
+		if (url == null || !"file".equals(url.getProtocol())) {
+			LOG.debug("{}的模板不是文件,无法监听", className);
+			return;
+		}
+		try {
+			Path path = Paths.get(url.toURI()).toAbsolutePath();
+			if (watchService == null) {
+				watchService = FileSystems.getDefault().newWatchService();
+				Thread thread = new Thread(QueryWatcher::run, "fastquery-queries-watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			SOURCES.put(path, new Source(className, resource, Thread.currentThread().getContextClassLoader()));
+		} catch (IOException | URISyntaxException e) {
+			LOG.warn("无法监听{}的模板:{}", className, e.getMessage());
+		}
+	}
+
+	private static void run() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+			Path dir = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					SOURCES.forEach((path, source) -> {
+						if (path.getParent().equals(dir)) {
+							reload(source);
+						}
+					});
+				} else {
+					Source source = SOURCES.get(dir.resolve((Path) event.context()));
+					if (source != null) {
+						reload(source);
+					}
+				}
+			}
+			key.reset();
+		}
+	}
+
+	// 解析出错时保留原来的模板, 改正之后再次保存文件即可
+	private static void reload(Source source) {
+		Thread thread = Thread.currentThread();
+		ClassLoader old = thread.getContextClassLoader();
+		thread.setContextClassLoader(source.classLoader);
+		try {
+			QueryPool.load(source.className, source.resource);
+			LOG.info("已重新读取{}的模板", source.className);
+		} catch (RuntimeException | ExceptionInInitializerError e) {
+			LOG.error("重新读取{}的模板失败:{}", source.className, e.getMessage());
+		} finally {
+			thread.setContextClassLoader(old);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.mapper;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.resource.loader.StringResourceLoader;
+import org.apache.velocity.runtime.resource.util.StringResourceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * *.queries.xml 模板的编译器. 模板在 {@link QueryPool#put(String, org.fastquery.core.Resource)} 时编译一次, 编译结果随 {@link QueryMapper} 一起存放, 之后每次渲染不再重复解析模板源码. <br>
+ * 优先用 {@link NativeTemplate} 编译, 超出其语法子集的模板才由专用的VelocityEngine解析. 只有用到Velocity时才会初始化VelocityEngine.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class TemplateEngine {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TemplateEngine.class);
+
+	// 求和模板的标识: "类的完整名称.id值" + COUNT
+	static final String COUNT = "#countQuery";
+
+	/**
+	 * 编译好的模板
+	 */
+	interface Renderer {
+		/**
+		 * 渲染模板
+		 * 
+		 * @param map 键值
+		 * @return 渲染之后的字符串
+		 */
+		String render(Map<String, Object> map);
+	}
+
+	private TemplateEngine() {
+	}
+
+	// 延迟初始化VelocityEngine
+	private static final class VelocityHolder {
+
+		private static final String REPOSITORY = "fastquery.queries";
+
+		private static final VelocityEngine ENGINE = new VelocityEngine();
+
+		private static final StringResourceRepository REPO;
+
+		static {
+			Properties properties = new Properties();
+			properties.setProperty("resource.loader", "string");
+			properties.setProperty("string.resource.loader.class", StringResourceLoader.class.getName());
+			properties.setProperty("string.resource.loader.repository.name", REPOSITORY);
+			properties.setProperty("string.resource.loader.repository.static", "false");
+			// Template 由TemplateEngine缓存, 引擎每次都要重新解析, 调试模式下重新读取的模板才能生效
+			properties.setProperty("string.resource.loader.cache", "false");
+			ENGINE.init(properties);
+			REPO = (StringResourceRepository) ENGINE.getApplicationAttribute(REPOSITORY);
+		}
+	}
+
+	/**
+	 * 编译模板. 如果模板不符合Velocity语法,只记录日志,渲染时会按原先的方式解析并报告错误(标识了render=false的模板不需要符合Velocity语法).
+	 * 
+	 * @param key 模板标识, "类的完整名称.id值", 求和模板在后面再加上 COUNT
+	 * @param tpl 模板源码
+	 * @return 编译好的模板, 编译失败返回null
+	 */
+	static Renderer compile(String key, String tpl) {
+		NativeTemplate nativeTemplate = NativeTemplate.compile(tpl);
+		if (nativeTemplate != null) {
+			return nativeTemplate::render;
+		}
+		LOG.debug("模板{}超出了原生模板的语法,交给Velocity处理", key);
+		Template template;
+		synchronized (VelocityHolder.REPO) { // 模板可能在监听线程里重新编译
+			VelocityHolder.REPO.putStringResource(key, tpl);
+			try {
+				template = VelocityHolder.ENGINE.getTemplate(key);
+			} catch (ParseErrorException e) {
+				LOG.warn("模板{}无法预编译(标识了render=false时可以忽略):{}", key, e.getMessage());
+				return null;
+			} finally {
+				VelocityHolder.REPO.removeStringResource(key);
+			}
+		}
+		return map -> {
+			StringWriter writer = new StringWriter();
+			template.merge(new VelocityContext(map), writer);
+			return writer.toString();
+		};
+	}
+}
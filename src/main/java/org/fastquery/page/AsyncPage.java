@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.fastquery.core.RepositoryException;
+
+/**
+ * 异步求和的分页. 当前页的内容立即可用, 依赖总行数的属性在第一次访问时等待求和结束.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class AsyncPage<E> extends PageImpl<E> {
+
+	private final CompletableFuture<Long> total;
+	private volatile boolean resolved;
+
+	public AsyncPage(int size, int numberOfElements, int number, List<E> content, boolean hasContent, boolean hasPrevious, boolean isFirst,
+			Slice previousPageable, CompletableFuture<Long> total) {
+		super(size, numberOfElements, number, content, -1L, -1, hasContent, false, hasPrevious, isFirst, false, null, previousPageable);
+		this.total = total;
+	}
+
+	// 等待求和结束, 推算出总页数,是否有下一页,是否是最后一页
+	private void resolve() {
+		if (resolved) {
+			return;
+		}
+		synchronized (this) {
+			if (resolved) {
+				return;
+			}
+			long totalElements;
+			try {
+				totalElements = total.join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof RepositoryException ? (RepositoryException) cause : new RepositoryException(cause);
+			}
+			int size = getSize();
+			int number = getNumber();
+			int totalPages = (int) (totalElements / size);
+			if (totalElements % size != 0) {
+				totalPages += 1;
+			}
+			boolean isLast = number == totalPages;
+			setTotalElements(totalElements);
+			setTotalPages(totalPages);
+			setHasNext(number < totalPages);
+			setLast(isLast);
+			setNextPageable(new Slice((!isLast) ? (number + 1) : number, size));
+			resolved = true;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Long> totalElementsAsync() {
+		return total;
+	}
+
+	@Override
+	public long getTotalElements() {
+		resolve();
+		return super.getTotalElements();
+	}
+
+	@Override
+	public int getTotalPages() {
+		resolve();
+		return super.getTotalPages();
+	}
+
+	@Override
+	public boolean isHasNext() {
+		resolve();
+		return super.isHasNext();
+	}
+
+	@Override
+	public boolean isLast() {
+		resolve();
+		return super.isLast();
+	}
+
+	@Override
+	public Slice getNextPageable() {
+		resolve();
+		return super.getNextPageable();
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * 标识分页时, 求和语句在连接池的另一个连接上与当前页的查询同时执行, 耗时由两者之和变为两者中较长的一个. <br>
+ * 方法上没有标识时, 取 fastquery.json 中的 concurrentCount. <br>
+ * 注意: 每次分页同时占用两个连接, 连接池的容量需要是并发分页数的两倍. 取不到第二个连接时, 求和退回到当前连接上依次执行.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD })
+public @interface ConcurrentCount {
+
+	/**
+	 * 
+	 * @return true:同时执行; false:依次执行,即使全局开启了
+	 */
+	boolean value() default true;
+
+	/**
+	 * 是否不等待求和语句执行完. 若为true, 当前页的内容一查出来就返回, 总行数通过 {@link Page#totalElementsAsync()} 获取, 而
+	 * getTotalElements(), getTotalPages(), isHasNext(), isLast(), getNextPageable() 会等到求和结束才返回.
+	 * 
+	 * @return 是否异步求和
+	 */
+	boolean async() default false;
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * 标识分页缓存总行数. 求和语句及其参数值相同时, 在有效期内直接使用缓存的总行数, 翻页时不再重复求和. <br>
+ * 标识了@Modifying(table="...")的方法修改数据之后, 引用了该表的缓存立即失效.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD })
+public @interface CountCache {
+
+	/**
+	 * 
+	 * @return 有效期(单位:秒)
+	 */
+	long ttl() default 60;
+
+	/**
+	 * 
+	 * @return 最多缓存多少个总行数,超出时淘汰最久未使用的
+	 */
+	int maxEntries() default 1000;
+}
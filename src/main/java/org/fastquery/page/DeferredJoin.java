@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * 标识分页采用延迟关联: 先用 offset,limit 只查出当前页的主键, 再按主键关联回原表取整行. 适合翻得很深, 行又很宽的分页. <br>
+ * 只能用于@Query分页, 查询语句必须是单个select语句, 且不含distinct, group by, having, union和limit; from 中只能有一张表(不能有join或逗号); order by 中只能引用表中的列; 不要写 select *(会多出fq_key列), 请写 select t.* 或列出字段.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD })
+public @interface DeferredJoin {
+
+	/**
+	 * 
+	 * @return 主键列, 表有别名时请带上别名,如: "u.id"
+	 */
+	String value() default "id";
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.util.List;
+
+/**
+ * 键集分页的结果. 没有页码和总行数, 通过 {@link #getNextKeyset()} 翻到下一页.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class KeysetPage<E> extends PageImpl<E> {
+
+	private final KeysetPageable nextKeyset;
+
+	public KeysetPage(int size, List<E> content, boolean isFirst, KeysetPageable nextKeyset) {
+		super(size, content.size(), 1, content, -1L, -1, !content.isEmpty(), nextKeyset != null, !isFirst, isFirst, nextKeyset == null, null, null);
+		this.nextKeyset = nextKeyset;
+	}
+
+	@Override
+	public KeysetPageable getNextKeyset() {
+		return nextKeyset;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.page;
+
+import java.util.regex.Pattern;
+
+import org.fastquery.core.RepositoryException;
+
+/**
+ * 键集分页(seek分页): 不使用偏移量, 而是记住上一页最后一行的排序键的值, 下一页从它之后开始查. 翻到多深, 每页的代价都一样. <br>
+ * 查询语句中必须包含#{#keyset}, 它会被替换成 (k1,k2) &gt; (?,?) (第一页替换成 1 = 1), 并按排序键 order by ... limit ... . 键集分页不统计总行数.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class KeysetPageable implements Pageable {
+
+	private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_$.`]+");
+
+	private final int size;
+	private final boolean desc;
+	private final String[] keys;
+	private final Object[] after;
+
+	/**
+	 * 构造第一页, 按排序键升序
+	 * 
+	 * @param size 每页显示几条数据
+	 * @param keys 排序键(列名),组合起来必须唯一,如: "created","id"
+	 */
+	public KeysetPageable(int size, String... keys) {
+		this(size, false, keys, null);
+	}
+
+	/**
+	 * 构造键集分页
+	 * 
+	 * @param size 每页显示几条数据
+	 * @param desc 是否降序
+	 * @param keys 排序键(列名),组合起来必须唯一
+	 * @param after 上一页最后一行的排序键的值(与keys一一对应), 为null表示第一页
+	 */
+	public KeysetPageable(int size, boolean desc, String[] keys, Object[] after) {
+		if (keys == null || keys.length == 0) {
+			throw new RepositoryException("键集分页至少需要一个排序键");
+		}
+		for (String key : keys) {
+			if (key == null || !KEY.matcher(key).matches()) { // 排序键会拼接到SQL里,只允许是列名
+				throw new RepositoryException(String.format("排序键\"%s\"不是合法的列名", key));
+			}
+		}
+		if (after != null && after.length != keys.length) {
+			throw new RepositoryException("键集分页的游标值必须与排序键一一对应");
+		}
+		this.size = size < 1 ? 1 : size;
+		this.desc = desc;
+		this.keys = keys;
+		this.after = after;
+	}
+
+	/**
+	 * 构造下一页
+	 * 
+	 * @param values 当前页最后一行的排序键的值
+	 * @return 下一页
+	 */
+	public KeysetPageable next(Object... values) {
+		return new KeysetPageable(size, desc, keys, values);
+	}
+
+	/**
+	 * 
+	 * @return 是否降序
+	 */
+	public boolean isDesc() {
+		return desc;
+	}
+
+	/**
+	 * 
+	 * @return 排序键
+	 */
+	public String[] getKeys() {
+		return keys;
+	}
+
+	/**
+	 * 
+	 * @return 上一页最后一行的排序键的值, 第一页返回null
+	 */
+	public Object[] getAfter() {
+		return after;
+	}
+
+	/**
+	 * 键集分页没有页码, 总是返回1
+	 */
+	@Override
+	public int getPageIndex() {
+		return 1;
+	}
+
+	@Override
+	public int getPageSize() {
+		return size;
+	}
+
+	/**
+	 * 键集分页不使用偏移量, 总是返回0
+	 */
+	@Override
+	public int getOffset() {
+		return 0;
+	}
+}
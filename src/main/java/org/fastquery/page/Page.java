@@ -23,6 +23,7 @@
 package org.fastquery.page;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 
@@ -121,4 +122,22 @@ public interface Page<E> {
 	 * @return 上一页的 {@link Slice}
 	 */
 	public Slice getPreviousPageable();
+
+	/**
+	 * 异步获取总行数(见 {@link ConcurrentCount#async()}), 不是异步求和的分页, 返回一个已经完成的 {@link CompletableFuture}.
+	 * 
+	 * @return 总行数
+	 */
+	public default CompletableFuture<Long> totalElementsAsync() {
+		return CompletableFuture.completedFuture(getTotalElements());
+	}
+
+	/**
+	 * 键集分页(见 {@link KeysetPageable})的下一页, 它记住了当前页最后一行的排序键的值. 没有下一页或者不是键集分页, 返回null.
+	 * 
+	 * @return 下一页
+	 */
+	public default KeysetPageable getNextKeyset() {
+		return null;
+	}
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.struct;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * 一行查询结果. 同一个结果集中的所有行共享一份列信息(Schema), 每行只保存一个 Object[] 值数组. <br>
+ * 只读时不会产生额外的对象; 一旦被修改(put,remove等), 就先复制成一个 LinkedHashMap, 之后的操作都交给这个副本(copy-on-write).
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 结果集的列信息, 每个结果集只计算一次, 被所有行共享
+	 */
+	public static final class Schema implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] keys; // 去重之后的列别名,按列的顺序
+		private final int[] columns; // keys[i] 对应结果集的第几列(从1开始),列别名重复时取最后一列
+		private final Map<String, Integer> index = new HashMap<>(); // 列别名 -> 在keys中的位置
+
+		/**
+		 * 构建列信息
+		 * 
+		 * @param labels 结果集的列别名,按列的顺序
+		 */
+		public Schema(String[] labels) {
+			Map<String, Integer> last = new LinkedHashMap<>();
+			for (int i = 0; i < labels.length; i++) {
+				last.put(labels[i], i + 1);
+			}
+			int len = last.size();
+			this.keys = new String[len];
+			this.columns = new int[len];
+			int i = 0;
+			for (Map.Entry<String, Integer> entry : last.entrySet()) {
+				keys[i] = entry.getKey();
+				columns[i] = entry.getValue();
+				index.put(keys[i], i);
+				i++;
+			}
+		}
+
+		public int size() {
+			return keys.length;
+		}
+
+		/**
+		 * 第i个键
+		 * 
+		 * @param i 位置,从0开始
+		 * @return 列别名
+		 */
+		public String key(int i) {
+			return keys[i];
+		}
+
+		/**
+		 * 第i个键所对应的列
+		 * 
+		 * @param i 位置,从0开始
+		 * @return 结果集中的列索引,从1开始
+		 */
+		public int column(int i) {
+			return columns[i];
+		}
+
+		private int indexOf(Object key) {
+			Integer i = index.get(key);
+			return i != null ? i : -1;
+		}
+	}
+
+	private final Schema schema;
+	private Object[] values; // 第i个值对应 schema.key(i)
+	private Map<String, Object> copy; // 被修改之后的副本
+
+	/**
+	 * 构建一行
+	 * 
+	 * @param schema 列信息
+	 * @param values 值,长度必须等于schema.size(),第i个值对应schema.key(i)
+	 */
+	public RowMap(Schema schema, Object[] values) {
+		this.schema = schema;
+		this.values = values;
+	}
+
+	/**
+	 * 对每个值做转换, 得到一个与当前行共享列信息的新行(当前行若被修改过,则按修改后的键重建列信息)
+	 * 
+	 * @param operator 转换函数
+	 * @return 新行
+	 */
+	public RowMap replaceValues(UnaryOperator<Object> operator) {
+		Schema s = copy != null ? new Schema(copy.keySet().toArray(new String[copy.size()])) : schema; // 已被修改过,键可能已经变了
+		int len = s.size();
+		Object[] vals = new Object[len];
+		for (int i = 0; i < len; i++) {
+			vals[i] = operator.apply(get(s.keys[i]));
+		}
+		return new RowMap(s, vals);
+	}
+
+	@Override
+	public int size() {
+		return copy != null ? copy.size() : values.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return copy != null ? copy.containsKey(key) : schema.indexOf(key) != -1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (copy != null) {
+			return copy.get(key);
+		}
+		int i = schema.indexOf(key);
+		return i != -1 ? values[i] : null;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		return mutable().put(key, value);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		return mutable().remove(key);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> m) {
+		mutable().putAll(m);
+	}
+
+	@Override
+	public void clear() {
+		mutable().clear();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		if (copy != null) {
+			return copy.entrySet();
+		}
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return RowMap.this.size();
+			}
+		};
+	}
+
+	// 第一次修改时,复制出一个可变的副本
+	private Map<String, Object> mutable() {
+		if (copy == null) {
+			int len = values.length;
+			Map<String, Object> map = new LinkedHashMap<>(len * 4 / 3 + 1);
+			for (int i = 0; i < len; i++) {
+				map.put(schema.keys[i], values[i]);
+			}
+			copy = map;
+			values = null;
+		}
+		return copy;
+	}
+
+	private final class EntryIterator implements Iterator<Entry<String, Object>> {
+		private int next;
+		private int last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return next < schema.keys.length;
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			String key = schema.keys[last];
+			return new SimpleEntry<String, Object>(key, get(key)) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Object setValue(Object value) {
+					super.setValue(value);
+					return put(key, value);
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (last == -1) {
+				throw new IllegalStateException();
+			}
+			RowMap.this.remove(schema.keys[last]);
+			last = -1;
+		}
+	}
+}
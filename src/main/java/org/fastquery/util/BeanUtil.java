@@ -28,7 +28,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
@@ -38,6 +40,7 @@ import org.fastquery.core.Placeholder;
 import org.fastquery.core.RepositoryException;
 import org.fastquery.core.Table;
 import org.fastquery.core.Transient;
+import org.fastquery.struct.SQLValue;
 
 import com.alibaba.fastjson.JSONArray;
 
@@ -52,6 +55,104 @@ public final class BeanUtil {
 	private BeanUtil() {
 	}
 
+	// 实体class -> 实体的SQL形状, 每个实体只解析一次
+	private static final Map<Class<?>, Shape> SHAPES = new ConcurrentHashMap<>();
+
+	/**
+	 * 实体的SQL形状. 值一律用"?"占位, 同一个实体生成的SQL文本是稳定的, 便于驱动和数据库缓存预编译语句
+	 */
+	private static final class Shape {
+		private final Class<?> clazz;
+		private final Field[] fields; // 参与映射的字段(包装类型,且没有标识@Transient)
+		private final Field id; // 主键字段,没有用@Id标识则为null
+		private final boolean idMapped; // 主键是否参与映射
+		private final String selectFields; // `id`,`name`,`age`
+		private final String columns; // (`id`,`name`,`age`)
+		private final String row; // (?,?,?)
+		private final String columnsWithoutId; // (`name`,`age`)
+		private final String rowWithoutId; // (?,?)
+
+		private Shape(Class<?> clazz) {
+			// 注意: getDeclaredFields每次返回的都是新的Field实例, 因此只取一次
+			Field[] declaredFields = clazz.getDeclaredFields();
+			List<Field> list = new ArrayList<>();
+			Field key = null;
+			for (Field field : declaredFields) {
+				if (key == null && field.getAnnotation(Id.class) != null) {
+					key = field;
+					key.setAccessible(true);
+				}
+				if (!field.getType().isArray() && TypeUtil.isWarrp(field.getType()) && field.getDeclaredAnnotation(Transient.class) == null) {
+					list.add(field);
+				}
+			}
+			StringBuilder cs = new StringBuilder();
+			StringBuilder rs = new StringBuilder();
+			StringBuilder csWithoutId = new StringBuilder();
+			StringBuilder rsWithoutId = new StringBuilder();
+			for (Field field : list) {
+				field.setAccessible(true);
+				String column = '`' + field.getName() + '`';
+				cs.append(',').append(column);
+				rs.append(",?");
+				if (field != key) {
+					csWithoutId.append(',').append(column);
+					rsWithoutId.append(",?");
+				}
+			}
+			this.clazz = clazz;
+			this.fields = list.toArray(new Field[list.size()]);
+			this.id = key;
+			this.idMapped = list.contains(key);
+			this.selectFields = cs.length() > 0 ? cs.substring(1) : "";
+			this.columns = wrap(cs);
+			this.row = wrap(rs);
+			this.columnsWithoutId = wrap(csWithoutId);
+			this.rowWithoutId = wrap(rsWithoutId);
+		}
+
+		private static String wrap(StringBuilder sb) {
+			return '(' + (sb.length() > 0 ? sb.substring(1) : "") + ')';
+		}
+
+		// 插入时主键值为null,主键不参与运算
+		private boolean withId(Object bean) {
+			return idMapped && value(id, bean) != null;
+		}
+
+		// 按字段的顺序,把实体的值添加到values中
+		private void addValues(Object bean, boolean withId, List<Object> values) {
+			for (Field field : fields) {
+				if (withId || field != id) {
+					values.add(value(field, bean));
+				}
+			}
+		}
+	}
+
+	private static Shape shape(Class<?> clazz) {
+		return SHAPES.computeIfAbsent(clazz, Shape::new);
+	}
+
+	// 字段的值, 驱动不能直接绑定的类型先转换好. 如: Character 会被 setObject 当成可序列化对象写入, 转成String
+	private static Object value(Field field, Object bean) {
+		try {
+			Object val = field.get(bean);
+			return val instanceof Character ? String.valueOf(val) : val;
+		} catch (IllegalAccessException | IllegalArgumentException e) {
+			throw new RepositoryException(e);
+		}
+	}
+
+	// 表名称,如果dbName为null,表名称之前不会有前缀
+	private static String table(String dbName, String tableName) {
+		if (dbName != null) {
+			return new StringBuilder().append('`').append(dbName).append("`.`").append(tableName).append('`').toString();
+		} else {
+			return '`' + tableName + '`';
+		}
+	}
+
 	private static String escapeSql(String str) {
 		String s = StringUtils.replace(str, "'", "''");
 		return StringUtils.replace(s, "\\", "\\\\");
@@ -645,6 +746,264 @@ public final class BeanUtil {
 		return sq.toString();
 	}
 
+	/**
+	 * 将1个bean 转换成 insert 语句, 值用"?"占位. 注意: 主键值为null,将不参与运算.
+	 * 
+	 * @param bean 实体
+	 * @param dbName 如果为null,表名称之前不会有前缀
+	 * @return insert 语句及其参数值
+	 */
+	public static SQLValue toInsertSQLValue(Object bean, String dbName) {
+		Class<?> clazz = bean.getClass();
+		Shape shape = shape(clazz);
+		boolean withId = shape.withId(bean);
+		List<Object> values = new ArrayList<>(shape.fields.length);
+		shape.addValues(bean, withId, values);
+		StringBuilder sql = new StringBuilder("insert into ");
+		sql.append(table(dbName, getEntitySimpleName(clazz)));
+		sql.append(withId ? shape.columns : shape.columnsWithoutId);
+		sql.append(" values");
+		sql.append(withId ? shape.row : shape.rowWithoutId);
+		return SQLValue.of(sql.toString(), values);
+	}
+
+	/**
+	 * 将实体集转换成一条 insert 语句, 值用"?"占位. 插入哪些字段以集合中的第一个实体为准.
+	 * 
+	 * @param <B> 实体
+	 * @param beans 如果集合为空,则返回null
+	 * @param dbName 如果为null,表名称之前不会有前缀
+	 * @param ignoreRepeat 忽略重复
+	 * @return insert 语句及其参数值
+	 */
+	public static <B> SQLValue toInsertSQLValue(Iterable<B> beans, String dbName, boolean ignoreRepeat) {
+		if (beans == null)
+			return null;
+
+		Iterator<B> iterator = beans.iterator();
+		if (!iterator.hasNext()) {
+			return null;
+		}
+		InsertTemplate template = toInsertTemplate(iterator.next(), dbName, ignoreRepeat);
+		List<Object> values = new ArrayList<>();
+		int rows = 0;
+		for (B b : beans) {
+			template.addValues(b, values);
+			rows++;
+		}
+		return SQLValue.of(template.toSQL(rows), values);
+	}
+
+	/**
+	 * 以实体集中的第一个实体为准, 构建多行 insert 语句的模板
+	 * 
+	 * @param bean 实体集中的第一个实体
+	 * @param dbName 如果为null,表名称之前不会有前缀
+	 * @param ignoreRepeat 忽略重复
+	 * @return insert 模板
+	 */
+	public static InsertTemplate toInsertTemplate(Object bean, String dbName, boolean ignoreRepeat) {
+		Class<?> clazz = bean.getClass();
+		Shape shape = shape(clazz);
+		boolean withId = shape.withId(bean);
+		StringBuilder head = new StringBuilder(ignoreRepeat ? "insert ignore into " : "insert into ");
+		head.append(table(dbName, getEntitySimpleName(clazz)));
+		head.append(withId ? shape.columns : shape.columnsWithoutId);
+		head.append(" values");
+		return new InsertTemplate(shape, withId, head.toString());
+	}
+
+	/**
+	 * 多行 insert 语句的模板: insert into `表`(`字段`,...) values(?,..),(?,..)... <br>
+	 * 行数相同, 生成的SQL文本就相同
+	 */
+	public static final class InsertTemplate {
+		private final Shape shape;
+		private final boolean withId;
+		private final String head;
+		private final String row;
+
+		private InsertTemplate(Shape shape, boolean withId, String head) {
+			this.shape = shape;
+			this.withId = withId;
+			this.head = head;
+			this.row = withId ? shape.row : shape.rowWithoutId;
+		}
+
+		/**
+		 * 把实体的值按字段顺序添加到values中
+		 * 
+		 * @param bean 实体
+		 * @param values 参数值集
+		 */
+		public void addValues(Object bean, List<Object> values) {
+			if (bean == null || !shape.clazz.equals(bean.getClass())) {
+				throw new RepositoryException("批量插入的实体集中不能包含null,且每个实体的类型必须相同: " + bean);
+			}
+			shape.addValues(bean, withId, values);
+		}
+
+		/**
+		 * 生成rows行的insert语句
+		 * 
+		 * @param rows 行数
+		 * @return insert语句
+		 */
+		public String toSQL(int rows) {
+			StringBuilder sql = new StringBuilder(head.length() + rows * (row.length() + 1));
+			sql.append(head);
+			for (int i = 0; i < rows; i++) {
+				sql.append(row);
+				sql.append(',');
+			}
+			sql.deleteCharAt(sql.length() - 1);
+			return sql.toString();
+		}
+
+		/**
+		 * 
+		 * @return 每一行SQL文本的长度,如:"(?,?,?)," 为8
+		 */
+		public int rowLength() {
+			return row.length() + 1;
+		}
+
+		/**
+		 * 
+		 * @return 每一行的参数个数,如:"(?,?,?)" 为3
+		 */
+		public int rowParameters() {
+			return StringUtils.countMatches(row, '?');
+		}
+	}
+
+	public static SQLValue arr2InsertSQLValue(Object[] beans, String dbName, boolean ignoreRepeat) {
+		return toInsertSQLValue(Arrays.asList(beans), dbName, ignoreRepeat);
+	}
+
+	/**
+	 * 转换查询语句, 主键值用"?"占位, 实体上必须包含主键字段 <br>
+	 * 
+	 * 注意: 如果主键值为null,则返回null
+	 * 
+	 * @param bean 实体 或 class
+	 * @param key 主键值, 如果传递null,那么自动获取. 指定的值优先
+	 * @param dbName 数据库名称
+	 * @param selectEntity true 查实体, 反之,查主键值
+	 * @return 查询语句及其参数值
+	 */
+	public static SQLValue toSelectSQLValue(Object bean, Object key, String dbName, boolean selectEntity) {
+		Class<?> cls = (bean instanceof Class) ? (Class<?>) bean : bean.getClass();
+		Shape shape = shape(cls);
+		if (shape.id == null) {
+			throw new RepositoryException(cls + " 需要用@Id在实体上标识主键");
+		}
+		if (key == null) {
+			key = value(shape.id, bean);
+			if (key == null) {
+				return null;
+			}
+		}
+		String keyFeild = shape.id.getName();
+		String tableName = table(dbName, cls.getSimpleName());
+		String fields = selectEntity ? shape.selectFields : '`' + keyFeild + '`';
+		List<Object> values = new ArrayList<>(1);
+		values.add(key);
+		return SQLValue.of(String.format("select %s from %s where `%s` = ?", fields, tableName, keyFeild), values);
+	}
+
+	/**
+	 * 将一个集合转换称批量update语句, 值用"?"占位
+	 * 
+	 * @param <B> 实体
+	 * @param beans 实体集合
+	 * @param dbName 数据库名称
+	 * @return update 语句及其参数值, 集合为空返回null
+	 */
+	public static <B> SQLValue toUpdateSQLValue(Iterable<B> beans, String dbName) {
+		if (beans == null)
+			return null;
+		Iterator<B> iterator = beans.iterator();
+		if (!iterator.hasNext()) {
+			return null;
+		}
+
+		Class<?> clazz = iterator.next().getClass();
+		Shape shape = shape(clazz);
+		Field key = shape.id;
+		if (key == null) {
+			throw new RepositoryException(clazz + " 必须有@Id标识,并且主键不能为null");
+		}
+		String primaryKey = key.getName();
+
+		List<Object> values = new ArrayList<>();
+		List<Object> ids = new ArrayList<>();
+		StringBuilder sets = new StringBuilder();
+		for (Field field : shape.fields) {
+			if (field == key) {
+				continue;
+			}
+			String fieldName = field.getName();
+			sets.append('`').append(fieldName).append("` = case `").append(primaryKey).append("` ");
+			for (B b : beans) {
+				Object keyVal = value(key, b);
+				if (keyVal == null) {
+					throw new RepositoryException("主键的值不能为null");
+				}
+				Object fieldVal = value(field, b);
+				sets.append("when ? then ");
+				values.add(keyVal);
+				if (fieldVal != null) {
+					sets.append("? ");
+					values.add(fieldVal);
+				} else {
+					sets.append('`').append(fieldName).append("` ");
+				}
+			}
+			sets.append("else `").append(fieldName).append("` end,");
+		}
+		sets.deleteCharAt(sets.length() - 1);
+
+		StringBuilder in = new StringBuilder();
+		for (B b : beans) {
+			Object keyVal = value(key, b);
+			if (keyVal == null) {
+				throw new RepositoryException("主键的值不能为null");
+			}
+			ids.add(keyVal);
+			in.append("?,");
+		}
+		in.deleteCharAt(in.length() - 1);
+		values.addAll(ids);
+
+		StringBuilder sql = new StringBuilder();
+		sql.append("update ");
+		sql.append(table(dbName, getEntitySimpleName(clazz)));
+		sql.append(" set ");
+		sql.append(sets);
+		sql.append(" where `");
+		sql.append(primaryKey);
+		sql.append("` in(");
+		sql.append(in);
+		sql.append(')');
+		return SQLValue.of(sql.toString(), values);
+	}
+
+	/**
+	 * 根据主键删除, 主键值用"?"占位
+	 * 
+	 * @param tableName 表名称
+	 * @param keyName 主键名称
+	 * @param keyVal 主键值
+	 * @param dbName 数据库名称,可以为null
+	 * @return delete 语句及其参数值
+	 */
+	public static SQLValue toDeleteSQLValue(String tableName, String keyName, long keyVal, String dbName) {
+		List<Object> values = new ArrayList<>(1);
+		values.add(keyVal);
+		return SQLValue.of(String.format("delete from %s where `%s`=?", table(dbName, tableName), keyName), values);
+	}
+
 	// 返回sql中in查询需要的值
 	static Object parseList(Object obj) {
 		if (obj == null) {
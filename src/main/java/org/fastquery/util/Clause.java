@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.fastquery.core.Param;
+import org.fastquery.core.RepositoryException;
+import org.fastquery.where.Condition;
+import org.fastquery.where.Set;
+
+/**
+ * 预编译的 @Condition 或 @Set 集合, 在构建执行计划时创建一次. <br>
+ * 每次调用只需裁决哪些条件参与运算(allow,ignore的正则已预编译), 以及哪些参数是null; 由此得到的位掩码决定了最终生成的SQL,
+ * 因此拼接好的SQL按位掩码缓存起来, 相同形状的调用直接复用. 模板中含有$表达式时, SQL还跟参数值有关, 不缓存.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class Clause {
+
+	private static final int MAX_SHAPES = 256; // 每个方法最多缓存多少种形状的SQL, 超出时淘汰最久未用的
+
+	private final boolean where; // true: @Condition; false: @Set
+	private final SQLTemplate[] templates;
+	private final Rule[] rules;
+	private final boolean cacheable;
+	private final Map<Shape, String> shapes = new LinkedHashMap<Shape, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Shape, String> eldest) {
+			return size() > MAX_SHAPES;
+		}
+	};
+
+	private Clause(boolean where, SQLTemplate[] templates, Rule[] rules, int paramCount) {
+		this.where = where;
+		this.templates = templates;
+		this.rules = rules;
+		boolean b = templates.length <= Long.SIZE && paramCount <= Long.SIZE;
+		for (SQLTemplate template : templates) {
+			b = b && !template.hasDollar();
+		}
+		this.cacheable = b;
+	}
+
+	/**
+	 * 编译 @Condition 集合
+	 * 
+	 * @param conditions 条件
+	 * @param params 第i个参数上的@Param,没有标识则为null
+	 * @param dollar 是否处理$表达式
+	 * @return 预编译的条件集合
+	 */
+	public static Clause where(Condition[] conditions, Param[] params, boolean dollar) {
+		int len = conditions.length;
+		SQLTemplate[] templates = new SQLTemplate[len];
+		Rule[] rules = new Rule[len];
+		for (int i = 0; i < len; i++) {
+			Condition condition = conditions[i];
+			templates[i] = SQLTemplate.compile(condition.value(), params, dollar);
+			rules[i] = new Rule(compile(condition.allow()), compile(condition.ignore()), condition.ignoreNull(), condition.ignoreEmpty());
+		}
+		return new Clause(true, templates, rules, params.length);
+	}
+
+	/**
+	 * 编译 @Set 集合
+	 * 
+	 * @param sets 修改选项
+	 * @param params 第i个参数上的@Param,没有标识则为null
+	 * @param dollar 是否处理$表达式
+	 * @return 预编译的修改选项集合
+	 */
+	public static Clause sets(Set[] sets, Param[] params, boolean dollar) {
+		int len = sets.length;
+		SQLTemplate[] templates = new SQLTemplate[len];
+		Rule[] rules = new Rule[len];
+		Pattern[] none = new Pattern[0];
+		for (int i = 0; i < len; i++) {
+			templates[i] = SQLTemplate.compile(sets[i].value(), params, dollar);
+			rules[i] = new Rule(none, none, sets[i].ignoreNull(), sets[i].ignoreEmpty());
+		}
+		return new Clause(false, templates, rules, params.length);
+	}
+
+	private static Pattern[] compile(String[] regexs) {
+		Pattern[] patterns = new Pattern[regexs.length];
+		for (int i = 0; i < regexs.length; i++) {
+			patterns[i] = Pattern.compile(regexs[i]);
+		}
+		return patterns;
+	}
+
+	/**
+	 * 生成SQL片段
+	 * 
+	 * @param args 参数集
+	 * @return @Condition: where部分sql,没有条件参与运算时返回""; @Set: "set ..."部分sql,没有@Set时返回null
+	 */
+	public String render(Object[] args) {
+		int len = templates.length;
+		if (len == 0) {
+			return where ? "" : null;
+		}
+
+		boolean[] actives = new boolean[len];
+		long active = 0;
+		long nulls = 0;
+		o: for (int i = 0; i < len; i++) {
+			// 注意: @Condition(....?1...?2) ?1 都能决定 ?2 该条件忽略. "?1保留条件" && "?2 不保留条件" = 不保留
+			for (int index : templates[i].getParameters()) { // 计数是1开始的
+				Object arg = args[index - 1];
+				if (rules[i].ignore(arg)) {
+					continue o;
+				} else if (arg == null) {
+					nulls |= 1L << (index - 1);
+				}
+			}
+			actives[i] = true;
+			active |= 1L << i;
+		}
+
+		if (!cacheable) {
+			return where ? where(args, actives) : sets(args, actives);
+		}
+		Shape shape = new Shape(active, nulls);
+		String sql;
+		synchronized (shapes) { // 按访问排序, get 也会调整顺序
+			sql = shapes.get(shape);
+		}
+		if (sql == null) {
+			sql = where ? where(args, actives) : sets(args, actives);
+			synchronized (shapes) {
+				shapes.put(shape, sql);
+			}
+		}
+		return sql;
+	}
+
+	private String where(Object[] args, boolean[] actives) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < templates.length; i++) {
+			if (!actives[i]) {
+				continue;
+			}
+			String value = templates[i].render(args);
+			for (int index : templates[i].getParameters()) {
+				if (args[index - 1] == null) {
+					// 如果传递null 还要求参与运算.
+					// sql中null无法跟比较运算符(如 =, <, 或者 <>),一起运算,必须使用 is null 和 is not null 操作符.
+					value = value.replaceAll("\\s+", " "); // 把多个空白换成一个空格
+					value = value.replaceAll("=\\?", "= ?"); // 将"=?" 替换成 "= ?"
+					value = value.replaceAll(" = \\?" + index, " is null");
+					value = value.replaceAll(" <> \\?" + index, " is not null");
+					value = value.replaceAll(" != \\?" + index, " is not null");
+				}
+			}
+
+			int sblen = sb.length();
+			// sb的长度是0 或者 最后一个字符就是空格
+			if (sblen == 0 || sb.charAt(sblen - 1) != ' ') {
+				sb.append(' ');
+			}
+			if (sb.length() == 1 && i != 0) { // 条件成立,表示这个SQL条件的前面还不存在条件,那么第一个条件的链接符,必须去掉.
+												// (where后面不能直接跟运算符号)
+				sb.append(TypeUtil.removePart(value));
+			} else {
+				sb.append(value);
+			}
+		}
+		if (sb.length() != 0) {
+			sb.insert(0, "where");
+		}
+		return sb.toString();
+	}
+
+	private String sets(Object[] args, boolean[] actives) {
+		StringBuilder sb = new StringBuilder("set ");
+		for (int i = 0; i < templates.length; i++) {
+			if (actives[i]) {
+				sb.append(templates[i].render(args));
+				sb.append(',');
+			}
+		}
+		if (sb.length() == 4) {
+			throw new RepositoryException("@Set 修改选项全部被忽略了,这是不允许的");
+		}
+		// 去掉最后一个逗号
+		sb.setCharAt(sb.length() - 1, ' ');
+		return sb.toString();
+	}
+
+	// 裁决是否忽略条件的规则
+	private static final class Rule {
+		private final Pattern[] allows;
+		private final Pattern[] ignores;
+		private final boolean ignoreNull;
+		private final boolean ignoreEmpty;
+
+		Rule(Pattern[] allows, Pattern[] ignores, boolean ignoreNull, boolean ignoreEmpty) {
+			this.allows = allows;
+			this.ignores = ignores;
+			this.ignoreNull = ignoreNull;
+			this.ignoreEmpty = ignoreEmpty;
+		}
+
+		// 返回true表示要把这个条件忽略掉
+		boolean ignore(Object arg) {
+			if (allows.length != 0) { // 表明,允许的范围并不是全部,而是有所限定
+				if (arg == null) { // 范围有明确指定,还传递null,那么必然忽略
+					return true;
+				}
+				String str = arg.toString();
+				boolean allowed = false;
+				for (Pattern allow : allows) {
+					if (allow.matcher(str).matches()) {
+						allowed = true;
+						break;
+					}
+				}
+				if (!allowed) { // 传递的值不在允许范围之内,那么必然忽略条件
+					return true;
+				}
+			}
+
+			if (arg == null) { // ignoreNull是false,表明arg即使是null也不忽略
+				return ignoreNull;
+			}
+
+			String str = arg.toString();
+			if (ignoreEmpty && str.isEmpty()) {
+				return true;
+			}
+
+			for (Pattern ignore : ignores) {
+				if (ignore.matcher(str).matches()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	// SQL的形状: 哪些条件参与运算, 哪些参数是null
+	private static final class Shape {
+		private final long active;
+		private final long nulls;
+
+		Shape(long active, long nulls) {
+			this.active = active;
+			this.nulls = nulls;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(active) * 31 + Long.hashCode(nulls);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Shape)) {
+				return false;
+			}
+			Shape other = (Shape) obj;
+			return active == other.active && nulls == other.nulls;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+/**
+ * 由分页的主体查询语句推算出求和语句. 只识别最外层的关键字(见 {@link TopLevelScanner}), 不使用正则表达式.
+ * <ul>
+ * <li>最外层的 order by, limit 不影响行数, 直接去掉;</li>
+ * <li>含有 distinct, group by, having 或 union 的查询, 行数不等于from后面的记录数, 包装成 select count(*) from (...) 的形式;</li>
+ * <li>其他查询, 把select与from之间的内容换成 count(countField).</li>
+ * </ul>
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class CountStatement {
+
+	private static final String ALIAS = " fq_count";
+
+	private CountStatement() {
+	}
+
+	/**
+	 * 推算求和语句
+	 * 
+	 * @param sql 主体查询语句
+	 * @param countField 求和字段
+	 * @return 求和语句
+	 */
+	public static String derive(String sql, String countField) {
+		TopLevelScanner cs = new TopLevelScanner(sql);
+		int end = cs.end();
+		String body = end == -1 ? sql : sql.substring(0, end);
+		StringBuilder sb = new StringBuilder(body.length() + 40);
+		if (cs.wrap || cs.from == -1) { // 最外层找不到select...from(如:(select ...) union (select ...)), 也只能包装起来
+			sb.append("select count(*) from (");
+			sb.append(body.trim());
+			sb.append(')');
+			sb.append(ALIAS);
+		} else {
+			sb.append("select count(");
+			sb.append(countField);
+			sb.append(") ");
+			sb.append(body, cs.from, body.length());
+		}
+		return sb.toString().trim();
+	}
+
+	/**
+	 * 去掉最外层的 order by 和 limit(子查询中的不受影响)
+	 * 
+	 * @param sql SQL语句
+	 * @return 处理之后的SQL
+	 */
+	public static String strip(String sql) {
+		int end = new TopLevelScanner(sql).end();
+		return end == -1 ? sql : sql.substring(0, end).trim();
+	}
+}
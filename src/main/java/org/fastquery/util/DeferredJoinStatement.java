@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import org.fastquery.core.Placeholder;
+import org.fastquery.core.RepositoryException;
+
+/**
+ * 延迟关联分页(见 {@link org.fastquery.page.DeferredJoin}): 先用 offset,limit 只查出主键(可以走覆盖索引), 再按这些主键关联回原表取整行, 避免为了跳过的行去读整行. <br>
+ * select cols from t where w order by o #{#limit} 改写成 <br>
+ * select cols from t inner join (select k as fq_key from t where w order by o #{#limit}) fq_keys on k = fq_keys.fq_key order by o <br>
+ * from 中只能有一张表: 多表关联时主键可能重复, 当前页的行和行数都会出错.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class DeferredJoinStatement {
+
+	private DeferredJoinStatement() {
+	}
+
+	/**
+	 * 改写分页的主体查询语句
+	 * 
+	 * @param sql 主体查询语句, 必须以#{#limit}结尾
+	 * @param key 主键列, 如: "id", "u.id"(表有别名时)
+	 * @return 改写之后的语句, #{#limit}移到了子查询里
+	 */
+	public static String rewrite(String sql, String key) {
+		String body = sql.trim();
+		if (!body.endsWith(Placeholder.LIMIT)) {
+			throw new RepositoryException(String.format("%s 中的%s必须位于末尾,才能延迟关联", sql, Placeholder.LIMIT));
+		}
+		body = body.substring(0, body.length() - Placeholder.LIMIT.length()).trim();
+		TopLevelScanner scanner = new TopLevelScanner(body);
+		if (scanner.from == -1 || scanner.wrap || scanner.limit != -1) {
+			throw new RepositoryException(String.format("%s 不能延迟关联,它必须是单个select语句,且不含distinct,group by,having,union和limit", sql));
+		}
+		if (scanner.joined) { // 一对多的关联会让子查询返回重复的主键, 外层再关联一次, 行就重复了
+			throw new RepositoryException(String.format("%s 不能延迟关联,from中只能有一张表,不能有join或逗号", sql));
+		}
+		int order = scanner.order != -1 ? scanner.order : body.length();
+		int tablesEnd = scanner.where != -1 ? scanner.where : order;
+		String tables = body.substring(scanner.from + "from".length(), tablesEnd).trim();
+		String where = body.substring(tablesEnd, order).trim();
+		String orderBy = body.substring(order).trim();
+
+		StringBuilder sb = new StringBuilder(body.length() * 2 + 80);
+		sb.append(body, 0, scanner.from);
+		sb.append("from ");
+		sb.append(tables);
+		sb.append(" inner join (select ");
+		sb.append(key);
+		sb.append(" as fq_key from ");
+		sb.append(tables);
+		if (!where.isEmpty()) {
+			sb.append(' ');
+			sb.append(where);
+		}
+		if (!orderBy.isEmpty()) {
+			sb.append(' ');
+			sb.append(orderBy);
+		}
+		sb.append(Placeholder.LIMIT);
+		sb.append(") fq_keys on ");
+		sb.append(key);
+		sb.append(" = fq_keys.fq_key");
+		if (!orderBy.isEmpty()) {
+			sb.append(' ');
+			sb.append(orderBy);
+		}
+		return sb.toString();
+	}
+}
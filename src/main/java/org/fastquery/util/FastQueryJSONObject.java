@@ -84,6 +84,67 @@ public class FastQueryJSONObject {
 		return getJsonObject().getIntValue("slowQueryTime");
 	}
 
+	/**
+	 * 流式查询(返回Stream,Iterator,Iterable)时,游标每次从数据库抓取的行数. 没有配置默认为Integer.MIN_VALUE,即MySQL逐行流式读取.
+	 * 
+	 * @return fetchSize
+	 */
+	public static int getFetchSize() {
+		Integer fetchSize = getJsonObject().getInteger("fetchSize");
+		return fetchSize != null ? fetchSize : Integer.MIN_VALUE;
+	}
+
+	/**
+	 * 分块批量插入时,每块最多多少行. 没有配置默认为1000
+	 * 
+	 * @return insertChunkRows
+	 */
+	public static int getInsertChunkRows() {
+		Integer rows = getJsonObject().getInteger("insertChunkRows");
+		return rows != null ? rows : 1000;
+	}
+
+	/**
+	 * 分块批量插入时,每块(SQL文本+参数值)最多多少字节. 没有配置默认为1048576(1M),应小于数据库的max_allowed_packet
+	 * 
+	 * @return insertChunkBytes
+	 */
+	public static int getInsertChunkBytes() {
+		Integer bytes = getJsonObject().getInteger("insertChunkBytes");
+		return bytes != null ? bytes : 1048576;
+	}
+
+	/**
+	 * 集合参数展开成"?,?,..."时,是否把"?"的个数补齐到桶的大小. 没有配置默认为false
+	 * 
+	 * @return inListPadding
+	 */
+	public static boolean getInListPadding() {
+		return getJsonObject().getBooleanValue("inListPadding");
+	}
+
+	/**
+	 * 集合参数补齐时所用的桶(从小到大). 没有配置默认为空数组,表示桶的大小是2的幂
+	 * 
+	 * @return inListBuckets
+	 */
+	public static int[] getInListBuckets() {
+		JSONArray jsonArray = getJsonObject().getJSONArray("inListBuckets");
+		if (jsonArray == null) {
+			return new int[0];
+		}
+		return jsonArray.stream().mapToInt(o -> Integer.parseInt(o.toString())).toArray();
+	}
+
+	/**
+	 * 分页时,求和语句是否在另一个连接上与当前页的查询同时执行. 没有配置默认为false
+	 * 
+	 * @return concurrentCount
+	 */
+	public static boolean getConcurrentCount() {
+		return getJsonObject().getBooleanValue("concurrentCount");
+	}
+
 	static void check() {
 		// 1). queries属性要么不配置,要么配置正确
 		List<String> strs = getQueries();
@@ -104,6 +165,43 @@ public class FastQueryJSONObject {
 		if(slowQueryTime!=null && !Pattern.matches("\\d+", slowQueryTime)) {
 			throw new RepositoryException("fastquery.json -> slowQueryTime 它的值只能是数字");
 		}
+
+		// 3). fetchSize
+		String fetchSize = getJsonObject().getString("fetchSize");
+		if (fetchSize != null && !Pattern.matches("-?\\d+", fetchSize)) {
+			throw new RepositoryException("fastquery.json -> fetchSize 它的值只能是整数");
+		}
+
+		// 4). insertChunkRows, insertChunkBytes
+		for (String key : new String[] { "insertChunkRows", "insertChunkBytes" }) {
+			String val = getJsonObject().getString(key);
+			if (val != null && !Pattern.matches("[1-9]\\d*", val)) {
+				throw new RepositoryException("fastquery.json -> " + key + " 它的值只能是正整数");
+			}
+		}
+
+		// 5). inListPadding, inListBuckets
+		checkBoolean("inListPadding");
+		JSONArray buckets = getJsonObject().getJSONArray("inListBuckets");
+		if (buckets != null) {
+			int prev = 0;
+			for (Object bucket : buckets) {
+				if (!Pattern.matches("[1-9]\\d*", String.valueOf(bucket)) || Integer.parseInt(bucket.toString()) <= prev) {
+					throw new RepositoryException("fastquery.json -> inListBuckets 它的值只能是从小到大排列的正整数");
+				}
+				prev = Integer.parseInt(bucket.toString());
+			}
+		}
+
+		// 6). concurrentCount
+		checkBoolean("concurrentCount");
+	}
+
+	private static void checkBoolean(String key) {
+		String val = getJsonObject().getString(key);
+		if (val != null && !"true".equals(val) && !"false".equals(val)) {
+			throw new RepositoryException("fastquery.json -> " + key + " 它的值只能是true或false");
+		}
 	}
 
 	public static void removeCurrent() { // NO_UCD (unused code)
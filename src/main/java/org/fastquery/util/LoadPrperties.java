@@ -22,6 +22,7 @@
 
 package org.fastquery.util;
 
+import java.sql.SQLException;
 import java.util.Map;
 import java.util.Set;
 
@@ -93,6 +94,15 @@ public class LoadPrperties {
 						if (url != null) {
 							cpd.setUrl(url);
 						}
+						if (fQueryPropertie.getStatementCacheSize() > 0) {
+							// 没有连接池,每次调用都是新的物理连接,StatementCache不可能跨调用命中,交给驱动在连接内缓存
+							try {
+								cpd.setCachePrepStmts(true);
+								cpd.setPrepStmtCacheSize(fQueryPropertie.getStatementCacheSize());
+							} catch (SQLException e) {
+								throw new RepositoryException(e);
+							}
+						}
 						FQueryProperties.putDataSource(namedConfig, cpd);
 					}
 					break;
@@ -108,6 +118,10 @@ public class LoadPrperties {
 				break;
 			}
 
+			if (fQueryPropertie.getStatementCacheSize() > 0 && !"jdbc".equals(config)) { // "jdbc"数据源的语句缓存由驱动负责
+				FQueryProperties.putStatementCacheSize(namedConfig, fQueryPropertie.getStatementCacheSize());
+			}
+
 			basePackages = fQueryPropertie.getBasePackages();
 			for (String basePackage : basePackages) {
 				FQueryProperties.putDataSourceIndex(basePackage, namedConfig);
@@ -273,6 +273,9 @@ class PropertiesUtil {
 			if ("".equals(dataSourceName)) {
 				throw new RepositoryException("fastquery.json 中的dataSourceName配置错误,提示,不能是空字符且不能为null");
 			}
+			if (fQueryPropertie.getStatementCacheSize() < 0) {
+				throw new RepositoryException("fastquery.json 中的statementCacheSize配置错误,提示,不能是负数");
+			}
 			/*
 			 * if(basePackages==null || basePackages.isEmpty()) { throw new
 			 * RepositoryException("fastquery.json 中的basePackage配置错误,提示basePackages不能配置成空"); }
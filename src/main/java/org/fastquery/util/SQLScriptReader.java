@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * SQL脚本的流式分词器, 每次只读出一条语句, 内存占用与脚本的大小无关. <br>
+ * 能识别: 单引号,双引号,反引号中的内容; "-- ", "#", "/* *&#47;" 注释("/*! *&#47;" 是MySQL的可执行注释,原样保留); DELIMITER 命令.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class SQLScriptReader implements Closeable {
+
+	private static final String DELIMITER = "DELIMITER";
+
+	private final PushbackReader reader;
+	private String delimiter = ";";
+	private int line = 1; // 当前读到了第几行
+	private int statementLine; // 最近读出的那条语句结束于第几行
+
+	/**
+	 * 用平台默认的编码读取脚本文件
+	 * 
+	 * @param path 脚本文件
+	 * @throws IOException IO异常
+	 */
+	public SQLScriptReader(Path path) throws IOException {
+		this(Files.newBufferedReader(path, Charset.defaultCharset()));
+	}
+
+	public SQLScriptReader(Reader reader) {
+		this.reader = new PushbackReader(reader, DELIMITER.length() + 1);
+	}
+
+	/**
+	 * 读取下一条语句
+	 * 
+	 * @return 去掉了注释,分隔符及首尾空白的语句, 读完了返回null
+	 * @throws IOException IO异常
+	 */
+	public String next() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while ((c = read()) != -1) {
+			if (sb.length() == 0) {
+				if (Character.isWhitespace(c)) { // 忽略语句开头的空白
+					continue;
+				}
+				if ((c == 'D' || c == 'd') && delimiter(c)) {
+					continue;
+				}
+			}
+
+			if (c == '\'' || c == '"' || c == '`') {
+				quote(c, sb);
+			} else if (c == '#') {
+				skipLine();
+				blank(sb, '\n');
+			} else if (c == '-' && peek() == '-') {
+				read();
+				int c2 = peek();
+				if (c2 == -1 || Character.isWhitespace(c2)) {
+					skipLine();
+					blank(sb, '\n');
+				} else {
+					sb.append("--");
+				}
+			} else if (c == '/' && peek() == '*') {
+				read();
+				if (peek() == '!') { // MySQL的可执行注释,原样保留
+					sb.append("/*");
+					comment(sb);
+				} else {
+					comment(null);
+					blank(sb, ' ');
+				}
+			} else {
+				sb.append((char) c);
+				if (endsWith(sb, delimiter)) {
+					sb.setLength(sb.length() - delimiter.length());
+					String statement = sb.toString().trim();
+					if (!statement.isEmpty()) {
+						statementLine = line;
+						return statement;
+					}
+					sb.setLength(0);
+				}
+			}
+		}
+
+		// 最后一条语句可能没有分隔符
+		String statement = sb.toString().trim();
+		if (statement.isEmpty()) {
+			return null;
+		}
+		statementLine = line;
+		return statement;
+	}
+
+	/**
+	 * 
+	 * @return 最近读出的那条语句结束于第几行(从1开始)
+	 */
+	public int getLine() {
+		return statementLine;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	// 语句开头若是"DELIMITER xx",就切换分隔符,返回true;否则把读过的字符退回去,返回false
+	private boolean delimiter(int first) throws IOException {
+		StringBuilder word = new StringBuilder().append((char) first);
+		int c;
+		while (word.length() < DELIMITER.length() && (c = read()) != -1) {
+			word.append((char) c);
+			if (!DELIMITER.regionMatches(true, 0, word.toString(), 0, word.length())) {
+				break;
+			}
+		}
+		int next = read();
+		if (word.length() == DELIMITER.length() && DELIMITER.equalsIgnoreCase(word.toString()) && next != -1 && Character.isWhitespace(next)
+				&& next != '\n') {
+			StringBuilder value = new StringBuilder();
+			while ((c = read()) != -1 && c != '\n') {
+				value.append((char) c);
+			}
+			String d = value.toString().trim();
+			if (!d.isEmpty()) {
+				delimiter = d;
+			}
+			return true;
+		}
+		// 不是DELIMITER命令,退回所读的字符(最后一个字符由调用者处理)
+		unread(next);
+		for (int i = word.length() - 1; i > 0; i--) {
+			unread(word.charAt(i));
+		}
+		return false;
+	}
+
+	private void quote(int q, StringBuilder sb) throws IOException {
+		sb.append((char) q);
+		int c;
+		while ((c = read()) != -1) {
+			sb.append((char) c);
+			if (c == '\\' && q != '`') { // 转义字符,下一个字符原样保留
+				c = read();
+				if (c == -1) {
+					return;
+				}
+				sb.append((char) c);
+			} else if (c == q) { // 连续两个引号表示转义,由下一轮quote处理,结果一样
+				return;
+			}
+		}
+	}
+
+	private void comment(StringBuilder sb) throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (sb != null) {
+				sb.append((char) c);
+			}
+			if (c == '*' && peek() == '/') {
+				read();
+				if (sb != null) {
+					sb.append('/');
+				}
+				return;
+			}
+		}
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != '\n') {
+			// 跳过注释
+		}
+	}
+
+	// 注释替换成空白,语句开头的注释直接丢弃
+	private static void blank(StringBuilder sb, char c) {
+		if (sb.length() != 0) {
+			sb.append(c);
+		}
+	}
+
+	private static boolean endsWith(StringBuilder sb, String suffix) {
+		int len = suffix.length();
+		int start = sb.length() - len;
+		if (start < 0) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (sb.charAt(start + i) != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int read() throws IOException {
+		int c = reader.read();
+		if (c == '\n') {
+			line++;
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		int c = reader.read();
+		if (c != -1) {
+			reader.unread(c);
+		}
+		return c;
+	}
+
+	private void unread(int c) throws IOException {
+		if (c == -1) {
+			return;
+		}
+		if (c == '\n') {
+			line--;
+		}
+		reader.unread(c);
+	}
+}
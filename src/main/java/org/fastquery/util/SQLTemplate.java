@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.fastquery.core.Param;
+import org.fastquery.core.Placeholder;
+
+/**
+ * 预编译的SQL模板. 在构建执行计划时把 @Query, @Condition, @Set 的value解析一次, 分成若干片段: 原文, $name(或${name})表达式, #{#sets}, #{#where}. <br>
+ * ":name" 在解析时就换成了 "?数字", 每次调用只需按顺序拼接一遍, 不再使用正则表达式. 渲染的结果与 {@link TypeUtil#paramFilter(org.fastquery.core.MethodPlan, Object[], String)} 一致.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public final class SQLTemplate {
+
+	private static final int TEXT = 0;
+	private static final int DOLLAR = 1;
+	private static final int SETS_SLOT = 2;
+	private static final int WHERE_SLOT = 3;
+
+	private final Param[] params;
+	private final int[] kinds; // 第i个片段的种类
+	private final String[] texts; // 原文片段的内容
+	private final int[] indexes; // $表达式片段对应的参数索引(从0开始)
+	private final int[] parameters; // SQL中出现过的"?数字"(去重),计数从1开始
+
+	private SQLTemplate(Param[] params, List<Object> segments, Set<Integer> parameters) {
+		this.params = params;
+		int len = segments.size();
+		this.kinds = new int[len];
+		this.texts = new String[len];
+		this.indexes = new int[len];
+		for (int i = 0; i < len; i++) {
+			Object segment = segments.get(i);
+			if (segment instanceof String) {
+				kinds[i] = TEXT;
+				texts[i] = (String) segment;
+			} else {
+				int v = (Integer) segment;
+				kinds[i] = v < 0 ? -v : DOLLAR;
+				indexes[i] = v;
+			}
+		}
+		this.parameters = parameters.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * 解析SQL模板
+	 * 
+	 * @param sql @Query, @Condition 或 @Set 的value
+	 * @param params 第i个参数上的@Param,没有标识则为null
+	 * @param dollar 是否处理$表达式(@QueryByNamed 的$表达式由模板引擎处理)
+	 * @return 预编译的SQL模板
+	 */
+	public static SQLTemplate compile(String sql, Param[] params, boolean dollar) {
+		List<Object> segments = new ArrayList<>(); // String:原文; 非负整数:$表达式对应的参数索引; 负数:-(#{#sets}或#{#where})
+		Set<Integer> parameters = new LinkedHashSet<>();
+		StringBuilder text = new StringBuilder();
+		boolean sets = false;
+		boolean where = false;
+		int len = sql.length();
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == ':') {
+				int end = wordEnd(sql, i + 1);
+				int index = indexOf(params, sql.substring(i + 1, end));
+				if (index != -1) {
+					text.append('?').append(index + 1);
+					parameters.add(index + 1);
+					i = end;
+					continue;
+				}
+			} else if (c == '?') {
+				int end = digitEnd(sql, i + 1);
+				if (end != i + 1) {
+					parameters.add(Integer.parseInt(sql.substring(i + 1, end)));
+					text.append(sql, i, end);
+					i = end;
+					continue;
+				}
+			} else if (c == '$' && dollar) {
+				int end;
+				int index;
+				if (i + 1 < len && sql.charAt(i + 1) == '{') {
+					end = sql.indexOf('}', i + 2);
+					index = end != -1 ? indexOf(params, sql.substring(i + 2, end)) : -1;
+					end++;
+				} else {
+					end = wordEnd(sql, i + 1);
+					index = indexOf(params, sql.substring(i + 1, end));
+				}
+				if (index != -1) {
+					flush(text, segments);
+					segments.add(index);
+					i = end;
+					continue;
+				}
+			} else if (c == '#' && !sets && sql.startsWith(Placeholder.SETS, i)) { // 只替换第一个#{#sets}
+				sets = true;
+				flush(text, segments);
+				segments.add(-SETS_SLOT);
+				i += Placeholder.SETS.length();
+				continue;
+			} else if (c == '#' && !where && sql.startsWith(Placeholder.WHERE, i)) { // 只替换第一个#{#where}
+				where = true;
+				flush(text, segments);
+				segments.add(-WHERE_SLOT);
+				i += Placeholder.WHERE.length();
+				continue;
+			}
+			text.append(c);
+			i++;
+		}
+		flush(text, segments);
+		return new SQLTemplate(params, segments, parameters);
+	}
+
+	/**
+	 * 渲染模板, #{#sets} 和 #{#where} 原样保留
+	 * 
+	 * @param args 给方法传递的参数值
+	 * @return SQL
+	 */
+	public String render(Object[] args) {
+		return render(args, null, null);
+	}
+
+	/**
+	 * 渲染模板
+	 * 
+	 * @param args 给方法传递的参数值
+	 * @param sets 替换#{#sets}的内容, 为null表示原样保留
+	 * @param where 替换#{#where}的内容, 为null表示原样保留
+	 * @return SQL
+	 */
+	public String render(Object[] args, String sets, String where) {
+		StringBuilder sb = new StringBuilder(64);
+		String[] values = null; // 同一个$表达式可能出现多次,只计算一次
+		for (int i = 0; i < kinds.length; i++) {
+			switch (kinds[i]) {
+			case TEXT:
+				sb.append(texts[i]);
+				break;
+			case DOLLAR:
+				if (values == null) {
+					values = new String[params.length];
+				}
+				int index = indexes[i];
+				if (values[index] == null) {
+					values[index] = TypeUtil.paramValue(params[index], index, args);
+				}
+				sb.append(values[index]);
+				break;
+			case SETS_SLOT:
+				sb.append(sets != null ? sets : Placeholder.SETS);
+				break;
+			default:
+				sb.append(where != null ? where : Placeholder.WHERE);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 
+	 * @return 是否含有$表达式, 没有时渲染的结果与参数值无关
+	 */
+	public boolean hasDollar() {
+		for (int kind : kinds) {
+			if (kind == DOLLAR) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * @return 模板中出现过的"?数字"(去重), 计数从1开始
+	 */
+	public int[] getParameters() {
+		return parameters;
+	}
+
+	private static void flush(StringBuilder text, List<Object> segments) {
+		if (text.length() != 0) {
+			segments.add(text.toString());
+			text.setLength(0);
+		}
+	}
+
+	// 第一个@Param(name)的参数索引,没有找到返回-1
+	private static int indexOf(Param[] params, String name) {
+		if (name.isEmpty()) {
+			return -1;
+		}
+		for (int i = 0; i < params.length; i++) {
+			if (params[i] != null && params[i].value().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// 从start开始的单词在哪里结束, 单词字符与正则的\w一致
+	private static int wordEnd(String str, int start) {
+		int i = start;
+		while (i < str.length()) {
+			char c = str.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+				i++;
+			} else {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private static int digitEnd(String str, int start) {
+		int i = start;
+		while (i < str.length() && str.charAt(i) >= '0' && str.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+}
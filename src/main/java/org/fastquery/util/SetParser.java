@@ -22,11 +22,7 @@
 
 package org.fastquery.util;
 
-import java.lang.reflect.Method;
-
 import org.fastquery.core.QueryContext;
-import org.fastquery.core.RepositoryException;
-import org.fastquery.where.Set;
 
 /**
  * 
@@ -38,53 +34,6 @@ public final class SetParser {
 	}
 	
 	public static String process() {
-		Method method = QueryContext.getMethod();
-		Object[] args = QueryContext.getArgs();
-		Set[] sets = method.getAnnotationsByType(Set.class);
-		if(sets.length == 0) {
-			return null;
-		} else {
-			StringBuilder sb = new StringBuilder("set ");
-			out:for (Set set : sets) {
-				String value = set.value();
-				value = TypeUtil.paramFilter(method, args, value);
-				java.util.Set<String> pars = TypeUtil.matchesNotrepeat(value, "\\?\\d+");
-				for (String par : pars) {
-					int index = Integer.parseInt(par.replace("?", "")); // 计数是1开始的
-					if (ignoreSet(set, args[index - 1])) { //注意:  @Set(....?1...?2) // ?1 都能决定 ?2 该条件忽略.  "?1保留条件" && "?2 不保留条件" = 不保留
-						continue out;
-					}
-				}
-
-				sb.append(value);
-				sb.append(",");
-				
-			}
-			if("set ".equals(sb.toString())) {
-				throw new RepositoryException("@Set 修改选项全部被忽略了,这是不允许的");
-			} else {
-				// 去掉最后一个逗号
-				sb.deleteCharAt(sb.length()-1);
-				sb.append(' ');
-				return sb.toString();
-			}
-		}
-	}
-	
-	
-	/**
-	 * 裁决是否忽略指定的条件,返回true表示要把这个条件忽略掉
-	 * 
-	 * @param set 条件
-	 * @return y:true/n:false
-	 */
-	private static boolean ignoreSet(Set set, Object arg) {
-		if(arg == null) {
-			return set.ignoreNull();
-		} else if("".equals(arg.toString())) {
-			return set.ignoreEmpty();
-		} else {
-			return false;
-		}
+		return QueryContext.getPlan().getSetClause().render(QueryContext.getArgs());
 	}
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+/**
+ * 逐个字符扫描SQL, 跳过字符串,反引号标识符,注释,#{#...}占位符和括号里的内容(子查询,函数), 记下最外层关键字的位置, 不使用正则表达式.
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+final class TopLevelScanner {
+
+	int select = -1;
+	int from = -1; // 第一个select之后的第一个from
+	int where = -1;
+	int order = -1;
+	int limit = -1;
+	boolean wrap; // 是否含有 distinct, group by, having 或 union
+	boolean joined; // from 与 where 之间是否含有 join 或逗号(多表)
+
+	TopLevelScanner(String sql) {
+		scan(sql);
+	}
+
+	/**
+	 * 
+	 * @return 最外层 order by 或 limit 的位置, 都没有返回-1
+	 */
+	int end() {
+		return order != -1 ? order : limit;
+	}
+
+	private void scan(String sql) {
+		int len = sql.length();
+		int depth = 0;
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = quoteEnd(sql, i, c);
+			} else if (c == '-' && i + 2 < len && sql.charAt(i + 1) == '-' && Character.isWhitespace(sql.charAt(i + 2))) {
+				i = lineEnd(sql, i);
+			} else if (c == '#' && i + 1 < len && sql.charAt(i + 1) == '{') { // 占位符,如: #{#where}
+				int close = sql.indexOf('}', i);
+				i = close == -1 ? len : close + 1;
+			} else if (c == '#') {
+				i = lineEnd(sql, i);
+			} else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+				int close = sql.indexOf("*/", i + 2);
+				i = close == -1 ? len : close + 2;
+			} else if (c == '(') {
+				depth++;
+				i++;
+			} else if (c == ')') {
+				depth--;
+				i++;
+			} else if (c == ',') {
+				if (depth == 0 && from != -1 && where == -1 && order == -1 && limit == -1) {
+					joined = true;
+				}
+				i++;
+			} else if (Character.isLetter(c) || c == '_') {
+				int start = i;
+				while (i < len && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$')) {
+					i++;
+				}
+				boolean boundary = start == 0 || !isWordPart(sql.charAt(start - 1));
+				if (depth == 0 && boundary) {
+					keyword(sql.substring(start, i), start);
+				}
+			} else {
+				i++;
+			}
+		}
+	}
+
+	private void keyword(String word, int start) {
+		if (limit != -1) {
+			return;
+		}
+		if (order != -1) {
+			if ("limit".equalsIgnoreCase(word)) {
+				limit = start;
+			}
+			return;
+		}
+		if (select == -1) {
+			if ("select".equalsIgnoreCase(word)) {
+				select = start;
+			}
+		} else if (from == -1) {
+			if ("from".equalsIgnoreCase(word)) {
+				from = start;
+			} else if ("distinct".equalsIgnoreCase(word)) {
+				wrap = true;
+			}
+		} else if ("group".equalsIgnoreCase(word) || "having".equalsIgnoreCase(word) || "union".equalsIgnoreCase(word)) {
+			wrap = true;
+		} else if ("join".equalsIgnoreCase(word) || "straight_join".equalsIgnoreCase(word)) {
+			if (where == -1) {
+				joined = true;
+			}
+		} else if ("where".equalsIgnoreCase(word)) {
+			if (where == -1) {
+				where = start;
+			}
+		} else if ("order".equalsIgnoreCase(word)) {
+			order = start;
+		} else if ("limit".equalsIgnoreCase(word)) {
+			limit = start;
+		}
+	}
+
+	private static boolean isWordPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.' || c == '`';
+	}
+
+	private static int quoteEnd(String sql, int start, char quote) {
+		int len = sql.length();
+		int i = start + 1;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == '\\' && quote != '`') {
+				i += 2;
+			} else if (c == quote) {
+				if (i + 1 < len && sql.charAt(i + 1) == quote) { // 连续两个引号表示引号本身
+					i += 2;
+				} else {
+					return i + 1;
+				}
+			} else {
+				i++;
+			}
+		}
+		return len;
+	}
+
+	private static int lineEnd(String sql, int start) {
+		int i = sql.indexOf('\n', start);
+		return i == -1 ? sql.length() : i + 1;
+	}
+}
@@ -38,22 +38,25 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
+import org.fastquery.core.Cursor;
 import org.fastquery.core.Id;
+import org.fastquery.core.MethodPlan;
 import org.fastquery.core.Param;
 import org.fastquery.core.Placeholder;
-import org.fastquery.core.Query;
 import org.fastquery.core.QueryByNamed;
 import org.fastquery.core.QueryContext;
 import org.fastquery.core.RepositoryException;
+import org.fastquery.core.RowHandler;
 import org.fastquery.mapper.QueryPool;
 import org.fastquery.page.PageIndex;
 import org.fastquery.page.PageSize;
 import org.fastquery.struct.ParamMap;
-import org.fastquery.where.Condition;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
@@ -207,15 +210,166 @@ public class TypeUtil implements Opcodes {
 	 * @return sql
 	 */
 	public static int[] getSQLParameter(String sql) {
-		List<String> subs = matches(sql, "\\?\\d+");
-		int len = subs.size();
-		int[] ints = new int[len];
-		for (int i = 0; i < len; i++) {
-			ints[i] = Integer.parseInt(subs.get(i).replace("?", ""));
+		// 逐个字符扫描 "?数字", 等同于正则 \?\d+
+		List<Integer> subs = new ArrayList<>();
+		int len = sql.length();
+		int i = sql.indexOf('?');
+		while (i != -1) {
+			int num = 0;
+			int j = i + 1;
+			while (j < len && sql.charAt(j) >= '0' && sql.charAt(j) <= '9') {
+				num = num * 10 + (sql.charAt(j) - '0');
+				j++;
+			}
+			if (j != i + 1) {
+				subs.add(num);
+			}
+			i = sql.indexOf('?', j);
+		}
+		int size = subs.size();
+		int[] ints = new int[size];
+		for (int k = 0; k < size; k++) {
+			ints[k] = subs.get(k);
 		}
 		return ints;
 	}
 
+	/**
+	 * 标记sql中的每个"?数字"是否独自构成一个 IN 列表, 例如: "id in (?1)", "id not in ( ?2 )". 顺序与 {@link #getSQLParameter(String)} 的返回值一一对应. <br>
+	 * 只有这样的参数才能补齐(重复最后一个元素不改变 IN 的结果), values(?1) 之类的集合参数不能补齐.
+	 * 
+	 * @param sql sql语句
+	 * @return 第i个"?数字"是否独自构成一个 IN 列表
+	 */
+	public static boolean[] getInListParameters(String sql) {
+		List<Boolean> flags = new ArrayList<>();
+		int len = sql.length();
+		int i = sql.indexOf('?');
+		while (i != -1) {
+			int j = i + 1;
+			while (j < len && sql.charAt(j) >= '0' && sql.charAt(j) <= '9') {
+				j++;
+			}
+			if (j != i + 1) {
+				flags.add(isInList(sql, i, j));
+			}
+			i = sql.indexOf('?', j);
+		}
+		boolean[] bs = new boolean[flags.size()];
+		for (int k = 0; k < bs.length; k++) {
+			bs[k] = flags.get(k);
+		}
+		return bs;
+	}
+
+	/**
+	 * 判断"?index"在sql中的每一处是否都独自构成一个肯定的 IN 列表(如: "id in (?1)", 不能是 "not in"), 且它所在的每一层括号(包括最外层)中都没有 or. <br>
+	 * 满足时, 把该参数切分成若干块分别查询, 各块的结果互不重叠, 拼接起来等于整体查询的结果.
+	 * 
+	 * @param sql sql语句
+	 * @param index 参数序号(从1开始)
+	 * @return sql中至少出现一次"?index", 且每一处都满足时返回true
+	 */
+	public static boolean isChunkableInList(String sql, int index) {
+		int len = sql.length();
+		List<Integer> groups = new ArrayList<>(); // 当前所在的括号, 由外到内
+		groups.add(0);
+		int nextGroup = 1;
+		Set<Integer> orGroups = new HashSet<>(); // 含有or的括号
+		List<List<Integer>> targets = new ArrayList<>(); // 每一处"?index"所在的括号
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				int close = sql.indexOf(c, i + 1);
+				i = close == -1 ? len : close + 1;
+			} else if (c == '(') {
+				groups.add(nextGroup++);
+				i++;
+			} else if (c == ')') {
+				if (groups.size() > 1) {
+					groups.remove(groups.size() - 1);
+				}
+				i++;
+			} else if (c == '?') {
+				int j = i + 1;
+				int num = 0;
+				while (j < len && sql.charAt(j) >= '0' && sql.charAt(j) <= '9') {
+					num = num * 10 + (sql.charAt(j) - '0');
+					j++;
+				}
+				if (j != i + 1 && num == index) {
+					if (!isInList(sql, i, j) || isNotIn(sql, i)) {
+						return false;
+					}
+					targets.add(new ArrayList<>(groups.subList(0, groups.size() - 1))); // 不含 in 自己的括号
+				}
+				i = j;
+			} else if (Character.isLetter(c) || c == '_') {
+				int j = i;
+				while (j < len && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '_')) {
+					j++;
+				}
+				if (j - i == 2 && sql.regionMatches(true, i, "or", 0, 2)) {
+					orGroups.add(groups.get(groups.size() - 1));
+				}
+				i = j;
+			} else {
+				i++;
+			}
+		}
+		if (targets.isEmpty()) {
+			return false;
+		}
+		for (List<Integer> target : targets) {
+			for (Integer group : target) {
+				if (orGroups.contains(group)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// sql中位于start的参数是 "not in (?N)" 中的参数, 调用者已确认它是 "in (?N)"
+	private static boolean isNotIn(String sql, int start) {
+		int b = sql.lastIndexOf('(', start) - 1;
+		while (b >= 0 && Character.isWhitespace(sql.charAt(b))) {
+			b--;
+		}
+		b -= 2; // 跳过 in
+		while (b >= 0 && Character.isWhitespace(sql.charAt(b))) {
+			b--;
+		}
+		return b >= 2 && sql.regionMatches(true, b - 2, "not", 0, 3) && (b < 3 || !(Character.isLetterOrDigit(sql.charAt(b - 3)) || sql.charAt(b - 3) == '_'));
+	}
+
+	// sql[start,end) 这个参数的前面是"in (", 后面是")"
+	private static boolean isInList(String sql, int start, int end) {
+		int e = end;
+		while (e < sql.length() && Character.isWhitespace(sql.charAt(e))) {
+			e++;
+		}
+		if (e == sql.length() || sql.charAt(e) != ')') {
+			return false;
+		}
+		int b = start - 1;
+		while (b >= 0 && Character.isWhitespace(sql.charAt(b))) {
+			b--;
+		}
+		if (b < 0 || sql.charAt(b) != '(') {
+			return false;
+		}
+		b--;
+		while (b >= 0 && Character.isWhitespace(sql.charAt(b))) {
+			b--;
+		}
+		if (b < 1 || !sql.regionMatches(true, b - 1, "in", 0, 2)) {
+			return false;
+		}
+		return b < 2 || !(Character.isLetterOrDigit(sql.charAt(b - 2)) || sql.charAt(b - 2) == '_');
+	}
+
 	/**
 	 * 为描述方便: 假设返回的值是 arrs
 	 * 
@@ -244,14 +398,29 @@ public class TypeUtil implements Opcodes {
 	 * @return sql处理信号集
 	 */
 	public static ParamMap getParamMap(int[] indexMap, Object[] args) {
+		return getParamMap(indexMap, null, args);
+	}
+
+	/**
+	 * 同 {@link #getParamMap(int[], Object[])}, 开启了IN列表补齐时, 只补齐独自构成 IN 列表的集合参数
+	 * 
+	 * @param indexMap 标记着,sql中的参数,对应着哪个方法参数
+	 * @param inLists 由 {@link #getInListParameters(String)} 得到, 为null表示都不补齐
+	 * @param args 方法参数的具体值
+	 * @return sql处理信号集
+	 */
+	public static ParamMap getParamMap(int[] indexMap, boolean[] inLists, Object[] args) {
 		Map<Integer, Integer> rps = new HashMap<>();
 		List<Object> objs = new ArrayList<>();
 		int increment = 0;
+		boolean padding = inLists != null && QueryContext.getPlan().isInListPadding();
+		int[] buckets = padding ? FastQueryJSONObject.getInListBuckets() : null;
 		for (int i = 0; i < indexMap.length; i++) {
+			boolean pad = padding && inLists[i];
 			// 取出sql参数所对应的方法参数
 			Object mp = args[indexMap[i] - 1]; // 这个值有可能是null
 			if (mp == null) {
-				Param param = QueryContext.getMethod().getParameters()[indexMap[i] - 1].getAnnotation(Param.class);
+				Param param = QueryContext.getPlan().getParam(indexMap[i] - 1);
 				if(param!=null && !param.defaultVal().trim().equals("")) {
 					objs.add(param.defaultVal());
 				} else {
@@ -270,6 +439,9 @@ public class TypeUtil implements Opcodes {
 					++count;
 					objs.add(iterator.next());
 				}
+				if (count != 0 && pad) {
+					count = pad(objs, count, buckets);
+				}
 				if (count != 0) {
 					rps.put(i + increment, count); // 第i个"?"需要替换成count个"?"
 					increment += count - 1; // 增量个数(除开本身一个)
@@ -281,6 +453,9 @@ public class TypeUtil implements Opcodes {
 				List<Object> arrs = toList(mp);
 				arrs.forEach(objs::add);
 				count = arrs.size();
+				if (count != 0 && pad) {
+					count = pad(objs, count, buckets);
+				}
 				if (count != 0) {
 					rps.put(i + increment, count);
 					increment += count - 1;
@@ -296,15 +471,87 @@ public class TypeUtil implements Opcodes {
 
 	}
 
+	/**
+	 * 计算集合参数补齐后的个数: 不小于count的最小的桶. 没有配置桶时,桶的大小是2的幂; count超过最大的桶时,补齐到最大桶的整数倍
+	 * 
+	 * @param count 集合的元素个数
+	 * @param buckets 从小到大排列的桶
+	 * @return 补齐后的个数
+	 */
+	static int bucket(int count, int[] buckets) {
+		if (buckets.length == 0) {
+			int highest = Integer.highestOneBit(count);
+			return highest == count ? count : highest << 1;
+		}
+		for (int bucket : buckets) {
+			if (bucket >= count) {
+				return bucket;
+			}
+		}
+		int max = buckets[buckets.length - 1];
+		return (count + max - 1) / max * max;
+	}
+
+	// 重复最后一个值,把集合参数补齐到桶的大小
+	private static int pad(List<Object> objs, int count, int[] buckets) {
+		int size = bucket(count, buckets);
+		Object last = objs.get(objs.size() - 1);
+		for (int i = count; i < size; i++) {
+			objs.add(last);
+		}
+		return size;
+	}
+
+	// 常用个数的"?,?,...",避免每次都拼接
+	private static final String[] OVER_CHARS = new String[129];
+
 	static String overChar(int overlap) {
 		if (overlap < 1) {
 			return "";
 		}
-		StringBuilder sb = new StringBuilder();
+		String str = overlap < OVER_CHARS.length ? OVER_CHARS[overlap] : null;
+		if (str != null) {
+			return str;
+		}
+		StringBuilder sb = new StringBuilder(overlap * 2);
 		for (int i = 0; i < overlap; i++) {
 			sb.append("?,");
 		}
 		sb.deleteCharAt(sb.length() - 1);
+		str = sb.toString();
+		if (overlap < OVER_CHARS.length) {
+			OVER_CHARS[overlap] = str;
+		}
+		return str;
+	}
+
+	/**
+	 * 一次扫描完成 {@link ParamMap#getRps()} 所描述的全部"?"调整, 效果等同于按索引从小到大依次调用 {@link #replace(String, int, int)}
+	 * 
+	 * @param str 被处理的字符串
+	 * @param rps 第几个(调整之后的计数,从0开始)"?"需要换成几个"?"
+	 * @return 处理后的字符串
+	 */
+	public static String replace(String str, Map<Integer, Integer> rps) {
+		if (rps.isEmpty()) {
+			return str;
+		}
+		StringBuilder sb = new StringBuilder(str.length() + rps.size() * 16);
+		int arisen = 0; // 调整之后,"?"是第几次出现
+		int len = str.length();
+		for (int i = 0; i < len; i++) {
+			char c = str.charAt(i);
+			if (c == '?') {
+				Integer overlap = rps.get(arisen);
+				if (overlap != null && overlap > 0) {
+					sb.append(overChar(overlap));
+					arisen += overlap;
+					continue;
+				}
+				arisen++;
+			}
+			sb.append(c);
+		}
 		return sb.toString();
 	}
 
@@ -463,46 +710,67 @@ public class TypeUtil implements Opcodes {
 	 * @return sql
 	 */
 	public static String paramFilter(Method method, Object[] args, String sql) {
+		return paramFilter(getParams(method), method.getAnnotation(QueryByNamed.class) != null, args, sql);
+	}
+
+	/**
+	 * 处理 @Param 模板参数
+	 * 
+	 * @param plan 方法的执行计划
+	 * @param args 给这个方法传递的参数值
+	 * @param sql sql语句
+	 * @return sql
+	 */
+	public static String paramFilter(MethodPlan plan, Object[] args, String sql) {
+		return paramFilter(plan.getParams(), plan.getQueryByNamed() != null, args, sql);
+	}
+
+	private static String paramFilter(Param[] params, boolean queryByNamed, Object[] args, String sql) {
 		String s = sql;
 		// 替换@Param
-		Annotation[][] annotations = method.getParameterAnnotations();
-		QueryByNamed queryByNamed = method.getAnnotation(QueryByNamed.class);
-		int len = annotations.length;
+		int len = params.length;
 		for (int i = 0; i < len; i++) {
-			Annotation[] anns = annotations[i];
-			for (Annotation ann : anns) {
-				if (ann.annotationType() == Param.class) {
-					Param param = (Param) ann;
-					Object objx = args[i];
-					objx = BeanUtil.parseList(objx);
-					// 如果参数值需要格式化(format)
-					if(!param.format().trim().equals("")) {
-						objx = String.format(param.format(), args); // 参数值可能包含有$表达式
-						String replacement = args[i] != null ? args[i].toString() : param.defaultVal();
-						replacement = Matcher.quoteReplacement(replacement);
-						objx = objx.toString().replaceAll("\\$\\{" + param.value() + "\\}", replacement).replaceAll("\\$" + param.value() + "\\b", replacement);
-					}
-
-					// 这里的replaceAll的先后顺序很重要
-					// '{' 是正则语法的关键字,必须转义
-					if (queryByNamed == null) {
-						String replacement = objx != null ? objx.toString() : param.defaultVal();
-						replacement = Matcher.quoteReplacement(replacement);
-						s = s.replaceAll("\\$\\{" + param.value() + "\\}", replacement);
-						s = s.replaceAll("\\$" + param.value() + "\\b", replacement);
-					}
-					
-					// 将 ":xx" 格式的 替换成 "?num"
-					// 替换时必须加单词分界符(\\b),举例说明: sql中同时存在":ABCD",":A",
-					// 不加单词分界符,":A"替换成"?num"后,会使":ABCD"变成":?numBCD"
-					s = s.replaceAll("\\:" + param.value() + "\\b", "?" + (i + 1));
+			Param param = params[i];
+			if (param != null) {
+				// 这里的replaceAll的先后顺序很重要
+				// '{' 是正则语法的关键字,必须转义
+				if (!queryByNamed) {
+					String replacement = paramValue(param, i, args);
+					replacement = Matcher.quoteReplacement(replacement);
+					s = s.replaceAll("\\$\\{" + param.value() + "\\}", replacement);
+					s = s.replaceAll("\\$" + param.value() + "\\b", replacement);
 				}
+				
+				// 将 ":xx" 格式的 替换成 "?num"
+				// 替换时必须加单词分界符(\\b),举例说明: sql中同时存在":ABCD",":A",
+				// 不加单词分界符,":A"替换成"?num"后,会使":ABCD"变成":?numBCD"
+				s = s.replaceAll("\\:" + param.value() + "\\b", "?" + (i + 1));
 			}
 		}
 		// 替换@Param End
 		return s;
 	}
 
+	/**
+	 * 计算 $name 或 ${name} 表达式的替换值
+	 * 
+	 * @param param 第i个参数上的@Param
+	 * @param i 参数的索引(从0开始)
+	 * @param args 给这个方法传递的参数值
+	 * @return 替换值
+	 */
+	static String paramValue(Param param, int i, Object[] args) {
+		Object objx = BeanUtil.parseList(args[i]);
+		// 如果参数值需要格式化(format)
+		if (!param.format().trim().equals("")) {
+			objx = String.format(param.format(), args); // 参数值可能包含有$表达式
+			String replacement = args[i] != null ? args[i].toString() : param.defaultVal();
+			replacement = Matcher.quoteReplacement(replacement);
+			objx = objx.toString().replaceAll("\\$\\{" + param.value() + "\\}", replacement).replaceAll("\\$" + param.value() + "\\b", replacement);
+		}
+		return objx != null ? objx.toString() : param.defaultVal();
+	}
+
 	/**
 	 * 处理 @Param 模板参数 仅仅只处理把 ":name" 替换成 "?数字"
 	 * 
@@ -511,167 +779,95 @@ public class TypeUtil implements Opcodes {
 	 * @return sql
 	 */
 	public static String paramNameFilter(Method method, String sql) {
+		return paramNameFilter(getParams(method), sql);
+	}
+
+	/**
+	 * 处理 @Param 模板参数 仅仅只处理把 ":name" 替换成 "?数字"
+	 * 
+	 * @param plan 方法的执行计划
+	 * @param sql sql语句
+	 * @return sql
+	 */
+	public static String paramNameFilter(MethodPlan plan, String sql) {
+		return paramNameFilter(plan.getParams(), sql);
+	}
+
+	private static String paramNameFilter(Param[] params, String sql) {
 		String s = sql;
 		// 替换@Param
-		Annotation[][] annotations = method.getParameterAnnotations();
-		int len = annotations.length;
+		int len = params.length;
 		for (int i = 0; i < len; i++) {
-			Annotation[] anns = annotations[i];
-			for (Annotation ann : anns) {
-				if (ann.annotationType() == Param.class) {
-					Param param = (Param) ann;
-					// Pattern.quote(":"+param.value())
-					s = s.replaceAll("\\:" + param.value() + "\\b", "?" + (i + 1));
-				}
+			Param param = params[i];
+			if (param != null) {
+				// Pattern.quote(":"+param.value())
+				s = s.replaceAll("\\:" + param.value() + "\\b", "?" + (i + 1));
 			}
 		}
 		// 替换@Param End
 		return s;
 	}
 
-	/**
-	 * 裁决是否忽略指定的条件,返回true表示要把这个条件忽略掉
-	 * 
-	 * @param condition 条件
-	 * @return y:true/n:false
-	 */
-	private static boolean ignoreCondition(Condition condition, Object arg) {
-
-		String[] allows = condition.allow();
-
-		if (allows.length != 0) { // 表明,允许的范围并不是全部,而是有所限定
-			if (arg == null) { // 范围有明确指定,还传递null,那么必然忽略
-				return true;
-			}
-			// 判断传递的值是否是允许的
-			boolean a = false;
-			for (String allow : allows) {
-				// 因为注解的特性 allows的集合中的成员永远不可能出现null
-				if (Pattern.matches(allow, arg.toString())) {
-					a = true;
-					break;
+	// 第i个参数上的@Param,没有标识则为null
+	private static Param[] getParams(Method method) {
+		Annotation[][] annotations = method.getParameterAnnotations();
+		Param[] params = new Param[annotations.length];
+		for (int i = 0; i < annotations.length; i++) {
+			for (Annotation ann : annotations[i]) {
+				if (ann.annotationType() == Param.class) {
+					params[i] = (Param) ann;
 				}
 			}
-			// 判断传递的值是否是允许的 End
-			if (!a) { // 传递的值不在允许范围之内,那么必然忽略条件
-				return true;
-			}
-		}
-
-		if (condition.ignoreNull() && arg == null) { // 允许null就忽略条件,正好arg==null
-			return true;
-		}
-
-		if (arg == null) { // arg == null 而且 ignoreNull是false,那么表明arg即使是null也不忽略
-			return false;
-		}
-
-		if (condition.ignoreEmpty() && "".equals(arg.toString())) {
-			return true;
-		}
-
-		String[] ignores = condition.ignore();
-		for (String ignore : ignores) {
-			if (Pattern.matches(ignore, arg.toString())) {
-				return true;
-			}
 		}
-
-		return false;
-
+		return params;
 	}
 
 	/**
 	 * 考虑条件是否参与运算问题.
 	 * 
-	 * @param method 方法
+	 * @param plan 方法的执行计划
 	 * @param args 参数集
 	 * @return where部分sql
 	 */
-	private static String getWhereSQL(Method method, Object[] args) {
-		StringBuilder sb = new StringBuilder();
-		// 追加条件
-		Condition[] conditions = method.getAnnotationsByType(Condition.class);
-		o: for (int i = 0; i < conditions.length; i++) {
-			String value = conditions[i].value();
-			value = paramFilter(method, args, value);
-			// value 属性中包含的参数,必须去重
-			Set<String> pars = TypeUtil.matchesNotrepeat(value, "\\?\\d+");
-			for (String par : pars) {
-				int index = Integer.parseInt(par.replace("?", "")); // 计数是1开始的
-				if (ignoreCondition(conditions[i], args[index - 1])) { //注意:  @Condition(....?1...?2) // ?1 都能决定 ?2 该条件忽略.  "?1保留条件" && "?2 不保留条件" = 不保留
-					continue o; // 跳出最外层的当次循环,不进行条件追加
-				} else if (args[index - 1] == null) {
-					// 如果传递null 还要求参与运算.
-					// sql中null无法跟比较运算符(如 =, <, 或者 <>),一起运算,必须使用 is null 和 is not null 操作符.
-					value = value.replaceAll("\\s+", " "); // 把多个空白换成一个空格
-					value = value.replaceAll("=\\?", "= ?"); // 将"=?" 替换成 "= ?"
-					value = value.replaceAll(" = \\?" + index, " is null");
-					value = value.replaceAll(" <> \\?" + index, " is not null");
-					value = value.replaceAll(" != \\?" + index, " is not null");
-				}
-			}
-
-			int sblen = sb.length();
-			// sb的长度是0 或者 最后一个字符就是空格
-			if (sblen == 0 || (sblen >= 1 && sb.charAt(sblen - 1) != ' ')) {
-				sb.append(' ');
-			}
-			if (sb.length() == 1 && i != 0) { // 条件成立,表示这个SQL条件的前面还不存在条件,// 那么第一个条件的链接符,必须去掉.
-												// (where后面不能直接跟运算符号)
-				sb.append(removePart(value));
-			} else {
-				sb.append(value);
-			}
-		}
-		// 追加条件 End
-		if (!"".equals(sb.toString())) { // 特别注意: 此处不能写成 !sb.equals("")
-			sb.insert(0, "where");
-		}
-		return sb.toString();
+	private static String getWhereSQL(MethodPlan plan, Object[] args) {
+		return plan.getWhereClause().render(args);
 	}
 
 	/**
 	 * 获取完整的SQL语句
 	 * 
-	 * @param method 方法
-	 * @param queries 注解集
+	 * @param plan 方法的执行计划
 	 * @param args 参数集
 	 * @return sql集
 	 */
-	public static List<String> getQuerySQL(Method method, Query[] queries, Object[] args) {
+	public static List<String> getQuerySQL(MethodPlan plan, Object[] args) {
 		List<String> sqls = new ArrayList<>();
 
 		// 如果是QueryByNamed
-		if (method.getAnnotation(QueryByNamed.class) != null) {
+		if (plan.getQueryByNamed() != null) {
 			String s = QueryPool.render(true);
-			s = paramFilter(method, args, s);
+			s = paramFilter(plan, args, s);
 			sqls.add(s);
 			return sqls;
 		}
 
 		if (QueryContext.isBuilderQuery()) {
 			String s = QueryContext.getQuery();
-			s = paramFilter(method, args, s);
+			s = paramFilter(plan, args, s);
 			sqls.add(s);
 			return sqls;
 		}
 
-		for (Query query : queries) {
-			String sql = query.value();
-			sql = paramFilter(method, args, sql);
+		int len = plan.getQueries().length;
+		for (int i = 0; i < len; i++) {
 			String sets = SetParser.process();
-			if(sets!=null) {
-				sql = sql.replaceFirst(Placeholder.SETS_REG, Matcher.quoteReplacement(sets));
-			}
-			sql = sql.replaceFirst(Placeholder.WHERE_REG, Matcher.quoteReplacement(getWhereSQL(method, args)));
-			sqls.add(sql);
+			sqls.add(plan.getQueryTemplate(i).render(args, sets, getWhereSQL(plan, args)));
 		}
 		return sqls;
 	}
 
-	public static String getCountQuerySQL(Method method, String sql, Object[] args) {
-		String csql = sql.replaceFirst(Placeholder.WHERE_REG, Matcher.quoteReplacement(getWhereSQL(method, args)));
+	public static String getCountQuerySQL(MethodPlan plan, String sql, Object[] args) {
+		String csql = StringUtils.replaceOnce(sql, Placeholder.WHERE, getWhereSQL(plan, args));
 		LOG.info("求和:{}", csql);
 		return csql;
 	}
@@ -719,6 +915,42 @@ public class TypeUtil implements Opcodes {
 				|| "java.util.List<java.util.Map<java.lang.String, java.lang.String>>".equals(type.toString());
 	}
 
+	/**
+	 * 判断是否是流式查询所支持的返回类型: Stream,Cursor,Iterator,Iterable
+	 * 
+	 * @param clazz 类型
+	 * @return y:true/n:false
+	 */
+	public static boolean isStreamType(Class<?> clazz) {
+		return clazz == Stream.class || clazz == Cursor.class || clazz == Iterator.class || clazz == Iterable.class;
+	}
+
+	/**
+	 * 判断是否是实体: 有默认构造方法,且不是包装类型,Map,集合,JSON以及JDK中的类型(如:java.util.Date)
+	 * 
+	 * @param clazz 类型
+	 * @return y:true/n:false
+	 */
+	public static boolean isBean(Class<?> clazz) {
+		if (clazz == null || clazz.isInterface() || clazz.isArray() || clazz.getName().startsWith("java.")) {
+			return false;
+		}
+		if (Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz) || JSON.class.isAssignableFrom(clazz)) {
+			return false;
+		}
+		return hasDefaultConstructor(clazz);
+	}
+
+	/**
+	 * 判断是否是行回调类型: RowHandler,Consumer
+	 * 
+	 * @param clazz 类型
+	 * @return y:true/n:false
+	 */
+	public static boolean isRowHandler(Class<?> clazz) {
+		return clazz == RowHandler.class || clazz == Consumer.class;
+	}
+
 	public static <B> List<B> listMap2ListBean(List<Map<String, Object>> maps, Class<B> b) {
 		List<B> bs = new ArrayList<>();
 		maps.forEach(map -> bs.add(JSON.toJavaObject(new JSONObject(map), b)));
@@ -825,6 +1057,74 @@ public class TypeUtil implements Opcodes {
 		return s;
 	}
 
+	/**
+	 * 渲染之后的SQL的后置处理, 一遍扫描完成: 去除首尾空白, 把连续的空白换成一个空格, 并按 {@link #parWhere(String)} 的规则处理&lt;where&gt;. <br>
+	 * 等价于 parWhere(str.trim().replaceAll("\\s+", " ")), 只是不再使用正则表达式, 并且去掉空的&lt;where&gt;后不会留下连续的空格.
+	 * 
+	 * @param str 待处理的字符串
+	 * @return 处理之后的字符串
+	 */
+	public static String compact(String str) { // 不可能传递null进来
+		int len = str.length();
+		StringBuilder sb = new StringBuilder(len);
+		int where = -1; // 当前<where>的内容在sb中的起始位置,-1表示不在<where>里
+		int i = 0;
+		while (i < len) {
+			char c = str.charAt(i);
+			if (isSpace(c)) {
+				if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+					sb.append(' ');
+				}
+				i++;
+			} else if (where == -1 && str.startsWith("<where>", i)) {
+				where = sb.length();
+				i += 7;
+			} else if (where != -1 && str.startsWith("</where>", i)) {
+				String w = sb.substring(where).trim();
+				w = stripWord(w, "where");
+				w = stripWord(w, "or");
+				w = stripWord(w, "and");
+				sb.setLength(where);
+				if (!w.isEmpty()) {
+					sb.append("where ").append(w);
+				}
+				where = -1;
+				i += 8;
+			} else {
+				sb.append(c);
+				i++;
+			}
+		}
+		if (where != -1) { // 没有闭合的<where>原样保留
+			sb.insert(where, "<where>");
+		}
+		int end = sb.length();
+		if (end > 0 && sb.charAt(end - 1) == ' ') {
+			sb.setLength(end - 1);
+		}
+		return sb.toString();
+	}
+
+	// 与正则中的\s一致
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+	}
+
+	// 如果str的第一个单词是word(忽略大小写),则去掉它
+	private static String stripWord(String str, String word) {
+		int len = word.length();
+		if (!str.regionMatches(true, 0, word, 0, len)) {
+			return str;
+		}
+		if (str.length() > len) {
+			char c = str.charAt(len);
+			if (Character.isLetterOrDigit(c) || c == '_') {
+				return str;
+			}
+		}
+		return str.substring(len).trim();
+	}
+
 	/**
 	 * 先去除首尾空被,获取第一个空白前面的字符串
 	 * 
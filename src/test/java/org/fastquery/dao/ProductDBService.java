@@ -44,6 +44,13 @@ public interface ProductDBService extends QueryRepository {
 	@Query("INSERT INTO `product` (`pid`, `lid`, `pname`, `description`) VALUES (1, 1, '复兴', NULL)")
 	int inserts();
 	
+	// 相邻且相同的SQL合并成一个批次执行
+	@Modifying(table = "UserInfo")
+	@Query("INSERT INTO `userinfo`(`name`, `age`) VALUES (?1, ?2)")
+	@Query("INSERT INTO `userinfo`(`name`, `age`) VALUES (?1, ?2)")
+	@Query("INSERT INTO `userinfo`(`name`, `age`) VALUES (?1, ?2)")
+	int batchInserts(String name, Integer age);
+
 	// 测试不同表事务
 	@Modifying
 	@Query("DELETE FROM `product` WHERE `pid` = 882")
@@ -22,18 +22,24 @@
 
 package org.fastquery.dao;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.fastquery.bean.UserInfo;
 import org.fastquery.bean.UserInformation;
+import org.fastquery.core.Cursor;
 import org.fastquery.core.Source;
 import org.fastquery.core.Id;
+import org.fastquery.core.InListChunk;
 import org.fastquery.core.Modifying;
 import org.fastquery.core.Param;
 import org.fastquery.core.Query;
 import org.fastquery.core.QueryByNamed;
 import org.fastquery.core.QueryRepository;
+import org.fastquery.core.RowHandler;
 import org.fastquery.core.Transactional;
 import org.fastquery.page.NotCount;
 import org.fastquery.page.Page;
@@ -84,6 +90,27 @@ public interface UserInfoDBService extends QueryRepository {
 	@Query("select id,name,age from `userinfo` as u where u.id>?1")
 	List<UserInfo> findSome(Integer id);
 
+	@Query("select id,name,age from `userinfo` as u where u.id>?1")
+	Stream<UserInfo> findSomeStream(Integer id);
+
+	@Query("select name from `userinfo` as u where u.id>?1")
+	Iterator<String> findSomeNames(Integer id);
+
+	@Query("select id,name,age from `userinfo` as u where u.id>?1")
+	Cursor<UserInfo> findSomeCursor(Integer id);
+
+	@Query("select id,name,age from `userinfo` where id in (?1) order by id")
+	List<UserInfo> findByIds(@InListChunk(size = 2) List<Integer> ids);
+
+	@Query("select id,name,age from `userinfo` where id in (?1) order by id")
+	UserInfo[] findByIdsParallel(@InListChunk(size = 2, parallelism = 3) Integer[] ids);
+
+	@Query("select id,name,age from `userinfo` as u where u.id>?1")
+	void findSome(Integer id, RowHandler<UserInfo> rowHandler);
+
+	@Query("select name from `userinfo` as u where u.id>?1")
+	void findSomeNames(Integer id, Consumer<String> consumer);
+
 	@Transactional
 	@Modifying
 	@Query("update `userinfo` set `name`=?1 where id=?3")
@@ -142,6 +169,14 @@ public interface UserInfoDBService extends QueryRepository {
 	@Condition("and id < :id")
 	Page<UserInfo> findSome1(@Param("age") Integer age, @Param("id") Integer id, Pageable pageable);
 
+	// 键集分页, #{#keyset} 会被替换成按排序键比较的条件
+	@Query("select id,name,age from `userinfo` where age > ?1 and #{#keyset}")
+	Page<UserInfo> findByKeyset(Integer age, Pageable pageable);
+
+	// ${filter} 展开后的字符串中可能含有"?", 它不是参数, 游标值依然绑定在 age 之后, maxId 之前
+	@Query("select id,name,age from `userinfo` where ${filter} and age > :age and #{#keyset} and id < :maxId")
+	Page<UserInfo> findByKeyset(@Param("filter") String filter, @Param("age") Integer age, @Param("maxId") Integer maxId, Pageable pageable);
+
 	@Query(value = "select count(name) from `userinfo` #{#where}")
 	@Condition("age > :age")
 	@Condition("and id < :id")
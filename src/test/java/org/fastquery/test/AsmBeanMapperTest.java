@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For more information, please see http://www.fastquery.org/.
+ *
+ */
+
+package org.fastquery.test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+import org.fastquery.asm.AsmBeanMapper;
+import org.fastquery.asm.BeanMapper;
+import org.fastquery.bean.UserInfo;
+import org.junit.Test;
+
+/**
+ * 
+ * @author xixifeng (fastquery@126.com)
+ */
+public class AsmBeanMapperTest {
+
+	// 只有一行记录的结果集, 按列索引取值
+	private static ResultSet resultSet(Object... row) {
+		boolean[] wasNull = new boolean[1];
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+			String name = method.getName();
+			if ("wasNull".equals(name)) {
+				return wasNull[0];
+			}
+			Object val = row[(int) args[0] - 1];
+			wasNull[0] = val == null;
+			if ("getInt".equals(name)) {
+				return val != null ? ((Number) val).intValue() : 0;
+			}
+			return val;
+		});
+	}
+
+	@Test
+	public void map() throws Exception {
+		String[] labels = { "id", "NAME", "age", "other" };
+		BeanMapper mapper = AsmBeanMapper.getMapper(UserInfo.class, labels);
+		assertThat(mapper.getClass().getName(), startsWith("org.fastquery.asm.BeanMapper$UserInfo$"));
+		assertThat(AsmBeanMapper.getMapper(UserInfo.class, labels.clone()), sameInstance(mapper));
+
+		UserInfo userInfo = (UserInfo) mapper.map(resultSet(7, "fastquery", null, "x"));
+		assertThat(userInfo.getId(), is(7));
+		assertThat(userInfo.getName(), equalTo("fastquery"));
+		assertThat(userInfo.getAge(), nullValue());
+
+		userInfo = (UserInfo) mapper.map(resultSet(8, null, 18, null));
+		assertThat(userInfo.getId(), is(8));
+		assertThat(userInfo.getName(), nullValue());
+		assertThat(userInfo.getAge(), is(18));
+	}
+
+	@Test
+	public void layout() throws Exception {
+		BeanMapper mapper = AsmBeanMapper.getMapper(UserInfo.class, new String[] { "age", "id" });
+		assertThat(mapper, not(sameInstance(AsmBeanMapper.getMapper(UserInfo.class, new String[] { "id", "age" }))));
+		UserInfo userInfo = (UserInfo) mapper.map(resultSet(20, 1));
+		assertThat(userInfo.getAge(), is(20));
+		assertThat(userInfo.getId(), is(1));
+	}
+}
@@ -29,18 +29,17 @@ import org.fastquery.example.StudentDBService;
 import org.fastquery.service.FQuery;
 import org.fastquery.struct.RespUpdate;
 import org.fastquery.struct.SQLValue;
+import org.fastquery.util.SQLScriptReader;
 import org.junit.Rule;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.nio.file.Paths;
 
 /**
  * 
@@ -102,20 +101,22 @@ public class DBTest {
 		assertThat(rule.getListSQLValue(), nullValue());
 	}
 
-	// 测试 db 中的parserSQLFile 方法
-	@SuppressWarnings("unchecked")
-	private static Stream<String> parserSQLFile(String name) throws Exception {
-		Class<DB> clazz = DB.class;
-		Method method = clazz.getDeclaredMethod("parserSQLFile", String.class);
-		method.setAccessible(true);
-		return (Stream<String>) method.invoke(null, name);
+	// 逐条读出SQL文件中的语句, 一条语句分了多行书写时, 行与行用空格隔开
+	private static List<String> parserSQLFile(String name) throws Exception {
+		List<String> list = new ArrayList<>();
+		try (SQLScriptReader reader = new SQLScriptReader(Paths.get(name))) {
+			String statement;
+			while ((statement = reader.next()) != null) {
+				list.add(statement.replaceAll("\\s*\\n\\s*", " ") + "; ");
+			}
+		}
+		return list;
 	}
 
 	@Test
 	public void parserSQLFile() throws Exception {
 		String name = "/mywork/myosgi/osgi_workspace/fastquery/tmp/update.sql";
-		Stream<String> stream = parserSQLFile(name);
-		List<String> list = stream.collect(Collectors.toList());
+		List<String> list = parserSQLFile(name);
 		assertThat(list.get(0), equalTo("DELETE FROM `product` WHERE `pid` = 1 and `lid` = 2; "));
 		assertThat(list.get(1), equalTo("DELETE FROM `product` WHERE `pid` = 2 and `lid` = 1; "));
 		assertThat(list.get(2), equalTo("DELETE FROM `product` WHERE `pid` = 1 and `lid` = 3; "));
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For more information, please see http://www.fastquery.org/.
+ *
+ */
+
+package org.fastquery.test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.fastquery.bean.UserInfo;
+import org.fastquery.core.BulkInsert;
+import org.fastquery.core.Cursor;
+import org.fastquery.core.InListChunk;
+import org.fastquery.core.MethodPlan;
+import org.fastquery.core.Query;
+import org.fastquery.core.QueryRepository;
+import org.fastquery.core.RepositoryException;
+import org.fastquery.core.RowHandler;
+import org.fastquery.dao.UserInfoDBService;
+import org.fastquery.page.Pageable;
+import org.fastquery.page.PageableImpl;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+/**
+ *
+ * @author mei.sir@aliyun.cn
+ */
+public class MethodPlanTest {
+
+	public interface InListDB extends QueryRepository {
+		@Query("select name from UserInfo where id in (?1)")
+		List<String> names(@InListChunk(size = 2) List<Integer> ids);
+
+		@Query("select count(id) from UserInfo where id in (?1)")
+		long count(@InListChunk(size = 2) List<Integer> ids);
+
+		@Query("select name from UserInfo where id not in (?1)")
+		List<String> notIn(@InListChunk(size = 2) List<Integer> ids);
+
+		@Query("select name from UserInfo where id in (?1) or age > 18")
+		List<String> or(@InListChunk(size = 2) List<Integer> ids);
+	}
+
+	private static MethodPlan plan(String name, Class<?>... parameterTypes) throws Exception {
+		Method method = UserInfoDBService.class.getMethod(name, parameterTypes);
+		return MethodPlan.register(UserInfoDBService.class, method);
+	}
+
+	@Test
+	public void pageable() throws Exception {
+		MethodPlan plan = plan("find", Integer.class, Integer.class, Pageable.class);
+		assertThat(plan.getElementType() == UserInfo.class, is(true));
+		assertThat(plan.getConditions().length, is(2));
+		assertThat(plan.isNotCount(), is(false));
+
+		Pageable pageable = new PageableImpl(3, 15);
+		assertThat(plan.getPageable(new Object[] { 1, 2, pageable }), sameInstance(pageable));
+	}
+
+	@Test
+	public void pageIndexAndSize() throws Exception {
+		MethodPlan plan = plan("findSome2", Integer.class, Integer.class, int.class, int.class);
+		assertThat(plan.isNotCount(), is(true));
+		assertThat(plan.getElementType(), nullValue());
+
+		Pageable pageable = plan.getPageable(new Object[] { 1, 2, 4, 10 });
+		assertThat(pageable.getPageIndex(), is(4));
+		assertThat(pageable.getPageSize(), is(10));
+		assertThat(pageable.getOffset(), is(30));
+	}
+
+	@Test
+	public void params() throws Exception {
+		MethodPlan plan = plan("findSome1", Integer.class, Integer.class, Pageable.class);
+		assertThat(plan.getParam(0).value(), equalTo("age"));
+		assertThat(plan.getParam(1).value(), equalTo("id"));
+		assertThat(plan.getParam(2), nullValue());
+		assertThat(plan.getQueries()[0].countQuery(), equalTo("select count(name) from `userinfo` #{#where}"));
+	}
+
+	@Test
+	public void get() throws Exception {
+		Method method = UserInfoDBService.class.getMethod("countByAgeAndId", Integer.class, Integer.class);
+		MethodPlan plan = MethodPlan.register(UserInfoDBService.class, method);
+		assertThat(MethodPlan.get(UserInfoDBService.class, method.getName(), Type.getMethodDescriptor(method)), sameInstance(plan));
+		assertThat(plan.getReturnType() == long.class, is(true));
+		assertThat(plan.getIdIndex(), is(-1));
+	}
+
+	@Test
+	public void stream() throws Exception {
+		MethodPlan plan = plan("findSomeStream", Integer.class);
+		assertThat(plan.getElementType() == UserInfo.class, is(true));
+		assertThat(plan.getReturnType() == Stream.class, is(true));
+
+		plan = plan("findSomeNames", Integer.class);
+		assertThat(plan.getElementType() == String.class, is(true));
+
+		plan = plan("findSomeCursor", Integer.class);
+		assertThat(plan.getElementType() == UserInfo.class, is(true));
+		assertThat(plan.getReturnType() == Cursor.class, is(true));
+	}
+
+	@Test
+	public void rowHandler() throws Exception {
+		MethodPlan plan = plan("findSome", Integer.class, RowHandler.class);
+		assertThat(plan.getElementType() == UserInfo.class, is(true));
+
+		plan = plan("findSomeNames", Integer.class, Consumer.class);
+		assertThat(plan.getElementType() == String.class, is(true));
+	}
+
+	@Test
+	public void bulkInsertKeys() throws Exception {
+		MethodPlan plan = plan("save", BulkInsert.class, Iterator.class, List.class);
+		assertThat(plan.getReturnType() == int.class, is(true));
+		plan("save", BulkInsert.class, String.class, Iterator.class, List.class);
+		plan("save", BulkInsert.class, String.class, String.class, Iterator.class, List.class);
+	}
+
+	@Test
+	public void inListChunk() throws Exception {
+		MethodPlan plan = MethodPlan.register(InListDB.class, InListDB.class.getMethod("names", List.class));
+		assertThat(plan.getInListIndex(), is(0));
+		assertThat(plan.getInListChunk().size(), is(2));
+		assertThat(plan.getInListChunk().parallelism(), is(1));
+
+		try {
+			MethodPlan.register(InListDB.class, InListDB.class.getMethod("count", List.class));
+			assertThat("返回long的查询不能分块", false, is(true));
+		} catch (RepositoryException e) {
+			assertThat(e.getMessage(), containsString("@InListChunk"));
+		}
+
+		// 切分之后各块的结果会重叠
+		for (String name : new String[] { "notIn", "or" }) {
+			try {
+				MethodPlan.register(InListDB.class, InListDB.class.getMethod(name, List.class));
+				assertThat(name + " 不能分块", false, is(true));
+			} catch (RepositoryException e) {
+				assertThat(e.getMessage(), containsString("@InListChunk"));
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fastquery.util.TypeUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class NativeTemplateTest {
+
+	private static Method compile;
+	private static Method render;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		Class<?> clazz = Class.forName("org.fastquery.mapper.NativeTemplate");
+		compile = clazz.getDeclaredMethod("compile", String.class);
+		compile.setAccessible(true);
+		render = clazz.getDeclaredMethod("render", Map.class);
+		render.setAccessible(true);
+	}
+
+	private static Object compile(String tpl) throws Exception {
+		return compile.invoke(null, tpl);
+	}
+
+	private static String render(String tpl, Map<String, Object> map) throws Exception {
+		Object template = compile(tpl);
+		assertThat(template, notNullValue());
+		return TypeUtil.compact(render.invoke(template, map).toString());
+	}
+
+	@Test
+	public void where() throws Exception {
+		String tpl = "select id,name,age from UserInfo <where> #if($name) and name = :name #end #if($age > 18) or age > :age #end </where> #{#limit}";
+		Map<String, Object> map = new HashMap<>();
+		assertThat(render(tpl, map), equalTo("select id,name,age from UserInfo #{#limit}"));
+
+		map.put("age", "20");
+		assertThat(render(tpl, map), equalTo("select id,name,age from UserInfo where age > :age #{#limit}"));
+
+		map.put("name", "");
+		assertThat(render(tpl, map), equalTo("select id,name,age from UserInfo where age > :age #{#limit}"));
+
+		map.put("name", "zs");
+		map.put("age", 18);
+		assertThat(render(tpl, map), equalTo("select id,name,age from UserInfo where name = :name #{#limit}"));
+	}
+
+	@Test
+	public void foreach() throws Exception {
+		String tpl = "id in (#foreach($id in $ids)$id#if($foreach.hasNext),#end#end) ${foreach.count} $!nothing";
+		Map<String, Object> map = new HashMap<>();
+		map.put("ids", Arrays.asList(1, 2, 3));
+		assertThat(render(tpl, map), equalTo("id in (1,2,3) ${foreach.count}"));
+
+		map.put("ids", new int[] { 7 });
+		assertThat(render(tpl, map), equalTo("id in (7) ${foreach.count}"));
+	}
+
+	@Test
+	public void state() throws Exception {
+		String tpl = "#if($state || $state == 0)true#{else}false#end";
+		Map<String, Object> map = new HashMap<>();
+		map.put("state", Byte.valueOf((byte) 0));
+		assertThat(render(tpl, map), equalTo("true"));
+		map.put("state", null);
+		assertThat(render(tpl, map), equalTo("false"));
+	}
+
+	@Test
+	public void unsupported() throws Exception {
+		String[] tpls = { "#set($a = 1)$a", "$name.length()", "$user.name", "#macro(m)x#end", "\\$name", "#if($a + 1 > 2)x#end", "#if($a)x", "x#end", "$a[0]" };
+		for (String tpl : tpls) {
+			assertThat(tpl, compile(tpl), nullValue());
+		}
+	}
+}
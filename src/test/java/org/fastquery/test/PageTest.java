@@ -29,6 +29,7 @@ import java.util.List;
 
 import org.fastquery.bean.UserInfo;
 import org.fastquery.dao.UserInfoDBService;
+import org.fastquery.page.KeysetPageable;
 import org.fastquery.page.Page;
 import org.fastquery.page.PageableImpl;
 import org.fastquery.service.FQuery;
@@ -90,4 +91,32 @@ public class PageTest {
 		long count = userInfoDBService.countByAgeAndId(age, id);
 		assertThat(page.getTotalElements(), is(count));
 	}
+
+	@Test
+	public void findByKeyset() {
+		KeysetPageable keyset = new KeysetPageable(3, true, new String[] { "age", "id" }, new Object[] { 30, 100 });
+		Page<UserInfo> page = userInfoDBService.findByKeyset(1, keyset);
+		assertThat(page.getTotalElements(), is(-1L));
+
+		List<SQLValue> sqlValues = rule.getListSQLValue();
+		assertThat(sqlValues.size(), is(1));
+		SQLValue sv = sqlValues.get(0);
+		assertThat(sv.getSql(), equalTo("select id,name,age from `userinfo` where age > ? and (age, id) < (?, ?) order by age desc, id desc limit 4"));
+		assertThat(sv.getValues(), contains(1, 30, 100));
+
+		userInfoDBService.findByKeyset(1, new KeysetPageable(3, "id"));
+		sv = rule.getListSQLValue().get(0);
+		assertThat(sv.getSql(), equalTo("select id,name,age from `userinfo` where age > ? and 1 = 1 order by id limit 4"));
+		assertThat(sv.getValues(), contains(1));
+	}
+
+	@Test
+	public void findByKeysetQuotedMark() {
+		KeysetPageable keyset = new KeysetPageable(3, true, new String[] { "age", "id" }, new Object[] { 30, 100 });
+		userInfoDBService.findByKeyset("name <> '?'", 1, 500, keyset);
+		SQLValue sv = rule.getListSQLValue().get(0);
+		assertThat(sv.getSql(),
+				equalTo("select id,name,age from `userinfo` where name <> '?' and age > ? and (age, id) < (?, ?) and id < ? order by age desc, id desc limit 4"));
+		assertThat(sv.getValues(), contains(1, 30, 100, 500));
+	}
 }
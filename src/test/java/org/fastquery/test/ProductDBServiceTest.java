@@ -25,12 +25,23 @@ package org.fastquery.test;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fastquery.bean.Product;
+import org.fastquery.core.DB;
+import org.fastquery.core.QueryContext;
 import org.fastquery.dao.ProductDBService;
 import org.fastquery.service.FQuery;
+import org.fastquery.struct.RespUpdate;
+import org.fastquery.struct.SQLValue;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -58,6 +69,67 @@ public class ProductDBServiceTest {
 		assertThat("断言" + i + "要么是3,要么是6", i, either(is(3)).or(is(6)));
 	}
 	
+	@Test
+	public void batchInserts() {
+		// 三条相同的insert合并成一个批次, 每条影响1行
+		assertThat(pdbs.batchInserts("批次", 18), is(3));
+		List<SQLValue> sqlValues = rule.getListSQLValue();
+		assertThat(sqlValues.size(), is(3));
+		sqlValues.forEach(sqlValue -> {
+			assertThat(sqlValue.getSql(), equalTo("INSERT INTO `userinfo`(`name`, `age`) VALUES (?, ?)"));
+			assertThat(sqlValue.getValues(), contains("批次", 18));
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<RespUpdate> modify(List<SQLValue> sqlValues, boolean hasPK, Connection conn) throws Exception {
+		Method method = DB.class.getDeclaredMethod("modify", List.class, boolean.class, Connection.class);
+		method.setAccessible(true);
+		return (List<RespUpdate>) method.invoke(null, sqlValues, hasPK, conn);
+	}
+
+	@Test
+	public void batchKeys() throws Exception {
+		pdbs.findOne(); // 让当前线程持有连接
+		Connection conn = QueryContext.getConnection();
+		AtomicInteger prepares = new AtomicInteger();
+		// 模拟驱动改写了批次(rewriteBatchedStatements=true): 每条语句的影响行数都报告为 SUCCESS_NO_INFO
+		Connection counting = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					Object result = method.invoke(conn, args);
+					if (!"prepareStatement".equals(method.getName())) {
+						return result;
+					}
+					prepares.incrementAndGet();
+					PreparedStatement stat = (PreparedStatement) result;
+					return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+							(p, m, a) -> {
+								Object r = m.invoke(stat, a);
+								if ("executeBatch".equals(m.getName())) {
+									int[] effects = (int[]) r;
+									Arrays.fill(effects, Statement.SUCCESS_NO_INFO);
+								}
+								return r;
+							});
+				});
+
+		List<SQLValue> sqlValues = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			sqlValues.add(new SQLValue("INSERT INTO `userinfo`(`name`, `age`) VALUES (?,?)", Arrays.asList("批次" + i, 20 + i)));
+		}
+		List<RespUpdate> rus = modify(sqlValues, true, counting);
+
+		// 一个批次, 每个SQLValue对应一个RespUpdate, 主键按执行顺序返回
+		assertThat(prepares.get(), is(1));
+		assertThat(rus.size(), is(3));
+		Long last = 0L;
+		for (RespUpdate ru : rus) {
+			assertThat(ru.getEffect(), is(1));
+			assertThat(ru.getPk(), greaterThan(last));
+			last = ru.getPk();
+		}
+	}
+
 	@Test
 	public void save1() {
 		assertThat(pdbs.save(true, null), is(0));
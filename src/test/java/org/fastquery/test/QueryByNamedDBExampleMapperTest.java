@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.fastquery.dao.QueryByNamedDBExample;
+import org.fastquery.mapper.QueryMapper;
 import org.fastquery.mapper.QueryPool;
 import org.fastquery.service.FQuery;
 import org.fastquery.util.TypeUtil;
@@ -55,9 +56,9 @@ public class QueryByNamedDBExampleMapperTest {
 	}
 
 	public String getTemplate(String className, String id) throws Exception {
-		Method method = QueryPool.class.getDeclaredMethod("getTemplate", String.class, String.class);
+		Method method = QueryPool.class.getDeclaredMethod("getQueryMapper", String.class, String.class);
 		method.setAccessible(true);
-		return method.invoke(null, className, id).toString();
+		return ((QueryMapper) method.invoke(null, className, id)).getTemplate();
 	}
 
 	public String render(String tpl, String logTag, Map<String, Object> map) throws Exception {
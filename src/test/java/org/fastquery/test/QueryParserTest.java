@@ -25,9 +25,9 @@ package org.fastquery.test;
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.Matchers.*;
 
-import java.lang.reflect.Method;
-
-import org.fastquery.core.QueryParser;
+import org.fastquery.core.RepositoryException;
+import org.fastquery.util.CountStatement;
+import org.fastquery.util.DeferredJoinStatement;
 import org.junit.Test;
 
 /**
@@ -36,11 +36,8 @@ import org.junit.Test;
  */
 public class QueryParserTest {
 
-	private static String calcCountStatement(String sql, String countField) throws Exception {
-		Class<QueryParser> clazz = QueryParser.class;
-		Method method = clazz.getDeclaredMethod("calcCountStatement", String.class, String.class);
-		method.setAccessible(true);
-		return method.invoke(null, sql, countField).toString();
+	private static String calcCountStatement(String sql, String countField) {
+		return CountStatement.derive(sql, countField);
 	}
 
 	@Test
@@ -51,4 +48,58 @@ public class QueryParserTest {
 		assertThat(str, equalTo("select count(id) frOm `user` as u"));
 
 	}
+
+	@Test
+	public void orderByAndLimit() {
+		String sql = "select id,name from UserInfo where name = 'order by' and age > (select min(age) from t order by age limit 1) Order By id desc limit 3,5";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(id) from UserInfo where name = 'order by' and age > (select min(age) from t order by age limit 1)"));
+
+		sql = "select u.id from `user` u -- limit\n where u.`limit` = ? /* order by */ order by u.id";
+		assertThat(calcCountStatement(sql, "u.id"), equalTo("select count(u.id) from `user` u -- limit\n where u.`limit` = ? /* order by */"));
+
+		assertThat(CountStatement.strip("select count(id) from UserInfo #{#where} order by id\n limit 10"), equalTo("select count(id) from UserInfo #{#where}"));
+	}
+
+	@Test
+	public void wrap() {
+		String sql = "select age,count(id) from UserInfo where id > ? group by age having count(id) > 1 order by age";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(*) from (select age,count(id) from UserInfo where id > ? group by age having count(id) > 1) fq_count"));
+
+		sql = "select DISTINCT name from UserInfo";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(*) from (select DISTINCT name from UserInfo) fq_count"));
+
+		sql = "select id from a union all select id from b order by id";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(*) from (select id from a union all select id from b) fq_count"));
+
+		sql = "(select id from a limit 3) union (select id from b)";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(*) from ((select id from a limit 3) union (select id from b)) fq_count"));
+
+		sql = "select count(distinct name) from UserInfo";
+		assertThat(calcCountStatement(sql, "id"), equalTo("select count(id) from UserInfo"));
+	}
+
+	@Test
+	public void deferredJoin() {
+		String sql = "select u.id,u.name,u.age from `userinfo` u where u.age > ? order by u.age desc, u.id #{#limit}";
+		assertThat(DeferredJoinStatement.rewrite(sql, "u.id"), equalTo("select u.id,u.name,u.age from `userinfo` u inner join (select u.id as fq_key from `userinfo` u "
+				+ "where u.age > ? order by u.age desc, u.id#{#limit}) fq_keys on u.id = fq_keys.fq_key order by u.age desc, u.id"));
+
+		sql = "select * from userinfo#{#limit}";
+		assertThat(DeferredJoinStatement.rewrite(sql, "id"), equalTo("select * from userinfo inner join (select id as fq_key from userinfo#{#limit}) fq_keys on id = fq_keys.fq_key"));
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void deferredJoinGroupBy() {
+		DeferredJoinStatement.rewrite("select age,count(id) from userinfo group by age #{#limit}", "id");
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void deferredJoinMultiTable() {
+		DeferredJoinStatement.rewrite("select u.id,c.name from userinfo u left join course c on c.uid = u.id order by u.id #{#limit}", "u.id");
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void deferredJoinCommaTables() {
+		DeferredJoinStatement.rewrite("select u.id,c.name from userinfo u, course c where c.uid = u.id #{#limit}", "u.id");
+	}
 }
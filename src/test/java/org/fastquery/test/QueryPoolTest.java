@@ -22,9 +22,16 @@
 
 package org.fastquery.test;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -35,10 +42,13 @@ import org.fastquery.mapper.QueryMapper;
 import org.fastquery.mapper.QueryPool;
 import org.fastquery.service.FQuery;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * 
@@ -50,6 +60,9 @@ public class QueryPoolTest {
 
 	public UserInfoDBService userInfoDBService = FQuery.getRepository(UserInfoDBService.class);
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@BeforeClass
 	public static void beforeClass() throws Exception {
 		resource = new Resource() {
@@ -82,6 +95,112 @@ public class QueryPoolTest {
 		return method.invoke(null, tpl, logTag, map).toString();
 	}
 
+	private static void load(String className, Resource resource) throws Exception {
+		Method method = QueryPool.class.getDeclaredMethod("load", String.class, Resource.class);
+		method.setAccessible(true);
+		method.invoke(null, className, resource);
+	}
+
+	private static QueryMapper getQueryMapper(String className, String id) throws Exception {
+		Method method = QueryPool.class.getDeclaredMethod("getQueryMapper", String.class, String.class);
+		method.setAccessible(true);
+		return (QueryMapper) method.invoke(null, className, id);
+	}
+
+	private static void watch(String className, Resource resource, URL url) throws Exception {
+		Method method = Class.forName("org.fastquery.mapper.QueryWatcher").getDeclaredMethod("watch", String.class, Resource.class, URL.class);
+		method.setAccessible(true);
+		method.invoke(null, className, resource, url);
+	}
+
+	// 从临时目录读取模板文件
+	private Resource folderResource() {
+		File dir = folder.getRoot();
+		return new Resource() {
+			@Override
+			public InputStream getResourceAsStream(String name) {
+				try {
+					return Files.newInputStream(new File(dir, name).toPath());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			public boolean exist(String name) {
+				return new File(dir, name).isFile();
+			}
+
+			@Override
+			public URL getResource(String name) {
+				try {
+					return exist(name) ? new File(dir, name).toURI().toURL() : null;
+				} catch (MalformedURLException e) {
+					return null;
+				}
+			}
+		};
+	}
+
+	private File writeQueries(String className, String query) throws IOException {
+		File file = new File(folder.getRoot(), className + ".queries.xml");
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<queries>\n\t<query id=\"findAll\">" + query + "</query>\n</queries>\n";
+		Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void reloadKeepsOthers() throws Exception {
+		Resource resource = folderResource();
+		String one = "org.fastquery.test.HotOne";
+		String two = "org.fastquery.test.HotTwo";
+		writeQueries(one, "select id from UserInfo");
+		writeQueries(two, "select name from UserInfo");
+		load(one, resource);
+		load(two, resource);
+		QueryMapper other = getQueryMapper(two, "findAll");
+		assertThat(getQueryMapper(one, "findAll").getTemplate(), equalTo("select id from UserInfo"));
+
+		// 改写文件, 重新读取后取到新模板, 其他类的模板不受影响
+		writeQueries(one, "select age from UserInfo");
+		load(one, resource);
+		assertThat(getQueryMapper(one, "findAll").getTemplate(), equalTo("select age from UserInfo"));
+		assertThat(getQueryMapper(two, "findAll"), sameInstance(other));
+
+		// 文件写坏了, 重新读取失败, 保留原来的模板
+		writeQueries(one, "select age from UserInfo;");
+		try {
+			load(one, resource);
+			fail("含有\";\"号的模板应该读取失败");
+		} catch (InvocationTargetException e) {
+			assertThat(e.getCause(), instanceOf(ExceptionInInitializerError.class));
+		}
+		assertThat(getQueryMapper(one, "findAll").getTemplate(), equalTo("select age from UserInfo"));
+		assertThat(getQueryMapper(two, "findAll"), sameInstance(other));
+	}
+
+	@Test
+	public void watchReloadsChangedFile() throws Exception {
+		Resource resource = folderResource();
+		String className = "org.fastquery.test.HotWatch";
+		File file = writeQueries(className, "select id from UserInfo");
+		load(className, resource);
+		watch(className, resource, file.toURI().toURL());
+
+		// 写坏的文件不会替换掉原来的模板
+		Files.write(file.toPath(), "<queries><query id=\"findAll\">".getBytes(StandardCharsets.UTF_8));
+		Thread.sleep(500);
+		assertThat(getQueryMapper(className, "findAll").getTemplate(), equalTo("select id from UserInfo"));
+
+		// 改正之后再次保存, 监听线程会读取新模板
+		writeQueries(className, "select name from UserInfo");
+		long deadline = System.currentTimeMillis() + 30000;
+		while (!"select name from UserInfo".equals(getQueryMapper(className, "findAll").getTemplate()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertThat(getQueryMapper(className, "findAll").getTemplate(), equalTo("select name from UserInfo"));
+	}
+
 	@Test
 	public void testXml2QueryMapper() throws Exception {
 		Set<QueryMapper> queryMappers = xml2QueryMapper("org.fastquery.dao.QueryByNamedDBExample", resource);
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * For more information, please see http://www.fastquery.org/.
+ *
+ */
+
+package org.fastquery.test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fastquery.struct.RowMap;
+import org.junit.Test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ *
+ * @author mei.sir@aliyun.cn
+ */
+public class RowMapTest {
+
+	private static final RowMap.Schema SCHEMA = new RowMap.Schema(new String[] { "id", "name", "age" });
+
+	@Test
+	public void read() {
+		RowMap row = new RowMap(SCHEMA, new Object[] { 1, "小明", null });
+		assertThat(row.size(), is(3));
+		assertThat(row.get("name"), equalTo("小明"));
+		assertThat(row.containsKey("age"), is(true));
+		assertThat(row.get("age"), nullValue());
+		assertThat(row.containsKey("sex"), is(false));
+		assertThat(row.keySet(), contains("id", "name", "age"));
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("id", 1);
+		map.put("name", "小明");
+		map.put("age", null);
+		assertThat(row.equals(map), is(true));
+		assertThat(map.equals(row), is(true));
+		assertThat(row.hashCode(), is(map.hashCode()));
+	}
+
+	@Test
+	public void copyOnWrite() {
+		RowMap row1 = new RowMap(SCHEMA, new Object[] { 1, "小明", 18 });
+		RowMap row2 = new RowMap(SCHEMA, new Object[] { 2, "小红", 17 });
+		row1.put("sex", "男");
+		row1.remove("id");
+		row1.entrySet().iterator().next().setValue("小刚");
+
+		assertThat(row1.keySet(), contains("name", "age", "sex"));
+		assertThat(row1.get("name"), equalTo("小刚"));
+		// 共享列信息的其他行不受影响
+		assertThat(row2.keySet(), contains("id", "name", "age"));
+		assertThat(row2.get("name"), equalTo("小红"));
+	}
+
+	@Test
+	public void replaceValues() {
+		RowMap row = new RowMap(SCHEMA, new Object[] { 1, "小明", null });
+		RowMap str = row.replaceValues(v -> v != null ? v.toString() : null);
+		assertThat(str.get("id"), equalTo("1"));
+		assertThat(str.get("age"), nullValue());
+		assertThat(row.get("id"), equalTo(1));
+
+		row.put("sex", 1);
+		assertThat(row.replaceValues(v -> v).keySet(), contains("id", "name", "age", "sex"));
+	}
+
+	@Test
+	public void duplicateLabels() {
+		RowMap.Schema schema = new RowMap.Schema(new String[] { "id", "name", "id" });
+		assertThat(schema.size(), is(2));
+		assertThat(schema.column(0), is(3));
+		assertThat(schema.column(1), is(2));
+	}
+
+	@Test
+	public void json() {
+		RowMap row = new RowMap(SCHEMA, new Object[] { 1, "小明", 18 });
+		JSONObject json = new JSONObject(row);
+		assertThat(json.getIntValue("age"), is(18));
+		assertThat(JSON.toJSONString(row), equalTo("{\"id\":1,\"name\":\"小明\",\"age\":18}"));
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.fastquery.core.RepositoryException;
+import org.fastquery.core.ScriptLoader;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class ScriptLoaderTest {
+
+	@Test
+	public void noFiles() {
+		assertThat(new ScriptLoader(null).load(), empty());
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void cycle() {
+		new ScriptLoader(null).add("a.sql", "b.sql", "c.sql").dependsOn("a.sql", "c.sql").dependsOn("c.sql", "b.sql").dependsOn("b.sql", "a.sql").load();
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void undeclared() {
+		new ScriptLoader(null).add("a.sql").dependsOn("a.sql", "b.sql").load();
+	}
+}
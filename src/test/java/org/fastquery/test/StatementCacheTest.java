@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import org.fastquery.core.StatementCache;
+import org.fastquery.dsm.FQueryProperties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class StatementCacheTest {
+
+	private static final String DATA_SOURCE_NAME = "statementCacheTest";
+
+	private static Method acquire;
+	private static Method prepare;
+	private static Method release;
+	private static Method checkin;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		FQueryProperties.putStatementCacheSize(DATA_SOURCE_NAME, 4);
+		acquire = StatementCache.class.getDeclaredMethod("acquire", String.class, Connection.class);
+		prepare = StatementCache.class.getDeclaredMethod("prepare", String.class, boolean.class);
+		release = StatementCache.class.getDeclaredMethod("release", Statement.class);
+		checkin = StatementCache.class.getDeclaredMethod("checkin");
+		acquire.setAccessible(true);
+		prepare.setAccessible(true);
+		release.setAccessible(true);
+		checkin.setAccessible(true);
+	}
+
+	// 物理连接, 每次prepareStatement都得到一个新的语句
+	private static Connection physical() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "prepareStatement":
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+						(p, m, a) -> m.getReturnType() == boolean.class ? false : null);
+			case "isWrapperFor":
+			case "isClosed":
+				return false;
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return proxy == args[0];
+			default:
+				return null;
+			}
+		});
+	}
+
+	// 连接池借出的代理连接
+	private static Connection logical(Connection physical) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "isWrapperFor":
+				return true;
+			case "unwrap":
+				return physical;
+			default:
+				return method.invoke(physical, args);
+			}
+		});
+	}
+
+	// 模拟一次方法调用: 借出连接, 执行sql, 归还连接
+	private static Object call(Connection conn, String sql) throws Exception {
+		Object cache = acquire.invoke(null, DATA_SOURCE_NAME, conn);
+		Object stat = prepare.invoke(cache, sql, false);
+		assertThat(release.invoke(cache, stat), is(true));
+		checkin.invoke(cache);
+		return stat;
+	}
+
+	@Test
+	public void hitAcrossCheckouts() throws Exception {
+		Connection physical = physical();
+		long hits = StatementCache.getStats(DATA_SOURCE_NAME) == null ? 0 : StatementCache.getStats(DATA_SOURCE_NAME).getHits();
+
+		Object stat1 = call(logical(physical), "select id from UserInfo where id = ?");
+		Object stat2 = call(logical(physical), "select id from UserInfo where id = ?");
+		assertThat(stat2, sameInstance(stat1));
+		assertThat(StatementCache.getStats(DATA_SOURCE_NAME).getHits(), is(hits + 1));
+
+		// 另一个物理连接有自己的缓存
+		Object stat3 = call(logical(physical()), "select id from UserInfo where id = ?");
+		assertThat(stat3, not(sameInstance(stat1)));
+		assertThat(StatementCache.getStats(DATA_SOURCE_NAME).getHits(), is(hits + 1));
+	}
+}
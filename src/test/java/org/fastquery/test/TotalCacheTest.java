@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fastquery.page.CountCache;
+import org.fastquery.struct.SQLValue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class TotalCacheTest {
+
+	private static Constructor<?> constructor;
+	private static Method key;
+	private static Method get;
+	private static Method put;
+	private static Method generation;
+	private static Method invalidate;
+
+	@CountCache
+	public void countCache() {
+	}
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		Class<?> clazz = Class.forName("org.fastquery.core.TotalCache");
+		constructor = clazz.getDeclaredConstructor(CountCache.class);
+		key = clazz.getDeclaredMethod("key", String.class, SQLValue.class);
+		get = clazz.getDeclaredMethod("get", List.class);
+		put = clazz.getDeclaredMethod("put", List.class, long.class, long.class);
+		generation = clazz.getDeclaredMethod("generation");
+		invalidate = clazz.getDeclaredMethod("invalidate", String.class);
+		for (Method method : Arrays.asList(key, get, put, generation, invalidate)) {
+			method.setAccessible(true);
+		}
+		constructor.setAccessible(true);
+	}
+
+	@Test
+	public void keyedByDataSource() throws Exception {
+		Object cache = constructor.newInstance(TotalCacheTest.class.getMethod("countCache").getAnnotation(CountCache.class));
+		SQLValue count = SQLValue.of("select count(id) from `totalCacheTest` where age > ?", Arrays.asList(18));
+		Object xk1 = key.invoke(null, "xk1", count);
+		Object xk2 = key.invoke(null, "xk2", count);
+
+		put.invoke(cache, xk1, 10L, generation.invoke(null));
+		assertThat(get.invoke(cache, xk1), is(10L));
+		// 同一条求和语句, 另一个数据源上没有缓存
+		assertThat(get.invoke(cache, xk2), nullValue());
+
+		put.invoke(cache, xk2, 20L, generation.invoke(null));
+		assertThat(get.invoke(cache, xk1), is(10L));
+		assertThat(get.invoke(cache, xk2), is(20L));
+
+		// 修改了该表, 所有数据源上的缓存都失效
+		invalidate.invoke(null, "totalCacheTest");
+		assertThat(get.invoke(cache, xk1), nullValue());
+		assertThat(get.invoke(cache, xk2), nullValue());
+	}
+}
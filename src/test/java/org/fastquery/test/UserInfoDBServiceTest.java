@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import org.fastquery.bean.UserInfo;
 import org.fastquery.bean.UserInformation;
+import org.fastquery.core.Cursor;
 import org.fastquery.core.RepositoryException;
 import org.fastquery.dao.UserInfoDBService;
 import org.fastquery.filter.SkipFilter;
@@ -44,10 +45,16 @@ import com.alibaba.fastjson.serializer.SerializerFeature;
 
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.*;
 
@@ -460,4 +467,99 @@ public class UserInfoDBServiceTest {
 		assertThat(objects.isEmpty(), is(true));
 	}
 
+	@Test
+	public void findSomeStream() {
+		Integer id = 1;
+		List<UserInfo> userInfos = userInfoDBService.findSome(id);
+		try (Stream<UserInfo> stream = userInfoDBService.findSomeStream(id)) {
+			List<Integer> ids = stream.map(UserInfo::getId).collect(Collectors.toList());
+			assertThat(ids.size(), is(userInfos.size()));
+			ids.forEach(i -> assertThat(i, greaterThan(id)));
+		}
+
+		Iterator<String> names = userInfoDBService.findSomeNames(id);
+		int count = 0;
+		while (names.hasNext()) {
+			assertThat(names.next(), notNullValue());
+			count++;
+		}
+		assertThat(count, is(userInfos.size()));
+	}
+
+	@Test
+	public void findSomeCursorEarlyExit() throws Exception {
+		Integer id = 1;
+		// 只读一行就关闭, 若连接没有归还, 循环次数超过连接池的上限时就拿不到连接了
+		for (int i = 0; i < 100; i++) {
+			Cursor<UserInfo> cursor;
+			try (Cursor<UserInfo> c = userInfoDBService.findSomeCursor(id)) {
+				cursor = c;
+				assertThat(c.next().getId(), greaterThan(id));
+			}
+			assertThat(cursor.hasNext(), is(false));
+
+			Iterator<String> names = userInfoDBService.findSomeNames(id);
+			assertThat(names.next(), notNullValue());
+			((AutoCloseable) names).close();
+			assertThat(names.hasNext(), is(false));
+		}
+	}
+
+	// 按块的顺序拼接, 每块内部按id排序
+	private static List<Integer> chunkOrder(List<Integer> ids) {
+		List<Integer> expected = new ArrayList<>();
+		for (int from = 0; from < ids.size(); from += 2) {
+			List<Integer> chunk = new ArrayList<>(ids.subList(from, Math.min(from + 2, ids.size())));
+			chunk.sort(null);
+			expected.addAll(chunk);
+		}
+		return expected;
+	}
+
+	@Test
+	public void findByIdsInListChunk() {
+		List<Integer> ids = userInfoDBService.findSome(0).stream().limit(5).map(UserInfo::getId).collect(Collectors.toList());
+		assertThat(ids.size(), is(5));
+		Collections.reverse(ids); // 5个id切分成3块: [e,d],[c,b],[a]
+
+		List<Integer> found = userInfoDBService.findByIds(ids).stream().map(UserInfo::getId).collect(Collectors.toList());
+		assertThat(found, equalTo(chunkOrder(ids)));
+
+		// 不超过一块时, 按正常流程执行
+		found = userInfoDBService.findByIds(ids.subList(0, 2)).stream().map(UserInfo::getId).collect(Collectors.toList());
+		assertThat(found, equalTo(chunkOrder(ids.subList(0, 2))));
+
+		// 空集合, 不访问数据库
+		assertThat(userInfoDBService.findByIds(new ArrayList<>()), empty());
+	}
+
+	@Test
+	@SkipFilter // 不进入调试模式, 块才会在工作线程的连接上并行执行
+	public void findByIdsInListChunkParallel() {
+		List<Integer> ids = userInfoDBService.findSome(0).stream().limit(5).map(UserInfo::getId).collect(Collectors.toList());
+		assertThat(ids.size(), is(5));
+		Collections.reverse(ids);
+
+		// 结果依然按块的顺序拼接
+		for (int i = 0; i < 20; i++) {
+			UserInfo[] userInfos = userInfoDBService.findByIdsParallel(ids.toArray(new Integer[ids.size()]));
+			assertThat(Arrays.stream(userInfos).map(UserInfo::getId).collect(Collectors.toList()), equalTo(chunkOrder(ids)));
+		}
+		assertThat(userInfoDBService.findByIdsParallel(new Integer[0]).length, is(0));
+	}
+
+	@Test
+	public void findSomeRowHandler() {
+		Integer id = 1;
+		List<UserInfo> userInfos = userInfoDBService.findSome(id);
+		List<UserInfo> rows = new ArrayList<>();
+		userInfoDBService.findSome(id, rows::add);
+		assertThat(rows.size(), is(userInfos.size()));
+		rows.forEach(u -> assertThat(u.getId(), greaterThan(id)));
+
+		List<String> names = new ArrayList<>();
+		userInfoDBService.findSomeNames(id, names::add);
+		assertThat(names.size(), is(userInfos.size()));
+	}
+
 }
@@ -31,6 +31,8 @@ import static org.junit.Assert.assertThat;
 
 import org.fastquery.bean.Student;
 import org.fastquery.bean.UserInfo;
+import org.fastquery.core.Id;
+import org.fastquery.struct.SQLValue;
 import org.junit.Test;
 
 /**
@@ -51,6 +53,17 @@ public class BeanUtilTest {
 		}
 	}
 
+	public static class Letter {
+		@Id
+		private Integer id;
+		private Character code;
+
+		public Letter(Integer id, Character code) {
+			this.id = id;
+			this.code = code;
+		}
+	}
+
 	@Test
 	public void testToInsertSQL() {
 		UserInfo userInfo = new UserInfo(33, "想向公主", 18);
@@ -335,6 +348,100 @@ public class BeanUtilTest {
 		assertThat(sql, equalTo("delete from `Pe`.`Student` where `uuid`=18"));
 	}
 
+	@Test
+	public void toInsertSQLValue() {
+		UserInfo userInfo = new UserInfo(33, "想向公主", 18);
+		SQLValue sqlValue = BeanUtil.toInsertSQLValue(userInfo, null);
+		assertThat(sqlValue.getSql(), equalTo("insert into `UserInfo`(`id`,`name`,`age`) values(?,?,?)"));
+		assertThat(sqlValue.getValues(), contains((Object) 33, "想向公主", 18));
+
+		// 主键设置为null, 值为null的字段依然占位,保证SQL文本稳定
+		userInfo.setId(null);
+		userInfo.setName(null);
+		sqlValue = BeanUtil.toInsertSQLValue(userInfo, "xk");
+		assertThat(sqlValue.getSql(), equalTo("insert into `xk`.`UserInfo`(`name`,`age`) values(?,?)"));
+		assertThat(sqlValue.getValues(), contains((Object) null, 18));
+	}
+
+	@Test
+	public void beansToInsertSQLValue() {
+		List<UserInfo> userInfos = new ArrayList<>();
+		assertThat(BeanUtil.toInsertSQLValue(userInfos, null, false), nullValue());
+
+		userInfos.add(new UserInfo("牵牛花", 3));
+		userInfos.add(new UserInfo(10, "松'鼠", 5));
+		SQLValue sqlValue = BeanUtil.toInsertSQLValue(userInfos, null, true);
+		// 插入哪些字段以第一个实体为准
+		assertThat(sqlValue.getSql(), equalTo("insert ignore into `UserInfo`(`name`,`age`) values(?,?),(?,?)"));
+		assertThat(sqlValue.getValues(), contains((Object) "牵牛花", 3, "松'鼠", 5));
+	}
+
+	@Test
+	public void toInsertTemplate() {
+		BeanUtil.InsertTemplate template = BeanUtil.toInsertTemplate(new UserInfo("牵牛花", 3), null, false);
+		assertThat(template.toSQL(1), equalTo("insert into `UserInfo`(`name`,`age`) values(?,?)"));
+		assertThat(template.toSQL(3), equalTo("insert into `UserInfo`(`name`,`age`) values(?,?),(?,?),(?,?)"));
+		assertThat(template.rowLength(), is(6));
+		assertThat(template.rowParameters(), is(2));
+
+		List<Object> values = new ArrayList<>();
+		template.addValues(new UserInfo(10, "松鼠", 5), values);
+		assertThat(values, contains((Object) "松鼠", 5));
+	}
+
+	@Test
+	public void toSelectSQLValue() {
+		UserInfo userInfo = new UserInfo(33, "函数式编程", 18);
+		SQLValue sqlValue = BeanUtil.toSelectSQLValue(userInfo, 36, "xk", true);
+		assertThat(sqlValue.getSql(), equalTo("select `id`,`name`,`age` from `xk`.`UserInfo` where `id` = ?"));
+		assertThat(sqlValue.getValues(), contains((Object) 36));
+
+		sqlValue = BeanUtil.toSelectSQLValue(userInfo, null, null, false);
+		assertThat(sqlValue.getSql(), equalTo("select `id` from `UserInfo` where `id` = ?"));
+		assertThat(sqlValue.getValues(), contains((Object) 33));
+
+		userInfo.setId(null);
+		assertThat(BeanUtil.toSelectSQLValue(userInfo, null, null, false), nullValue());
+	}
+
+	@Test
+	public void toUpdateSQLValue() {
+		List<UserInfo> userInfos = new ArrayList<>();
+		userInfos.add(new UserInfo(77, "茝若", 18));
+		userInfos.add(new UserInfo(88, null, null));
+
+		SQLValue sqlValue = BeanUtil.toUpdateSQLValue(userInfos, null);
+		assertThat(sqlValue.getSql(), equalTo(
+				"update `UserInfo` set `name` = case `id` when ? then ? when ? then `name` else `name` end,`age` = case `id` when ? then ? when ? then `age` else `age` end where `id` in(?,?)"));
+		assertThat(sqlValue.getValues(), contains((Object) 77, "茝若", 88, 77, 18, 88, 77, 88));
+	}
+
+	@Test
+	public void toDeleteSQLValue() {
+		SQLValue sqlValue = BeanUtil.toDeleteSQLValue("Student", "uuid", 18, "Pe");
+		assertThat(sqlValue.getSql(), equalTo("delete from `Pe`.`Student` where `uuid`=?"));
+		assertThat(sqlValue.getValues(), contains((Object) 18L));
+	}
+
+	@Test
+	public void characterField() {
+		// Character 以字符串绑定, 否则驱动会写入它的序列化字节
+		Letter letter = new Letter(1, 'c');
+		SQLValue sqlValue = BeanUtil.toInsertSQLValue(letter, null);
+		assertThat(sqlValue.getSql(), equalTo("insert into `Letter`(`id`,`code`) values(?,?)"));
+		assertThat(sqlValue.getValues(), contains((Object) 1, "c"));
+
+		List<Letter> letters = new ArrayList<>();
+		letters.add(letter);
+		letters.add(new Letter(2, 'd'));
+		sqlValue = BeanUtil.toUpdateSQLValue(letters, null);
+		assertThat(sqlValue.getValues(), contains((Object) 1, "c", 2, "d", 1, 2));
+
+		List<Object> values = new ArrayList<>();
+		BeanUtil.toInsertTemplate(letter, null, false).addValues(new Letter(3, 'e'), values);
+		assertThat(values, contains((Object) 3, "e"));
+	}
+
 	@Test
 	public void testReset() {
 		UserInfo u2 = BeanUtil.newBeanVarNull(UserInfo.class);
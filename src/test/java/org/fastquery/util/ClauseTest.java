@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.fastquery.core.Param;
+import org.fastquery.core.RepositoryException;
+import org.fastquery.where.Condition;
+import org.fastquery.where.Set;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class ClauseTest {
+
+	@Condition("name like :name")
+	@Condition(value = "and age = :age", ignoreNull = false)
+	@Condition(value = "or sex = ?3", allow = "[MF]")
+	@Condition(value = "and city <> :city", ignore = "\\d+")
+	@Set("name = :name")
+	@Set(value = "age = :age", ignoreNull = false)
+	public void m(@Param("name") String name, @Param("age") Integer age, String sex, @Param("city") String city) {
+	}
+
+	@Condition("`$col` = :name")
+	public void d(@Param("name") String name, @Param("col") String col) {
+	}
+
+	@Condition("and c1 = ?1")
+	@Condition("and c2 = ?2")
+	@Condition("and c3 = ?3")
+	@Condition("and c4 = ?4")
+	@Condition("and c5 = ?5")
+	@Condition("and c6 = ?6")
+	@Condition("and c7 = ?7")
+	@Condition("and c8 = ?8")
+	@Condition("and c9 = ?9")
+	public void e(String c1, String c2, String c3, String c4, String c5, String c6, String c7, String c8, String c9) {
+	}
+
+	private static Method method(String name) throws Exception {
+		return Arrays.stream(ClauseTest.class.getMethods()).filter(m -> m.getName().equals(name)).findFirst().get();
+	}
+
+	private static Param[] params(Method method) {
+		return Arrays.stream(method.getParameters()).map(p -> p.getAnnotation(Param.class)).toArray(Param[]::new);
+	}
+
+	@Test
+	public void where() throws Exception {
+		Method m = method("m");
+		Clause clause = Clause.where(m.getAnnotationsByType(Condition.class), params(m), true);
+		assertThat(clause.render(new Object[] { "x%", 18, "M", "bj" }), equalTo("where name like ?1 and age = ?2 or sex = ?3 and city <> ?4"));
+		assertThat(clause.render(new Object[] { null, null, "X", "" }), equalTo("where age is null"));
+		assertThat(clause.render(new Object[] { null, 18, "F", "110" }), equalTo("where age = ?2 or sex = ?3"));
+	}
+
+	@Test
+	public void cache() throws Exception {
+		Method m = method("m");
+		Clause clause = Clause.where(m.getAnnotationsByType(Condition.class), params(m), true);
+		String sql = clause.render(new Object[] { "a", 1, "M", "x" });
+		assertThat(clause.render(new Object[] { "b", 2, "F", "y" }), sameInstance(sql));
+		assertThat(clause.render(new Object[] { "b", null, "F", "y" }), not(equalTo(sql)));
+
+		// 含有$表达式, SQL跟参数值有关
+		Method d = method("d");
+		clause = Clause.where(d.getAnnotationsByType(Condition.class), params(d), true);
+		assertThat(clause.render(new Object[] { "a", "c1" }), equalTo("where `c1` = ?1"));
+		assertThat(clause.render(new Object[] { "a", "c2" }), equalTo("where `c2` = ?1"));
+	}
+
+	@Test
+	public void evict() throws Exception {
+		Method e = method("e");
+		Clause clause = Clause.where(e.getAnnotationsByType(Condition.class), params(e), true);
+		Object[] hot = new Object[] { "v", "v", "v", "v", "v", "v", "v", "v", "v" };
+		String sql = clause.render(hot);
+		// 9个参数是否为null, 共512种形状, 超出了缓存的上限
+		for (int mask = 1; mask < 512; mask++) {
+			Object[] args = new Object[9];
+			for (int i = 0; i < 9; i++) {
+				args[i] = (mask & (1 << i)) == 0 ? "v" : null;
+			}
+			clause.render(args);
+			assertThat(clause.render(hot), sameInstance(sql)); // 常用的形状不会被淘汰
+		}
+		Field field = Clause.class.getDeclaredField("shapes");
+		field.setAccessible(true);
+		assertThat(((Map<?, ?>) field.get(clause)).size(), is(256));
+	}
+
+	@Test
+	public void sets() throws Exception {
+		Method m = method("m");
+		Clause clause = Clause.sets(m.getAnnotationsByType(Set.class), params(m), true);
+		assertThat(clause.render(new Object[] { "a", 1, null, null }), equalTo("set name = ?1,age = ?2 "));
+		assertThat(clause.render(new Object[] { "", null, null, null }), equalTo("set age = ?2 "));
+		assertThat(Clause.sets(new Set[0], params(m), true).render(new Object[4]), nullValue());
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void allSetsIgnored() throws Exception {
+		Method m = method("m");
+		Clause clause = Clause.sets(new Set[] { m.getAnnotationsByType(Set.class)[0] }, params(m), true);
+		clause.render(new Object[] { null, 1, null, null });
+	}
+}
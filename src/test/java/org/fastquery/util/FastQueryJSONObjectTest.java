@@ -65,4 +65,15 @@ public class FastQueryJSONObjectTest {
 		assertThat(time, is(50));
 	}
 
+	@Test
+	public void inListPadding() {
+		assertThat(FastQueryJSONObject.getInListPadding(), is(false));
+		assertThat(FastQueryJSONObject.getInListBuckets().length, is(0));
+	}
+
+	@Test
+	public void concurrentCount() {
+		assertThat(FastQueryJSONObject.getConcurrentCount(), is(false));
+	}
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class SQLScriptReaderTest {
+
+	private static List<String> read(String script) throws Exception {
+		List<String> list = new ArrayList<>();
+		try (SQLScriptReader reader = new SQLScriptReader(new StringReader(script))) {
+			String statement;
+			while ((statement = reader.next()) != null) {
+				list.add(statement);
+			}
+		}
+		return list;
+	}
+
+	@Test
+	public void quote() throws Exception {
+		List<String> list = read("insert into t values('a;b', \"c;d\", 'it''s', 'x\\';y');\nselect `a;b` from t");
+		assertThat(list, contains("insert into t values('a;b', \"c;d\", 'it''s', 'x\\';y')", "select `a;b` from t"));
+	}
+
+	@Test
+	public void comment() throws Exception {
+		List<String> list = read("# one;\n-- two;\nselect 1; -- three;\n/* four; */ select 2 /* five; */;\nselect 3--4;\nselect /*!40101 6 */;");
+		assertThat(list, contains("select 1", "select 2", "select 3--4", "select /*!40101 6 */"));
+	}
+
+	@Test
+	public void delimiter() throws Exception {
+		String script = "drop procedure if exists p;\nDELIMITER $$\ncreate procedure p() begin select 1; select 2; end$$\ndelimiter ;\ndelete from t;";
+		List<String> list = read(script);
+		assertThat(list, contains("drop procedure if exists p", "create procedure p() begin select 1; select 2; end", "delete from t"));
+	}
+
+	@Test
+	public void getLine() throws Exception {
+		try (SQLScriptReader reader = new SQLScriptReader(new StringReader("select 1;\n\nselect\n2;\n"))) {
+			assertThat(reader.next(), equalTo("select 1"));
+			assertThat(reader.getLine(), is(1));
+			assertThat(reader.next(), equalTo("select\n2"));
+			assertThat(reader.getLine(), is(4));
+			assertThat(reader.next(), nullValue());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2088, fastquery.org and/or its affiliates. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * For more information, please see http://www.fastquery.org/.
+ * 
+ */
+
+package org.fastquery.util;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.fastquery.core.Param;
+import org.junit.Test;
+
+/**
+ * 
+ * @author mei.sir@aliyun.cn
+ */
+public class SQLTemplateTest {
+
+	public void m(@Param("name") String name, @Param("n") Integer n, @Param(value = "tb", defaultVal = "t1") String tb,
+			@Param(value = "like", format = "%%${like}%%") String like, Integer plain) {
+	}
+
+	private static Param[] params() throws Exception {
+		Method method = SQLTemplateTest.class.getMethod("m", String.class, Integer.class, String.class, String.class, Integer.class);
+		return Arrays.stream(method.getParameters()).map(p -> p.getAnnotation(Param.class)).toArray(Param[]::new);
+	}
+
+	private static String paramFilter(String sql, Object[] args) throws Exception {
+		Method method = SQLTemplateTest.class.getMethod("m", String.class, Integer.class, String.class, String.class, Integer.class);
+		return TypeUtil.paramFilter(method, args, sql);
+	}
+
+	@Test
+	public void sameAsParamFilter() throws Exception {
+		Param[] params = params();
+		Object[] args = new Object[] { "a$b", 3, null, "x", 5 };
+		String[] sqls = { "select * from $tb where name = :name and n > :n and n < :nn", "select * from ${tb} where x = ?5 and y in (?2,?2)",
+				"select :name::text, $names, ${name}, $name, :tb, '$like'", "update t set a = 1 where b like :like #{#where}",
+				"select 1 from dual where a = ':n1' or b = :n_ or c = $n" };
+		for (String sql : sqls) {
+			SQLTemplate template = SQLTemplate.compile(sql, params, true);
+			assertThat(sql, template.render(args), equalTo(paramFilter(sql, args)));
+		}
+	}
+
+	@Test
+	public void slots() throws Exception {
+		SQLTemplate template = SQLTemplate.compile("update t #{#sets} #{#where} and x = :n #{#where}", params(), true);
+		assertThat(template.render(new Object[5]), equalTo("update t #{#sets} #{#where} and x = ?2 #{#where}"));
+		assertThat(template.render(new Object[5], "set a = ?1 ", "where b = ?3"), equalTo("update t set a = ?1  where b = ?3 and x = ?2 #{#where}"));
+	}
+
+	@Test
+	public void getParameters() throws Exception {
+		SQLTemplate template = SQLTemplate.compile("a = ?3 or b = :name or c = ?3 or d = :n or e = :none or f = ?12", params(), true);
+		assertThat(template.getParameters(), equalTo(new int[] { 3, 1, 2, 12 }));
+	}
+
+	@Test
+	public void noDollar() throws Exception {
+		SQLTemplate template = SQLTemplate.compile("select $name from t where a = :name", params(), false);
+		assertThat(template.render(new Object[] { "x", null, null, null, null }), equalTo("select $name from t where a = ?1"));
+	}
+}
@@ -29,6 +29,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -331,6 +332,37 @@ public class TypeUtilTest implements Opcodes {
 		assertThat(sub, equalTo("b"));
 	}
 
+	@Test
+	public void getInListParameters() {
+		boolean[] inLists = TypeUtil.getInListParameters("select * from t where id in (?1) and name not In( ?2 ) and age = ?3 or x in (?1, ?2)");
+		assertThat(inLists.length, is(5));
+		assertThat(inLists[0], is(true));
+		assertThat(inLists[1], is(true));
+		assertThat(inLists[2], is(false));
+		assertThat(inLists[3], is(false));
+		assertThat(inLists[4], is(false));
+
+		inLists = TypeUtil.getInListParameters("insert into t(a,b,c) values(?1)");
+		assertThat(inLists.length, is(1));
+		assertThat(inLists[0], is(false));
+
+		inLists = TypeUtil.getInListParameters("select * from t where join(?1)");
+		assertThat(inLists[0], is(false));
+	}
+
+	@Test
+	public void isChunkableInList() {
+		assertThat(TypeUtil.isChunkableInList("select * from t where id in (?1) and age > ?2", 1), is(true));
+		assertThat(TypeUtil.isChunkableInList("select * from t where (a = ?2 or b = ?2) and id In( ?1 )", 1), is(true));
+		assertThat(TypeUtil.isChunkableInList("select * from t where title <> 'x or y' and id in (?1)", 1), is(true));
+
+		assertThat(TypeUtil.isChunkableInList("select * from t where id not in (?1)", 1), is(false));
+		assertThat(TypeUtil.isChunkableInList("select * from t where id in (?1) or age > ?2", 1), is(false));
+		assertThat(TypeUtil.isChunkableInList("select * from t where age > ?2 and (id in (?1) or name = ?3)", 1), is(false));
+		assertThat(TypeUtil.isChunkableInList("select * from t where id in (?1, ?2)", 1), is(false));
+		assertThat(TypeUtil.isChunkableInList("select * from t where id = ?2", 1), is(false));
+	}
+
 	@Test
 	public void parWhere() {
 		String sql = "select * from Student <where>where and id = :id</where>";
@@ -347,6 +379,24 @@ public class TypeUtilTest implements Opcodes {
 
 	}
 
+	@Test
+	public void compact() {
+		String sql = " select *\n\tfrom Student  <where>\n where and id = :id\n</where>  order by id ";
+		assertThat(TypeUtil.compact(sql), equalTo("select * from Student where id = :id order by id"));
+
+		sql = "select * from Student <where> Or  name = :name and id = :id</where>";
+		assertThat(TypeUtil.compact(sql), equalTo("select * from Student where name = :name and id = :id"));
+
+		sql = "select * from Student <where>  \t\n</where> order by id";
+		assertThat(TypeUtil.compact(sql), equalTo("select * from Student order by id"));
+
+		sql = "select * from Student <where>orders > 1</where>";
+		assertThat(TypeUtil.compact(sql), equalTo("select * from Student where orders > 1"));
+
+		sql = "select * from Student <where>and id = 1";
+		assertThat(TypeUtil.compact(sql), equalTo(sql));
+	}
+
 	@Test
 	public void getFirstWord() {
 
@@ -494,6 +544,33 @@ public class TypeUtilTest implements Opcodes {
 		assertThat(str, equalTo("?,?,?,?,?5"));
 	}
 
+	@Test
+	public void replace6() {
+		String src = "select * from t where a in (?1) and b = ?2 and c in (?3)";
+		Map<Integer, Integer> rps = new HashMap<>();
+		rps.put(0, 3); // 第0个"?"换成3个
+		rps.put(4, 2); // 调整之后的第4个"?"换成2个
+		String str = TypeUtil.replace(src, rps);
+		assertThat(str, equalTo(TypeUtil.replace(TypeUtil.replace(src, 0, 3), 4, 2)));
+		assertThat(str, equalTo("select * from t where a in (?,?,?1) and b = ?2 and c in (?,?3)"));
+		assertThat(TypeUtil.replace(src, new HashMap<>()), sameInstance(src));
+	}
+
+	@Test
+	public void bucket() {
+		int[] none = new int[0];
+		assertThat(TypeUtil.bucket(1, none), is(1));
+		assertThat(TypeUtil.bucket(3, none), is(4));
+		assertThat(TypeUtil.bucket(16, none), is(16));
+		assertThat(TypeUtil.bucket(17, none), is(32));
+
+		int[] buckets = { 10, 50, 100 };
+		assertThat(TypeUtil.bucket(1, buckets), is(10));
+		assertThat(TypeUtil.bucket(50, buckets), is(50));
+		assertThat(TypeUtil.bucket(51, buckets), is(100));
+		assertThat(TypeUtil.bucket(101, buckets), is(200));
+	}
+
 	@Test
 	public void mapValueTyep()
 			throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException {